@@ -4,7 +4,15 @@
 
 package com.ifba.prodscalpel4objects;
 
+import com.ifba.prodscalpel4objects.extractor.ExtractAllPipeline;
+import com.ifba.prodscalpel4objects.extractor.HotMethodRanker;
 import com.ifba.prodscalpel4objects.extractor.MethodExtractorV1;
+import com.ifba.prodscalpel4objects.extractor.RankedMethod;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  *
@@ -13,6 +21,14 @@ import com.ifba.prodscalpel4objects.extractor.MethodExtractorV1;
 public class Prodscalpel4objects {
 
     public static void main(String[] args) {
+        // --rank <raiz do doador> <gravação .jfr> [limite] [--extract] [--minimal] [--verify <pom.xml>]: ordena
+        // os métodos pelo perfil de execução; --minimal extrai com a emissão mínima (apenas os imports e campos
+        // usados) e --verify compila o IceBox com o classpath mínimo das dependências do pom.xml
+        if (args.length >= 3 && args[0].equals("--rank")) {
+            rank(args);
+            return;
+        }
+
    String sourceRootPath = "C:\\Users\\Lara.rodrigues\\Documents\\petresgate-master\\src\\main\\java";
 
         // Caminho completo para o arquivo-fonte que contém o método processData
@@ -23,9 +39,39 @@ public class Prodscalpel4objects {
 
         // Cria uma instância do extrator de métodos
         MethodExtractorV1 methodExtractor = new MethodExtractorV1(sourceRootPath);
+        // O doador usa injeção do Spring: o índice é necessário para seguir os colaboradores injetados
+        methodExtractor.setBuildDependencyInjectionIndex(true);
 
         // Extrai o método especificado para um novo arquivo
         methodExtractor.extract(sourceFilePath, methodName);
 
         System.out.println("Extração concluída.");    }
+
+    private static void rank(String[] args) {
+        String sourceRootPath = args[1];
+        int limit = args.length > 3 && !args[3].startsWith("--") ? Integer.parseInt(args[3]) : 20;
+        boolean extract = List.of(args).contains("--extract");
+        boolean minimalEmission = List.of(args).contains("--minimal");
+        int verifyIndex = List.of(args).indexOf("--verify");
+        Path pomFile = verifyIndex != -1 && verifyIndex + 1 < args.length ? Paths.get(args[verifyIndex + 1]) : null;
+        try {
+            List<RankedMethod> ranking = new HotMethodRanker(Paths.get(sourceRootPath)).rank(Paths.get(args[2]), limit);
+            System.out.println("Amostras\tPróprias\tFechamento\tPontuação\tMétodo");
+            for (RankedMethod method : ranking) {
+                System.out.printf("%d\t%d\t%d\t%.2f\t%s%n", method.samples(), method.selfSamples(),
+                        method.closureSize(), method.score(), method.target().id());
+            }
+            if (extract) {
+                // Sem a varredura de run(), o pipeline constrói o índice de injeção uma vez para todos os alvos
+                ExtractAllPipeline pipeline = new ExtractAllPipeline(sourceRootPath,
+                        Runtime.getRuntime().availableProcessors(), 256, Paths.get("IceBox", ".progress"));
+                pipeline.setMinimalEmission(minimalEmission);
+                pipeline.setPomFile(pomFile);
+                pipeline.run(ranking.stream().map(RankedMethod::target).toList());
+            }
+        } catch (IOException e) {
+            System.out.println("Erro ao ordenar os métodos: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 }
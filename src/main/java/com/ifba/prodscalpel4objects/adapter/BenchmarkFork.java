@@ -0,0 +1,170 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Processo filho do {@link MicroBenchmark}: executa os testes do hospedeiro repetidamente,
+ * primeiro em iterações de aquecimento e depois em iterações medidas, e imprime uma linha
+ * {@code RESULT <nanossegundos por operação> <bytes alocados por operação>} por iteração medida.
+ * Os testes são executados por reflexão, sem depender do JUnit: os métodos de preparação e
+ * finalização são reconhecidos pelo nome simples das anotações ({@code BeforeEach}, {@code Before}, ...).
+ * Os testes que não podem ser executados assim (parametrizados, de classes {@code @Nested} ou cujas classes
+ * não têm construtor sem parâmetros, como as que recebem dependências injetadas) ficam fora da medição,
+ * cada um com uma linha {@code SKIPPED <teste> <motivo>}.
+ * Uma falha encerra o processo com a linha {@code FAILED <teste> <mensagem>}.
+ *
+ * @author Giovane Neves
+ */
+public class BenchmarkFork {
+
+    private static final Set<String> BEFORE_ALL = Set.of("BeforeAll", "BeforeClass");
+    private static final Set<String> BEFORE_EACH = Set.of("BeforeEach", "Before");
+    private static final Set<String> AFTER_EACH = Set.of("AfterEach", "After");
+    private static final Set<String> AFTER_ALL = Set.of("AfterAll", "AfterClass");
+
+    private BenchmarkFork() {
+    }
+
+    /**
+     * Ponto de entrada do processo filho.
+     *
+     * @param args [iterações de aquecimento] [iterações medidas] [operações por iteração] [testes...]
+     */
+    public static void main(String[] args) {
+        int warmupIterations = Integer.parseInt(args[0]);
+        int measurementIterations = Integer.parseInt(args[1]);
+        int operationsPerIteration = Integer.parseInt(args[2]);
+
+        List<TestCase> tests = new ArrayList<>();
+        try {
+            for (int i = 3; i < args.length; i++) {
+                try {
+                    tests.add(TestCase.load(args[i]));
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    System.out.println("SKIPPED " + args[i] + " " + String.valueOf(e).replace('\n', ' '));
+                }
+            }
+            if (tests.isEmpty()) {
+                System.out.println("FAILED - nenhum teste pôde ser carregado para a medição");
+                System.exit(1);
+            }
+            for (TestCase test : tests) {
+                test.invokeStatic(BEFORE_ALL);
+            }
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().threadId();
+            for (int iteration = 0; iteration < warmupIterations + measurementIterations; iteration++) {
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                long start = System.nanoTime();
+                for (int operation = 0; operation < operationsPerIteration; operation++) {
+                    for (TestCase test : tests) {
+                        test.run();
+                    }
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                if (iteration >= warmupIterations) {
+                    double operations = (double) operationsPerIteration * tests.size();
+                    System.out.println("RESULT " + (elapsed / operations) + " " + (allocated / operations));
+                }
+            }
+
+            for (TestCase test : tests) {
+                test.invokeStatic(AFTER_ALL);
+            }
+        } catch (TestFailure e) {
+            System.out.println("FAILED " + e.test + " " + String.valueOf(e.getCause()).replace('\n', ' '));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Um método de teste com os métodos de preparação e finalização da sua classe.
+     */
+    private record TestCase(String id, Class<?> testClass, Method method) {
+
+        // Falha com NoSuchMethodException para testes com parâmetros e classes sem construtor sem parâmetros
+        static TestCase load(String id) throws ReflectiveOperationException {
+            int hash = id.indexOf('#');
+            Class<?> testClass = Class.forName(id.substring(0, hash));
+            Method method = testClass.getDeclaredMethod(id.substring(hash + 1));
+            if (!Modifier.isStatic(method.getModifiers())) {
+                // Classes @Nested são internas: o construtor exige a instância da classe externa
+                testClass.getDeclaredConstructor();
+            }
+            method.setAccessible(true);
+            return new TestCase(id, testClass, method);
+        }
+
+        void run() throws TestFailure {
+            try {
+                Object instance = null;
+                if (!Modifier.isStatic(method.getModifiers())) {
+                    var constructor = testClass.getDeclaredConstructor();
+                    constructor.setAccessible(true);
+                    instance = constructor.newInstance();
+                }
+                invokeAnnotated(instance, BEFORE_EACH);
+                try {
+                    method.invoke(instance);
+                } finally {
+                    invokeAnnotated(instance, AFTER_EACH);
+                }
+            } catch (InvocationTargetException e) {
+                throw new TestFailure(id, e.getCause());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new TestFailure(id, e);
+            }
+        }
+
+        void invokeStatic(Set<String> annotations) throws TestFailure {
+            try {
+                invokeAnnotated(null, annotations);
+            } catch (InvocationTargetException e) {
+                throw new TestFailure(id, e.getCause());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new TestFailure(id, e);
+            }
+        }
+
+        // Percorre a hierarquia a partir da superclasse, como os executores de teste
+        private void invokeAnnotated(Object instance, Set<String> annotations) throws ReflectiveOperationException {
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> current = testClass; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            for (Class<?> current : hierarchy) {
+                for (Method candidate : current.getDeclaredMethods()) {
+                    boolean annotated = false;
+                    for (var annotation : candidate.getAnnotations()) {
+                        annotated |= annotations.contains(annotation.annotationType().getSimpleName());
+                    }
+                    if (annotated && candidate.getParameterCount() == 0
+                            && (instance != null || Modifier.isStatic(candidate.getModifiers()))) {
+                        candidate.setAccessible(true);
+                        candidate.invoke(instance);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class TestFailure extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String test;
+
+        TestFailure(String test, Throwable cause) {
+            super(cause);
+            this.test = test;
+        }
+    }
+}
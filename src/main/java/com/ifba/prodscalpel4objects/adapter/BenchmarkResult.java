@@ -0,0 +1,97 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+/**
+ * Medições de um {@link MicroBenchmark}, uma amostra por iteração medida (de todos os processos).
+ *
+ * @param nanosPerOperation Tempo por operação, em nanossegundos.
+ * @param bytesPerOperation Bytes alocados por operação.
+ */
+public record BenchmarkResult(double[] nanosPerOperation, double[] bytesPerOperation) {
+
+    // Valores críticos da distribuição t (bicaudal, 95%) para 1 a 30 graus de liberdade
+    private static final double[] T_CRITICAL = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    public double meanNanos() {
+        return mean(nanosPerOperation);
+    }
+
+    public double meanBytes() {
+        return mean(bytesPerOperation);
+    }
+
+    /**
+     * Razão entre o tempo deste resultado e o de referência, ou 1 se a diferença
+     * não for estatisticamente significativa (teste t de Welch, 95%).
+     *
+     * @param baseline O resultado de referência (hospedeiro original).
+     * @return A razão de tempo.
+     */
+    public double timeRatio(BenchmarkResult baseline) {
+        return ratio(nanosPerOperation, baseline.nanosPerOperation);
+    }
+
+    /**
+     * Razão entre a alocação deste resultado e a de referência, ou 1 se a diferença
+     * não for estatisticamente significativa (teste t de Welch, 95%).
+     *
+     * @param baseline O resultado de referência (hospedeiro original).
+     * @return A razão de alocação.
+     */
+    public double allocationRatio(BenchmarkResult baseline) {
+        return ratio(bytesPerOperation, baseline.bytesPerOperation);
+    }
+
+    /**
+     * Teste t de Welch para duas amostras com variâncias possivelmente diferentes.
+     *
+     * @param a Primeira amostra.
+     * @param b Segunda amostra.
+     * @return {@code true} se as médias diferem com 95% de confiança.
+     */
+    static boolean significantlyDifferent(double[] a, double[] b) {
+        if (a.length < 2 || b.length < 2) {
+            return false;
+        }
+        double varianceA = variance(a) / a.length;
+        double varianceB = variance(b) / b.length;
+        double standardError = Math.sqrt(varianceA + varianceB);
+        if (standardError == 0) {
+            return mean(a) != mean(b);
+        }
+        double t = Math.abs(mean(a) - mean(b)) / standardError;
+        // Graus de liberdade de Welch-Satterthwaite
+        double degrees = Math.pow(varianceA + varianceB, 2)
+                / (varianceA * varianceA / (a.length - 1) + varianceB * varianceB / (b.length - 1));
+        int index = (int) Math.floor(degrees);
+        double critical = index < 1 ? T_CRITICAL[0] : index <= T_CRITICAL.length ? T_CRITICAL[index - 1] : 1.960;
+        return t > critical;
+    }
+
+    private static double ratio(double[] samples, double[] baseline) {
+        double baselineMean = mean(baseline);
+        if (baselineMean == 0 || !significantlyDifferent(samples, baseline)) {
+            return 1.0;
+        }
+        return mean(samples) / baselineMean;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    private static double variance(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+}
@@ -1,18 +1,529 @@
 package com.ifba.prodscalpel4objects.adapter;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.stmt.Statement;
+import com.ifba.prodscalpel4objects.finder.InsertionPoint;
+import com.ifba.prodscalpel4objects.finder.InsertionPointIndex;
+import com.ifba.prodscalpel4objects.icebox.OrganFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 /**
 * GP Algorithm para adaptação de código.
+* Cada candidato é uma seleção ordenada das instruções do órgão, com as variáveis do órgão associadas
+* a variáveis do hospedeiro no ponto de inserção. O candidato é enxertado no hospedeiro e avaliado
+* pelos testes que exercitam o ponto; no modo multiobjetivo também são medidos o tempo e a alocação
+* (ver {@link MicroBenchmark}) e a seleção é feita por frentes de Pareto (NSGA-II).
+* Candidatos com o mesmo código são avaliados uma única vez.
 *
 * @author Giovane Neves
 */
 public class GPAlgorithm {
 
+   /**
+   * Valor dos objetivos de desempenho para candidatos que não puderam ser medidos (testes falhando).
+   */
+   static final double UNMEASURED = 1e6;
+
+   private final OrganFile organ;
+   private final InsertionPoint insertionPoint;
+   private final TestImpactAnalyzer testImpact;
+   private final HostTestRunner testRunner;
+   private final TestHistory testHistory;
+   private final GPParameters parameters;
+   private final GPRandom random;
+   private final Map<String, Evaluation> fitnessCache = new HashMap<>();
+
+   private List<Statement> statements;
+   private Map<String, List<String>> mappingCandidates;
+   private MicroBenchmark microBenchmark;
+   private BenchmarkResult baseline;
+   private List<GPIndividual> population = new ArrayList<>();
+   private int generation;
+   private int nextId;
+   private GPCheckpoint checkpoint;
+   private int checkpointInterval;
+
+   /**
+   * Construtor da classe GPAlgorithm.
+   *
+   * @param organ          O órgão a ser adaptado.
+   * @param insertionPoint Ponto do hospedeiro onde os candidatos são enxertados.
+   * @param testImpact     Seleção dos testes que exercitam o ponto de inserção.
+   * @param testRunner     Executor dos testes do hospedeiro.
+   * @param testHistory    Histórico de falhas, usado para ordenar os testes.
+   * @param parameters     Parâmetros do algoritmo.
+   */
+   public GPAlgorithm(final OrganFile organ, final InsertionPoint insertionPoint, final TestImpactAnalyzer testImpact,
+                      final HostTestRunner testRunner, final TestHistory testHistory, final GPParameters parameters) {
+     this.organ = organ;
+     this.insertionPoint = insertionPoint;
+     this.testImpact = testImpact;
+     this.testRunner = testRunner;
+     this.testHistory = testHistory;
+     this.parameters = parameters;
+     this.random = new GPRandom(parameters.seed());
+   }
+
    /**
    * Executa o GP Algorithm.
-   * 
+   *
+   * @return A população final, dos melhores para os piores (no modo multiobjetivo, a frente não dominada primeiro).
+   * @throws IOException Caso o órgão não possa ser lido ou o hospedeiro não possa ser testado.
+   */
+   public List<GPIndividual> run() throws IOException {
+     if (!resume()) {
+       initialize();
+     }
+     while (generation < parameters.generations()) {
+       step();
+     }
+     testHistory.save();
+     return population;
+   }
+
+   /**
+   * Define o ponto de restauração da execução: o estado é gravado em segundo plano depois da
+   * população inicial e a cada {@code interval} gerações, e {@link #run()} retoma do último estado gravado.
+   *
+   * @param checkpoint O ponto de restauração, ou {@code null} para não gravar.
+   * @param interval   Número de gerações entre as gravações.
+   */
+   public void setCheckpoint(final GPCheckpoint checkpoint, final int interval) {
+     this.checkpoint = checkpoint;
+     this.checkpointInterval = Math.max(1, interval);
+   }
+
+   /**
+   * Restaura a população, a geração, o estado do gerador de números aleatórios, o cache de fitness e o
+   * histórico dos testes do ponto de restauração, se houver um gravado para o mesmo órgão (com o mesmo
+   * código-fonte) e ponto de inserção.
+   * Substitui {@link #initialize()}.
+   *
+   * @return {@code true} se a execução foi restaurada.
+   * @throws IOException Caso o ponto de restauração ou o órgão não possam ser lidos.
+   */
+   public boolean resume() throws IOException {
+     if (checkpoint == null) {
+       return false;
+     }
+     Optional<GPCheckpoint.State> saved = checkpoint.load();
+     if (saved.isEmpty()) {
+       return false;
+     }
+     GPCheckpoint.State state = saved.get();
+     if (!state.organ().equals(organId()) || !state.insertionPoint().equals(insertionPointId())) {
+       System.out.println("Ponto de restauração ignorado: pertence a " + state.organ() + " em " + state.insertionPoint());
+       return false;
+     }
+     if (!state.organHash().equals(organHash())) {
+       // Os genes são índices das instruções do órgão: com outro código-fonte a população não vale mais
+       System.out.println("Ponto de restauração ignorado: o código-fonte de " + state.organ() + " mudou");
+       return false;
+     }
+
+     loadOrgan();
+     population = new ArrayList<>(state.population());
+     generation = state.generation();
+     nextId = state.nextId();
+     random.setState(state.randomState());
+     fitnessCache.clear();
+     fitnessCache.putAll(state.fitnessCache());
+     baseline = state.baseline();
+     testHistory.restore(state.testHistory());
+     System.out.println("Execução retomada da geração " + generation + " (candidatos avaliados: "
+             + fitnessCache.size() + ")");
+     return true;
+   }
+
+   /**
+   * Lê o órgão e cria e avalia a população inicial. Deve ser chamado antes de {@link #step()}.
+   *
+   * @throws IOException Caso o órgão não possa ser lido ou o hospedeiro não possa ser testado.
+   */
+   public void initialize() throws IOException {
+     loadOrgan();
+
+     population = new ArrayList<>();
+     generation = 0;
+     while (population.size() < parameters.populationSize()) {
+       GPIndividual individual = randomIndividual(population.isEmpty());
+       evaluate(individual, candidateCode(individual));
+       population.add(individual);
+     }
+     population = survivors(population);
+     saveCheckpoint();
+   }
+
+   /**
+   * Executa uma geração: gera e avalia os descendentes e seleciona os sobreviventes.
+   *
+   * @return A população após a geração, dos melhores para os piores.
+   * @throws IOException Caso o hospedeiro não possa ser testado.
+   */
+   public List<GPIndividual> step() throws IOException {
+     List<GPIndividual> offspring = new ArrayList<>();
+     while (offspring.size() < parameters.populationSize()) {
+       GPIndividual child = breed(select(population), select(population));
+       evaluate(child, candidateCode(child));
+       offspring.add(child);
+     }
+
+     List<GPIndividual> candidates = new ArrayList<>(population);
+     candidates.addAll(offspring);
+     population = survivors(candidates);
+     generation++;
+     System.out.println("Geração " + generation + ": melhor fitness " + population.get(0).fitness
+             + " (candidatos avaliados: " + fitnessCache.size() + ")");
+     if (checkpoint != null && (generation % checkpointInterval == 0 || generation == parameters.generations())) {
+       saveCheckpoint();
+     }
+     return List.copyOf(population);
+   }
+
+   /**
+   * Retorna os melhores indivíduos da população, para migração a outra ilha.
+   *
+   * @param count Quantidade de indivíduos.
+   * @return Os melhores indivíduos, do melhor para o pior.
+   */
+   public List<GPIndividual> elites(final int count) {
+     return List.copyOf(population.subList(0, Math.min(count, population.size())));
+   }
+
+   /**
+   * Recebe indivíduos de outra ilha que adapta o mesmo órgão no mesmo ponto de inserção.
+   * Só são aceitos imigrantes cujas instruções existem no órgão e cujas associações de variáveis estão
+   * entre as candidatas deste ponto de inserção (o código enxertado nunca vem da rede). A avaliação trazida
+   * pelos imigrantes é descartada: cada um é avaliado aqui, passando pelo cache de fitness, e disputa a
+   * sobrevivência com a população atual, que mantém o seu tamanho.
+   *
+   * @param immigrants Os indivíduos recebidos.
+   * @throws IOException Caso o hospedeiro não possa ser testado.
+   */
+   public void immigrate(final List<GPIndividual> immigrants) throws IOException {
+     List<GPIndividual> candidates = new ArrayList<>(population);
+     for (GPIndividual immigrant : immigrants) {
+       List<Integer> genes = immigrant.geneList();
+       boolean valid = !genes.isEmpty() && genes.stream().allMatch(gene -> gene >= 0 && gene < statements.size())
+               && immigrant.mappingMap().entrySet().stream().allMatch(mapping ->
+                       mappingCandidates.getOrDefault(mapping.getKey(), List.of()).contains(mapping.getValue()));
+       if (!valid) {
+         System.out.println("Imigrante descartado: instruções ou variáveis fora do órgão e do ponto de inserção.");
+         continue;
+       }
+       GPIndividual individual = new GPIndividual(nextId++, genes, immigrant.mappingMap());
+       evaluate(individual, candidateCode(individual));
+       candidates.add(individual);
+     }
+     population = survivors(candidates);
+   }
+
+   /**
+   * Grava o histórico de falhas dos testes; usado ao final de uma execução conduzida por {@link #step()}.
+   *
+   * @throws IOException Caso o histórico não possa ser gravado.
+   */
+   public void saveHistory() throws IOException {
+     testHistory.save();
+   }
+
+   /**
+   * Retorna os parâmetros do algoritmo.
+   *
+   * @return Os parâmetros.
+   */
+   public GPParameters getParameters() {
+     return parameters;
+   }
+
+   /**
+   * Retorna o número de gerações já executadas.
+   *
+   * @return O número da geração atual.
+   */
+   public int getGeneration() {
+     return generation;
+   }
+
+   /**
+   * Retorna a população atual, dos melhores para os piores.
+   *
+   * @return A população.
+   */
+   public List<GPIndividual> getPopulation() {
+     return List.copyOf(population);
+   }
+
+   // Entrega uma cópia do estado ao ponto de restauração; a gravação é feita em outra thread.
+   // O histórico dos testes vai junto (é pequeno), pois a ordem dos testes afeta a fitness
+   private void saveCheckpoint() throws IOException {
+     if (checkpoint == null) {
+       return;
+     }
+     List<GPIndividual> snapshot = new ArrayList<>();
+     for (GPIndividual individual : population) {
+       GPIndividual copy = new GPIndividual(individual.id, individual.geneList(), individual.mappingMap());
+       copy.fitness = individual.fitness;
+       copy.objectives = individual.objectives == null ? null : individual.objectives.clone();
+       copy.rank = individual.rank;
+       copy.crowding = individual.crowding;
+       snapshot.add(copy);
+     }
+     checkpoint.save(new GPCheckpoint.State(organId(), organHash(), insertionPointId(), generation, nextId,
+             random.getState(), snapshot, new HashMap<>(fitnessCache), baseline, testHistory.snapshot()));
+   }
+
+   private String organId() {
+     return organ.getPackageName() + "." + organ.getClassName() + "#" + organ.getMethodName();
+   }
+
+   private String organHash() {
+     try {
+       return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+               .digest(organ.getSource().getBytes(StandardCharsets.UTF_8)));
+     } catch (NoSuchAlgorithmException e) {
+       throw new IllegalStateException("SHA-256 indisponível", e);
+     }
+   }
+
+   private String insertionPointId() {
+     return insertionPoint.filePath() + ":" + insertionPoint.line() + ":" + insertionPoint.column();
+   }
+
+   /**
+   * Avalia um candidato: o código é enxertado no ponto de inserção e apenas os testes
+   * que exercitam o ponto são executados, os que mais falham primeiro, parando na primeira falha.
+   * A fitness é a fração dos testes selecionados que passaram (0 se o hospedeiro não compilar).
+   * No modo multiobjetivo, os candidatos que passam em todos os testes também são medidos,
+   * e o tempo e a alocação entram nos objetivos como razões em relação ao hospedeiro original.
+   *
+   * @param individual    O indivíduo avaliado.
+   * @param candidateCode O código do candidato.
+   * @return A fitness do indivíduo.
+   * @throws IOException Caso o hospedeiro não possa ser alterado ou testado.
+   */
+   public double evaluate(final GPIndividual individual, final String candidateCode) throws IOException {
+     Evaluation evaluation = fitnessCache.get(candidateCode);
+     if (evaluation == null) {
+       evaluation = evaluateCandidate(candidateCode);
+       fitnessCache.put(candidateCode, evaluation);
+     }
+     individual.fitness = evaluation.fitness();
+     individual.objectives = evaluation.objectives().clone();
+     return individual.fitness;
+   }
+
+   private Evaluation evaluateCandidate(final String candidateCode) throws IOException {
+     List<String> tests = testHistory.order(testImpact.testsFor(insertionPoint));
+     if (tests.isEmpty()) {
+       // Nenhum teste alcança o ponto: não há como medir o candidato
+       return new Evaluation(0, new double[]{1, UNMEASURED, UNMEASURED});
+     }
+     if (parameters.measurePerformance() && baseline == null) {
+       baseline = measureBaseline(tests);
+     }
+
+     TestRunResult result;
+     BenchmarkResult benchmark = null;
+     HostPatch patch = HostPatch.insert(insertionPoint, candidateCode);
+     try {
+       result = testRunner.run(tests, true);
+       if (parameters.measurePerformance() && result.success() && result.passed().size() == tests.size()) {
+         benchmark = microBenchmark().measure(tests);
+       }
+     } finally {
+       patch.close();
+     }
+     testHistory.record(result);
+
+     double passRate = result.compiled() ? (double) result.passed().size() / tests.size() : 0;
+     double[] objectives = {1 - passRate, UNMEASURED, UNMEASURED};
+     if (benchmark != null) {
+       objectives[1] = benchmark.timeRatio(baseline);
+       objectives[2] = benchmark.allocationRatio(baseline);
+     }
+     return new Evaluation(passRate, objectives);
+   }
+
+   // O hospedeiro original é compilado e medido antes de qualquer candidato ser enxertado
+   private BenchmarkResult measureBaseline(final List<String> tests) throws IOException {
+     TestRunResult result = testRunner.run(tests, false);
+     BenchmarkResult measured = result.success() ? microBenchmark().measure(tests) : null;
+     if (measured == null) {
+       throw new IOException("Os testes selecionados falham no hospedeiro original; não há referência de desempenho.");
+     }
+     System.out.println("Referência do hospedeiro: " + measured.meanNanos() + " ns/op, "
+             + measured.meanBytes() + " bytes/op");
+     return measured;
+   }
+
+   private MicroBenchmark microBenchmark() throws IOException {
+     if (microBenchmark == null) {
+       microBenchmark = new MicroBenchmark(testRunner.testClasspath(), testRunner.getTimeout());
+     }
+     return microBenchmark;
+   }
+
+   // Instruções do método do órgão (exceto os returns) e variáveis do hospedeiro compatíveis com cada parâmetro
+   private void loadOrgan() throws IOException {
+     ParseResult<CompilationUnit> parseResult = new JavaParser().parse(organ.getSource());
+     Optional<MethodDeclaration> method = parseResult.getResult().flatMap(cu -> cu.findFirst(MethodDeclaration.class,
+             m -> m.getNameAsString().equals(organ.getMethodName()) && m.getBody().isPresent()));
+     if (method.isEmpty()) {
+       throw new IOException("Método do órgão não encontrado: " + organ.getClassName() + "." + organ.getMethodName());
+     }
+
+     statements = method.get().getBody().get().getStatements().stream()
+             .filter(statement -> !statement.isReturnStmt())
+             .toList();
+     if (statements.isEmpty()) {
+       throw new IOException("O órgão não possui instruções para enxertar: " + organ.getMethodName());
+     }
+
+     mappingCandidates = new LinkedHashMap<>();
+     for (Parameter parameter : method.get().getParameters()) {
+       String type = InsertionPointIndex.normalizeType(parameter.getTypeAsString());
+       List<String> hostVariables = insertionPoint.variablesInScope().entrySet().stream()
+               .filter(variable -> InsertionPointIndex.normalizeType(variable.getValue()).equals(type))
+               .map(Map.Entry::getKey)
+               .sorted()
+               .toList();
+       if (!hostVariables.isEmpty()) {
+         mappingCandidates.put(parameter.getNameAsString(), hostVariables);
+       }
+     }
+   }
+
+   // O primeiro indivíduo é o órgão inteiro; os demais mantêm cada instrução com 80% de chance
+   private GPIndividual randomIndividual(final boolean complete) {
+     List<Integer> genes = new ArrayList<>();
+     for (int i = 0; i < statements.size(); i++) {
+       if (complete || random.nextDouble() < 0.8) {
+         genes.add(i);
+       }
+     }
+     if (genes.isEmpty()) {
+       genes.add(random.nextInt(statements.size()));
+     }
+     Map<String, String> mappings = new LinkedHashMap<>();
+     mappingCandidates.forEach((variable, hostVariables) ->
+             mappings.put(variable, hostVariables.get(random.nextInt(hostVariables.size()))));
+     return new GPIndividual(nextId++, genes, mappings);
+   }
+
+   private GPIndividual breed(final GPIndividual first, final GPIndividual second) {
+     List<Integer> genes = new ArrayList<>(first.geneList());
+     Map<String, String> mappings = new LinkedHashMap<>(first.mappingMap());
+
+     if (random.nextDouble() < parameters.crossoverRate()) {
+       // Cruzamento de um ponto nos genes e uniforme na associação de variáveis
+       List<Integer> otherGenes = second.geneList();
+       int cut = random.nextInt(genes.size() + 1);
+       int otherCut = random.nextInt(otherGenes.size() + 1);
+       genes = new ArrayList<>(genes.subList(0, cut));
+       genes.addAll(otherGenes.subList(otherCut, otherGenes.size()));
+       second.mappingMap().forEach((variable, hostVariable) -> {
+         if (random.nextBoolean()) {
+           mappings.put(variable, hostVariable);
+         }
+       });
+     }
+     if (random.nextDouble() < parameters.mutationRate()) {
+       mutate(genes, mappings);
+     }
+     if (genes.isEmpty()) {
+       genes.add(random.nextInt(statements.size()));
+     }
+     return new GPIndividual(nextId++, genes, mappings);
+   }
+
+   // Remove, insere ou troca instruções, ou associa uma variável do órgão a outra variável do hospedeiro
+   private void mutate(final List<Integer> genes, final Map<String, String> mappings) {
+     int operator = random.nextInt(mappingCandidates.isEmpty() ? 3 : 4);
+     if (operator == 0 && genes.size() > 1) {
+       genes.remove(random.nextInt(genes.size()));
+     } else if (operator == 1 || (operator == 0 && genes.size() <= 1)) {
+       genes.add(random.nextInt(genes.size() + 1), random.nextInt(statements.size()));
+     } else if (operator == 2 && genes.size() > 1) {
+       int a = random.nextInt(genes.size());
+       int b = random.nextInt(genes.size());
+       genes.set(a, genes.set(b, genes.get(a)));
+     } else if (operator == 3) {
+       List<String> variables = new ArrayList<>(mappingCandidates.keySet());
+       String variable = variables.get(random.nextInt(variables.size()));
+       List<String> hostVariables = mappingCandidates.get(variable);
+       mappings.put(variable, hostVariables.get(random.nextInt(hostVariables.size())));
+     }
+   }
+
+   private GPIndividual select(final List<GPIndividual> population) {
+     if (parameters.measurePerformance()) {
+       return ParetoSelection.tournament(population, random);
+     }
+     GPIndividual first = population.get(random.nextInt(population.size()));
+     GPIndividual second = population.get(random.nextInt(population.size()));
+     return first.fitness >= second.fitness ? first : second;
+   }
+
+   private List<GPIndividual> survivors(final List<GPIndividual> candidates) {
+     if (parameters.measurePerformance()) {
+       List<GPIndividual> selected = new ArrayList<>(ParetoSelection.select(candidates, parameters.populationSize()));
+       selected.sort(Comparator.comparingInt((GPIndividual individual) -> individual.rank)
+               .thenComparing(Comparator.comparingDouble((GPIndividual individual) -> individual.fitness).reversed()));
+       return selected;
+     }
+     List<GPIndividual> sorted = new ArrayList<>(candidates);
+     sorted.sort(Comparator.comparingDouble((GPIndividual individual) -> individual.fitness).reversed());
+     return new ArrayList<>(sorted.subList(0, parameters.populationSize()));
+   }
+
+   /**
+   * Monta o código do candidato: as instruções escolhidas, com as variáveis do órgão renomeadas
+   * para as do hospedeiro, dentro de um bloco para não vazar declarações para o hospedeiro.
+   *
+   * @param individual O indivíduo.
+   * @return O código a ser enxertado.
+   */
+   String candidateCode(final GPIndividual individual) {
+     Map<String, String> renames = individual.mappingMap();
+     StringBuilder code = new StringBuilder("{ ");
+     for (int gene : individual.geneList()) {
+       Statement statement = statements.get(gene).clone();
+       statement.findAll(NameExpr.class).forEach(name -> {
+         String hostVariable = renames.get(name.getNameAsString());
+         if (hostVariable != null) {
+           name.setName(hostVariable);
+         }
+       });
+       code.append(statement).append(' ');
+     }
+     return code.append('}').toString();
+   }
+
+   /**
+   * Resultado da avaliação de um candidato, guardado no cache de fitness.
+   *
+   * @param fitness    A taxa de aprovação nos testes selecionados.
+   * @param objectives Os objetivos (a minimizar).
    */
-   public void run(){
-     // TODO: Adiciona lógica do GP Algorithm 
+   record Evaluation(double fitness, double[] objectives) {
    }
 
 }
@@ -0,0 +1,293 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Ponto de restauração de uma execução do {@link GPAlgorithm}, gravado em formato binário compactado (GZIP).
+ * A gravação acontece em uma thread própria: {@link #save(State)} apenas entrega o estado,
+ * e se uma gravação ainda estiver pendente somente o estado mais recente é gravado.
+ * O arquivo é escrito em um temporário e movido sobre o anterior, de modo que uma interrupção
+ * no meio da gravação mantém o ponto de restauração anterior.
+ *
+ * <pre>
+ * int    magic ("GPCK")
+ * short  versão
+ * string órgão (pacote.Classe#metodo), string hash SHA-256 do código-fonte do órgão,
+ * string ponto de inserção (arquivo:linha:coluna)
+ * int    geração, int próximo ID, long estado do gerador de números aleatórios
+ * int    quantidade de indivíduos; por indivíduo:
+ *        int ID, double fitness, int frente, double aglomeração, objetivos,
+ *        int quantidade de genes, int por gene, int quantidade de associações, (string, string) por associação
+ * int    entradas do cache de fitness; por entrada: string código, double fitness, objetivos
+ * objetivos da referência: tempos por operação, alocações por operação (quantidade -1 sem referência)
+ * string histórico dos testes (no formato do arquivo do {@link TestHistory})
+ * </pre>
+ * O histórico dos testes vai no ponto de restauração, e não no seu próprio arquivo, para que a gravação
+ * não bloqueie a evolução e para que população e ordem dos testes sejam restauradas juntas.
+ * Pontos de restauração de versões anteriores do formato são ignorados.
+ * Objetivos são gravados como {@code int} quantidade seguida dos {@code double}s ({@code -1} para nenhum);
+ * strings como {@code int} comprimento seguido dos bytes UTF-8.
+ *
+ * @author Giovane Neves
+ */
+public class GPCheckpoint implements AutoCloseable {
+
+    private static final int MAGIC = 0x4750434B;
+    private static final short VERSION = 2;
+
+    private final Path file;
+    private final AtomicReference<State> pending = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gp-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Construtor da classe GPCheckpoint.
+     *
+     * @param file Arquivo do ponto de restauração.
+     */
+    public GPCheckpoint(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Estado de uma execução no fim de uma geração.
+     *
+     * @param organ          O órgão adaptado (pacote.Classe#metodo).
+     * @param organHash      O hash SHA-256 do código-fonte do órgão.
+     * @param insertionPoint O ponto de inserção (arquivo:linha:coluna).
+     * @param generation     O número de gerações concluídas.
+     * @param nextId         O próximo ID de indivíduo.
+     * @param randomState    O estado do gerador de números aleatórios.
+     * @param population     A população, dos melhores para os piores.
+     * @param fitnessCache   O cache de fitness (código do candidato -> avaliação).
+     * @param baseline       A medição de referência do hospedeiro, ou {@code null} se ainda não medida.
+     * @param testHistory    O histórico dos testes (ver {@link TestHistory#snapshot()}).
+     */
+    record State(String organ, String organHash, String insertionPoint, int generation, int nextId, long randomState,
+                 List<GPIndividual> population, Map<String, GPAlgorithm.Evaluation> fitnessCache,
+                 BenchmarkResult baseline, String testHistory) {
+    }
+
+    /**
+     * Agenda a gravação do estado, sem bloquear quem chama.
+     *
+     * @param state O estado; não deve ser alterado depois de entregue.
+     */
+    void save(final State state) {
+        if (pending.getAndSet(state) == null) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    /**
+     * Lê o ponto de restauração, se existir.
+     *
+     * @return O estado gravado, ou vazio se não houver um na versão atual do formato.
+     * @throws IOException Caso o arquivo exista e não seja um ponto de restauração válido.
+     */
+    Optional<State> load() throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Ponto de restauração inválido: " + file);
+            }
+            short version = in.readShort();
+            if (version < VERSION) {
+                System.out.println("Ponto de restauração ignorado: gravado na versão " + version + " do formato (" + file + ")");
+                return Optional.empty();
+            }
+            if (version != VERSION) {
+                throw new IOException("Versão de ponto de restauração não suportada em " + file + ": " + version);
+            }
+            String organ = readString(in);
+            String organHash = readString(in);
+            String insertionPoint = readString(in);
+            int generation = in.readInt();
+            int nextId = in.readInt();
+            long randomState = in.readLong();
+
+            int populationSize = in.readInt();
+            List<GPIndividual> population = new ArrayList<>(populationSize);
+            for (int i = 0; i < populationSize; i++) {
+                int id = in.readInt();
+                double fitness = in.readDouble();
+                int rank = in.readInt();
+                double crowding = in.readDouble();
+                double[] objectives = readDoubles(in);
+                List<Integer> genes = new ArrayList<>();
+                for (int j = 0, count = in.readInt(); j < count; j++) {
+                    genes.add(in.readInt());
+                }
+                Map<String, String> mappings = new LinkedHashMap<>();
+                for (int j = 0, count = in.readInt(); j < count; j++) {
+                    mappings.put(readString(in), readString(in));
+                }
+                GPIndividual individual = new GPIndividual(id, genes, mappings);
+                individual.fitness = fitness;
+                individual.rank = rank;
+                individual.crowding = crowding;
+                individual.objectives = objectives;
+                population.add(individual);
+            }
+
+            int cacheSize = in.readInt();
+            Map<String, GPAlgorithm.Evaluation> fitnessCache = new HashMap<>(cacheSize * 2);
+            for (int i = 0; i < cacheSize; i++) {
+                String code = readString(in);
+                fitnessCache.put(code, new GPAlgorithm.Evaluation(in.readDouble(), readDoubles(in)));
+            }
+
+            double[] baselineNanos = readDoubles(in);
+            double[] baselineBytes = readDoubles(in);
+            BenchmarkResult baseline = baselineNanos == null ? null : new BenchmarkResult(baselineNanos, baselineBytes);
+            String testHistory = readString(in);
+            return Optional.of(new State(organ, organHash, insertionPoint, generation, nextId, randomState, population,
+                    fitnessCache, baseline, testHistory));
+        }
+    }
+
+    /**
+     * Aguarda a gravação pendente e encerra a thread de gravação.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Tempo limite excedido na gravação do ponto de restauração: " + file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePending() {
+        State state = pending.getAndSet(null);
+        if (state == null) {
+            return;
+        }
+        Path temporary = null;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+                write(out, state);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o ponto de restauração " + file + ": " + e.getMessage());
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // O temporário é sobrescrito na próxima gravação com outro nome; não há o que fazer
+            }
+        }
+    }
+
+    private static void write(final DataOutputStream out, final State state) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        writeString(out, state.organ());
+        writeString(out, state.organHash());
+        writeString(out, state.insertionPoint());
+        out.writeInt(state.generation());
+        out.writeInt(state.nextId());
+        out.writeLong(state.randomState());
+
+        out.writeInt(state.population().size());
+        for (GPIndividual individual : state.population()) {
+            out.writeInt(individual.id);
+            out.writeDouble(individual.fitness);
+            out.writeInt(individual.rank);
+            out.writeDouble(individual.crowding);
+            writeDoubles(out, individual.objectives);
+            List<Integer> genes = individual.geneList();
+            out.writeInt(genes.size());
+            for (int gene : genes) {
+                out.writeInt(gene);
+            }
+            Map<String, String> mappings = individual.mappingMap();
+            out.writeInt(mappings.size());
+            for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+                writeString(out, mapping.getKey());
+                writeString(out, mapping.getValue());
+            }
+        }
+
+        out.writeInt(state.fitnessCache().size());
+        for (Map.Entry<String, GPAlgorithm.Evaluation> entry : state.fitnessCache().entrySet()) {
+            writeString(out, entry.getKey());
+            out.writeDouble(entry.getValue().fitness());
+            writeDoubles(out, entry.getValue().objectives());
+        }
+
+        writeDoubles(out, state.baseline() == null ? null : state.baseline().nanosPerOperation());
+        writeDoubles(out, state.baseline() == null ? null : state.baseline().bytesPerOperation());
+        writeString(out, state.testHistory());
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDoubles(final DataOutputStream out, final double[] values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(final DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
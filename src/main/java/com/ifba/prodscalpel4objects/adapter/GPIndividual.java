@@ -1,7 +1,14 @@
 package com.ifba.prodscalpel4objects.adapter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Classe que representa um individuo.
+ * O genoma é a lista das instruções do órgão que compõem o candidato ({@link ListOfInt}, pelos índices
+ * das instruções) e a associação das variáveis do órgão às variáveis do hospedeiro ({@link Mapping}).
  * @author Giovane Neves
  */
 public class GPIndividual {
@@ -16,4 +23,173 @@ public class GPIndividual {
      */
     double fitness;
 
+    /**
+     * As instruções do órgão usadas pelo individuo, em ordem
+     */
+    ListOfInt genes;
+
+    /**
+     * A associação das variáveis do órgão às variáveis do hospedeiro
+     */
+    Mapping mappings;
+
+    /**
+     * Os objetivos do individuo no modo multiobjetivo, todos a minimizar:
+     * taxa de falha dos testes, razão de tempo e razão de alocação em relação ao hospedeiro original
+     */
+    double[] objectives;
+
+    /**
+     * A frente de Pareto do individuo (0 é a frente não dominada)
+     */
+    int rank;
+
+    /**
+     * A distância de aglomeração do individuo na sua frente
+     */
+    double crowding;
+
+    /**
+     * Construtor da classe GPIndividual.
+     *
+     * @param id       O ID do individuo.
+     * @param genes    Os índices das instruções do órgão.
+     * @param mappings A associação de variáveis (nome no órgão -> nome no hospedeiro).
+     */
+    public GPIndividual(final int id, final List<Integer> genes, final Map<String, String> mappings) {
+        this.id = id;
+        this.genes = toListOfInt(genes);
+        this.mappings = toMapping(mappings);
+    }
+
+    /**
+     * Retorna os genes como lista.
+     *
+     * @return Os índices das instruções do órgão.
+     */
+    public List<Integer> geneList() {
+        List<Integer> values = new ArrayList<>();
+        for (ListOfInt current = genes; current != null; current = current.getNext()) {
+            values.add(current.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Retorna a associação de variáveis como mapa.
+     *
+     * @return Nome da variável no órgão -> nome no hospedeiro.
+     */
+    public Map<String, String> mappingMap() {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Mapping current = mappings; current != null; current = current.getNext()) {
+            values.put(current.getSource(), current.getDestination());
+        }
+        return values;
+    }
+
+    /**
+     * Codifica o individuo em uma linha de texto, para a troca entre ilhas:
+     * {@code genes<TAB>associações<TAB>fitness<TAB>objetivos}, com os genes separados por vírgula,
+     * as associações no formato {@code origem=destino} separadas por vírgula e os objetivos por vírgula.
+     *
+     * @return A linha codificada.
+     */
+    String encode() {
+        StringBuilder line = new StringBuilder();
+        geneList().forEach(gene -> line.append(line.isEmpty() ? "" : ",").append(gene));
+        line.append('\t');
+        StringBuilder mappingText = new StringBuilder();
+        mappingMap().forEach((source, destination) ->
+                mappingText.append(mappingText.isEmpty() ? "" : ",").append(source).append('=').append(destination));
+        line.append(mappingText).append('\t').append(fitness).append('\t');
+        if (objectives != null) {
+            for (int i = 0; i < objectives.length; i++) {
+                line.append(i == 0 ? "" : ",").append(objectives[i]);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Decodifica um individuo gerado por {@link #encode()}.
+     *
+     * @param id   O ID do individuo na ilha que o recebe.
+     * @param line A linha codificada.
+     * @return O individuo, com a fitness e os objetivos da ilha de origem.
+     * @throws IllegalArgumentException Caso a linha não esteja no formato esperado.
+     */
+    static GPIndividual decode(final int id, final String line) {
+        String[] columns = line.split("\t", -1);
+        if (columns.length != 4) {
+            throw new IllegalArgumentException("Individuo mal formado: " + line);
+        }
+        List<Integer> genes = new ArrayList<>();
+        for (String gene : columns[0].split(",")) {
+            if (!gene.isEmpty()) {
+                genes.add(Integer.parseInt(gene));
+            }
+        }
+        Map<String, String> mappings = new LinkedHashMap<>();
+        for (String mapping : columns[1].split(",")) {
+            int equals = mapping.indexOf('=');
+            if (equals != -1) {
+                mappings.put(mapping.substring(0, equals), mapping.substring(equals + 1));
+            }
+        }
+        GPIndividual individual = new GPIndividual(id, genes, mappings);
+        individual.fitness = Double.parseDouble(columns[2]);
+        if (!columns[3].isEmpty()) {
+            String[] values = columns[3].split(",");
+            individual.objectives = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                individual.objectives[i] = Double.parseDouble(values[i]);
+            }
+        }
+        return individual;
+    }
+
+    // Getters
+
+    public int getId() {
+        return id;
+    }
+
+    public double getFitness() {
+        return fitness;
+    }
+
+    public double[] getObjectives() {
+        return objectives;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    private static ListOfInt toListOfInt(final List<Integer> values) {
+        ListOfInt head = null;
+        for (int i = values.size() - 1; i >= 0; i--) {
+            ListOfInt node = new ListOfInt(values.get(i));
+            node.setNext(head);
+            head = node;
+        }
+        return head;
+    }
+
+    private static Mapping toMapping(final Map<String, String> values) {
+        Mapping head = null;
+        Mapping tail = null;
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            Mapping node = new Mapping(entry.getKey(), entry.getValue());
+            if (head == null) {
+                head = node;
+            } else {
+                tail.setNext(node);
+            }
+            tail = node;
+        }
+        return head;
+    }
+
 }
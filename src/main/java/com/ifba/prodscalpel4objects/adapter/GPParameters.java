@@ -0,0 +1,26 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+/**
+ * Parâmetros do GP Algorithm.
+ *
+ * @param populationSize     Tamanho da população.
+ * @param generations        Número de gerações.
+ * @param crossoverRate      Probabilidade de cruzamento.
+ * @param mutationRate       Probabilidade de mutação.
+ * @param seed               Semente do gerador de números aleatórios.
+ * @param measurePerformance {@code true} para o modo multiobjetivo (correção, tempo e alocação, com NSGA-II);
+ *                           {@code false} para usar apenas a taxa de aprovação nos testes.
+ */
+public record GPParameters(int populationSize, int generations, double crossoverRate, double mutationRate,
+                           long seed, boolean measurePerformance) {
+
+    /**
+     * Parâmetros padrão: 20 indivíduos, 10 gerações, cruzamento 0,5, mutação 0,5, apenas correção.
+     *
+     * @param seed Semente do gerador de números aleatórios.
+     * @return Os parâmetros.
+     */
+    public static GPParameters defaults(long seed) {
+        return new GPParameters(20, 10, 0.5, 0.5, seed, false);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.util.Random;
+
+/**
+ * Gerador de números aleatórios do GP Algorithm com estado exposto, para que uma execução
+ * retomada de um {@link GPCheckpoint} continue exatamente a mesma sequência.
+ * Usa o mesmo gerador congruencial linear de {@link Random}, portanto a mesma semente
+ * produz a mesma sequência que {@code new Random(seed)}.
+ *
+ * @author Giovane Neves
+ */
+class GPRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Sem inicializador: o valor é definido por setSeed, chamado pelo construtor de Random
+    private long state;
+
+    /**
+     * Construtor da classe GPRandom.
+     *
+     * @param seed A semente.
+     */
+    GPRandom(final long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(final long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(final int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Retorna o estado interno do gerador.
+     *
+     * @return O estado (48 bits).
+     */
+    long getState() {
+        return state;
+    }
+
+    /**
+     * Restaura o estado interno do gerador.
+     *
+     * @param state Um estado retornado por {@link #getState()}.
+     */
+    void setState(final long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import com.ifba.prodscalpel4objects.finder.InsertionPoint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Classe que insere um trecho de código no hospedeiro, em um ponto de inserção,
+ * e restaura o arquivo original ao ser fechada. Enquanto o trecho está aplicado,
+ * uma cópia do original fica em {@code Arquivo.java.prodscalpel.bak}.
+ *
+ * @author Giovane Neves
+ */
+class HostPatch implements AutoCloseable {
+
+    private static final String BACKUP_SUFFIX = ".prodscalpel.bak";
+
+    private final Path file;
+    private final Path backup;
+    private final byte[] original;
+
+    private HostPatch(final Path file, final Path backup, final byte[] original) {
+        this.file = file;
+        this.backup = backup;
+        this.original = original;
+    }
+
+    /**
+     * Insere o código imediatamente antes da posição do ponto de inserção.
+     *
+     * @param point O ponto de inserção no hospedeiro.
+     * @param code  O código a ser inserido (uma ou mais instruções).
+     * @return O trecho aplicado, que deve ser fechado para restaurar o arquivo.
+     * @throws IOException Caso o arquivo não possa ser lido ou escrito.
+     */
+    static HostPatch insert(final InsertionPoint point, final String code) throws IOException {
+        Path file = Paths.get(point.filePath());
+        restoreLeftover(file);
+        byte[] original = Files.readAllBytes(file);
+        String source = new String(original, StandardCharsets.UTF_8);
+        int offset = offsetOf(source, point.line(), point.column());
+
+        Path backup = file.resolveSibling(file.getFileName() + BACKUP_SUFFIX);
+        Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+        Files.writeString(file, source.substring(0, offset) + code + " " + source.substring(offset));
+        return new HostPatch(file, backup, original);
+    }
+
+    /**
+     * Restaura o arquivo original do hospedeiro.
+     *
+     * @throws IOException Caso o arquivo não possa ser escrito.
+     */
+    @Override
+    public void close() throws IOException {
+        Files.write(file, original);
+        Files.deleteIfExists(backup);
+    }
+
+    /**
+     * Restaura o arquivo a partir da cópia deixada por uma execução interrompida antes de fechar o trecho,
+     * para que o código inserido não fique no hospedeiro nem seja tomado como o original.
+     *
+     * @param file O arquivo do hospedeiro.
+     * @throws IOException Caso o arquivo não possa ser restaurado.
+     */
+    static void restoreLeftover(final Path file) throws IOException {
+        Path backup = file.resolveSibling(file.getFileName() + BACKUP_SUFFIX);
+        if (Files.exists(backup)) {
+            System.out.println("Restaurando " + file + " a partir de uma cópia deixada por uma execução interrompida.");
+            Files.move(backup, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Linhas e colunas começam em 1; tabulações contam como um caractere, como no JavaParser
+    private static int offsetOf(final String source, final int line, final int column) throws IOException {
+        int offset = 0;
+        for (int current = 1; current < line; current++) {
+            offset = source.indexOf('\n', offset) + 1;
+            if (offset == 0) {
+                throw new IOException("Linha fora do arquivo: " + line);
+            }
+        }
+        return Math.min(source.length(), offset + column - 1);
+    }
+}
@@ -0,0 +1,278 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Classe responsável por executar os testes do hospedeiro (projeto Maven) com o Surefire
+ * e ler o resultado dos relatórios em {@code target/surefire-reports}.
+ * Os testes são identificados por {@code pacote.Classe#metodo}.
+ *
+ * @author Giovane Neves
+ */
+public class HostTestRunner {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(10);
+    private static final String REPORTS_DIRECTORY = "target/surefire-reports";
+    private static final String LOG_FILE = "target/prodscalpel-tests.log";
+    private static final int TIMED_OUT = -1;
+    private static final String CLASSPATH_FILE = "target/prodscalpel-classpath.txt";
+
+    private final Path hostProject;
+    private final Duration timeout;
+    private List<Path> testClasspath;
+
+    /**
+     * Construtor da classe HostTestRunner.
+     *
+     * @param hostProjectPath Caminho do diretório do hospedeiro (onde está o pom.xml).
+     */
+    public HostTestRunner(final String hostProjectPath) {
+        this(hostProjectPath, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Construtor da classe HostTestRunner com um tempo limite por execução do Maven.
+     *
+     * @param hostProjectPath Caminho do diretório do hospedeiro (onde está o pom.xml).
+     * @param timeout         Tempo máximo de cada execução do Maven.
+     */
+    public HostTestRunner(final String hostProjectPath, final Duration timeout) {
+        this.hostProject = Paths.get(hostProjectPath);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Executa toda a suíte de testes do hospedeiro, sem parar nas falhas.
+     *
+     * @return O resultado da execução.
+     * @throws IOException Caso o Maven não possa ser executado.
+     */
+    public TestRunResult runAll() throws IOException {
+        return invoke(List.of(), List.of());
+    }
+
+    /**
+     * Executa apenas os testes informados, em uma única execução do Maven.
+     * Com {@code failFast}, o Surefire interrompe a execução na primeira falha
+     * ({@code surefire.skipAfterFailureCount=1}) e os testes não executados não aparecem no resultado.
+     *
+     * @param tests    Os testes a serem executados.
+     * @param failFast {@code true} para parar na primeira falha.
+     * @return O resultado da execução.
+     * @throws IOException Caso o Maven não possa ser executado.
+     */
+    public TestRunResult run(final List<String> tests, final boolean failFast) throws IOException {
+        return invoke(tests, failFast ? List.of("-Dsurefire.skipAfterFailureCount=1") : List.of());
+    }
+
+    /**
+     * Retorna o tempo máximo de cada execução do Maven.
+     *
+     * @return O tempo limite.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Retorna o classpath de teste do hospedeiro: as classes compiladas, as classes de teste
+     * e as dependências (inclusive as de teste), resolvidas uma única vez pelo Maven.
+     *
+     * @return As entradas do classpath.
+     * @throws IOException Caso o Maven não possa ser executado.
+     */
+    public synchronized List<Path> testClasspath() throws IOException {
+        if (testClasspath == null) {
+            Path classpathFile = hostProject.resolve(CLASSPATH_FILE).toAbsolutePath();
+            Files.createDirectories(classpathFile.getParent());
+            int exitCode = execute(List.of(mavenExecutable(), "-B", "-q", "dependency:build-classpath",
+                    "-Dmdep.includeScope=test", "-Dmdep.outputFile=" + classpathFile));
+            if (exitCode != 0 || !Files.exists(classpathFile)) {
+                throw new IOException("Não foi possível resolver o classpath do hospedeiro (ver " + LOG_FILE + ").");
+            }
+
+            List<Path> entries = new ArrayList<>();
+            entries.add(hostProject.resolve("target/test-classes").toAbsolutePath());
+            entries.add(hostProject.resolve("target/classes").toAbsolutePath());
+            for (String entry : Files.readString(classpathFile).strip().split(File.pathSeparator)) {
+                if (!entry.isBlank()) {
+                    entries.add(Paths.get(entry));
+                }
+            }
+            testClasspath = List.copyOf(entries);
+        }
+        return testClasspath;
+    }
+
+    private TestRunResult invoke(final List<String> tests, final List<String> extraArguments) throws IOException {
+        Path reports = hostProject.resolve(REPORTS_DIRECTORY);
+        clearReports(reports);
+
+        List<String> command = new ArrayList<>(List.of(mavenExecutable(), "-B", "-q", "test",
+                "-Dmaven.test.failure.ignore=true", "-DfailIfNoTests=false", "-Dsurefire.failIfNoSpecifiedTests=false"));
+        if (!tests.isEmpty()) {
+            command.add("-Dtest=" + testFilter(tests));
+        }
+        command.addAll(extraArguments);
+
+        int exitCode = execute(command);
+        if (exitCode == TIMED_OUT) {
+            System.out.println("Tempo limite excedido na execução dos testes do hospedeiro.");
+            return new TestRunResult(true, List.of(), List.copyOf(tests), Map.of());
+        }
+
+        TestRunResult result = readReports(reports);
+        // Com as falhas de teste ignoradas, um código de saída diferente de zero indica erro de compilação
+        if (exitCode != 0 && result.passed().isEmpty() && result.failed().isEmpty()) {
+            return new TestRunResult(false, List.of(), List.copyOf(tests), Map.of());
+        }
+        return result;
+    }
+
+    // Executa o Maven no hospedeiro, com a saída no arquivo de log; retorna o código de saída
+    private int execute(final List<String> command) throws IOException {
+        Path log = hostProject.resolve(LOG_FILE);
+        Files.createDirectories(log.getParent());
+        Process process = new ProcessBuilder(command)
+                .directory(hostProject.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                destroyTree(process);
+                return TIMED_OUT;
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            destroyTree(process);
+            Thread.currentThread().interrupt();
+            throw new IOException("Execução do Maven interrompida.", e);
+        }
+    }
+
+    /**
+     * Encerra o processo e os que ele criou (ex.: as JVMs bifurcadas pelo Surefire),
+     * que continuariam executando depois do Maven.
+     *
+     * @param process O processo a ser encerrado.
+     */
+    static void destroyTree(final Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    // Formato do Surefire: Classe#metodo1+metodo2,OutraClasse#metodo
+    private static String testFilter(final List<String> tests) {
+        Map<String, List<String>> byClass = new LinkedHashMap<>();
+        for (String test : tests) {
+            int hash = test.indexOf('#');
+            String className = hash == -1 ? test : test.substring(0, hash);
+            List<String> methods = byClass.computeIfAbsent(className, key -> new ArrayList<>());
+            if (hash != -1) {
+                methods.add(test.substring(hash + 1));
+            }
+        }
+        return byClass.entrySet().stream()
+                .map(entry -> entry.getValue().isEmpty()
+                        ? entry.getKey()
+                        : entry.getKey() + "#" + String.join("+", entry.getValue()))
+                .collect(Collectors.joining(","));
+    }
+
+    private static TestRunResult readReports(final Path reports) throws IOException {
+        List<String> passed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        Map<String, Double> durations = new LinkedHashMap<>();
+        if (!Files.isDirectory(reports)) {
+            return new TestRunResult(true, passed, failed, durations);
+        }
+
+        for (Path report : reportFiles(reports)) {
+            Document document;
+            try {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+                document = factory.newDocumentBuilder().parse(report.toFile());
+            } catch (Exception e) {
+                System.err.println("Relatório de testes ignorado: " + report + " (" + e.getMessage() + ")");
+                continue;
+            }
+
+            NodeList testCases = document.getElementsByTagName("testcase");
+            for (int i = 0; i < testCases.getLength(); i++) {
+                Element testCase = (Element) testCases.item(i);
+                if (testCase.getElementsByTagName("skipped").getLength() > 0) {
+                    continue;
+                }
+                String test = testId(testCase.getAttribute("classname"), testCase.getAttribute("name"));
+                boolean failure = testCase.getElementsByTagName("failure").getLength() > 0
+                        || testCase.getElementsByTagName("error").getLength() > 0;
+                (failure ? failed : passed).add(test);
+                try {
+                    durations.merge(test, Double.parseDouble(testCase.getAttribute("time").replace(",", "")), Double::sum);
+                } catch (NumberFormatException e) {
+                    durations.putIfAbsent(test, 0.0);
+                }
+            }
+        }
+        return new TestRunResult(true, passed, failed, durations);
+    }
+
+    /**
+     * Monta o identificador do teste, removendo os sufixos de testes parametrizados
+     * ({@code metodo[1]}, {@code metodo()}).
+     *
+     * @param className  O nome completo da classe de teste.
+     * @param methodName O nome do teste no relatório.
+     * @return O identificador {@code pacote.Classe#metodo}.
+     */
+    static String testId(final String className, final String methodName) {
+        String name = methodName;
+        int suffix = name.indexOf('[');
+        if (suffix != -1) {
+            name = name.substring(0, suffix);
+        }
+        suffix = name.indexOf('(');
+        if (suffix != -1) {
+            name = name.substring(0, suffix);
+        }
+        return className + "#" + name.strip();
+    }
+
+    private static List<Path> reportFiles(final Path reports) throws IOException {
+        try (Stream<Path> files = Files.list(reports)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("TEST-")
+                    && file.getFileName().toString().endsWith(".xml")).toList();
+        }
+    }
+
+    private static void clearReports(final Path reports) throws IOException {
+        if (Files.isDirectory(reports)) {
+            for (Path report : reportFiles(reports)) {
+                Files.deleteIfExists(report);
+            }
+        }
+    }
+
+    private static String mavenExecutable() {
+        return System.getProperty("os.name").toLowerCase().startsWith("windows") ? "mvn.cmd" : "mvn";
+    }
+}
@@ -0,0 +1,301 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Coordenador do GP Algorithm em modelo de ilhas: cada ilha é um processo {@link IslandWorker}
+ * que evolui a sua própria população, no mesmo computador ou em outros, conectado ao coordenador por TCP.
+ * O coordenador repassa os emigrantes de cada ilha para a ilha seguinte (topologia em anel),
+ * e acompanha a melhor fitness de cada ilha. Opcionalmente, encerra a execução quando uma fitness alvo
+ * é alcançada; sem alvo (o padrão), cada ilha evolui até o fim das suas gerações, o que é necessário no modo
+ * multiobjetivo ({@link GPParameters#measurePerformance()}), em que a busca continua depois de passar nos testes.
+ * Não há autenticação: por padrão o coordenador só escuta no endereço local, e escutar em outro endereço
+ * deve ser uma escolha explícita, em rede confiável. Cada número de ilha aceita uma conexão por vez, e a
+ * execução termina quando todas as ilhas enviaram {@code DONE}; uma ilha que cai antes disso pode se
+ * reconectar (retomando do seu ponto de restauração) dentro do prazo de reconexão, depois do qual é considerada
+ * perdida e deixa de ser aguardada (o mesmo vale para uma ilha que nunca se conecta).
+ * <p>
+ * Protocolo (linhas de texto UTF-8):
+ * <ul>
+ *     <li>ilha → coordenador: {@code HELLO <ilha>}, {@code REPORT <geração> <melhor fitness>},
+ *     {@code EMIGRANTS <n>} seguido de n indivíduos (ver {@link GPIndividual#encode()}) e {@code DONE};</li>
+ *     <li>coordenador → ilha: {@code EMIGRANTS <n>} seguido de n indivíduos e {@code STOP}.</li>
+ * </ul>
+ *
+ * @author Giovane Neves
+ */
+public class IslandCoordinator {
+
+    static final String HELLO = "HELLO";
+    static final String REPORT = "REPORT";
+    static final String EMIGRANTS = "EMIGRANTS";
+    static final String DONE = "DONE";
+    static final String STOP = "STOP";
+
+    private static final Duration DEFAULT_RECONNECT_GRACE = Duration.ofMinutes(10);
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final int islands;
+    private final OptionalDouble targetFitness;
+    private final Duration reconnectGrace;
+    private final Map<Integer, Connection> connections = new ConcurrentHashMap<>();
+    // Número de conexões aceitas de cada ilha, para saber se ela se reconectou durante o prazo
+    private final Map<Integer, Integer> connectionCounts = new ConcurrentHashMap<>();
+    private final Set<Integer> completed = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Double> bestFitness = new ConcurrentHashMap<>();
+    private final CountDownLatch finished;
+    private volatile boolean stopped;
+    private ServerSocket serverSocket;
+
+    /**
+     * Construtor da classe IslandCoordinator, escutando apenas no endereço local, sem fitness alvo
+     * e com o prazo de reconexão padrão.
+     *
+     * @param port    Porta TCP do coordenador (0 para uma porta livre).
+     * @param islands Número de ilhas.
+     */
+    public IslandCoordinator(final int port, final int islands) {
+        this(InetAddress.getLoopbackAddress(), port, islands, OptionalDouble.empty(), DEFAULT_RECONNECT_GRACE);
+    }
+
+    /**
+     * Construtor da classe IslandCoordinator.
+     *
+     * @param bindAddress    Endereço em que o coordenador escuta (o local, salvo com ilhas em outros computadores).
+     * @param port           Porta TCP do coordenador (0 para uma porta livre).
+     * @param islands        Número de ilhas.
+     * @param targetFitness  Fitness que encerra a execução de todas as ilhas quando alcançada, ou vazio para
+     *                       deixar cada ilha terminar as suas gerações (obrigatório no modo multiobjetivo).
+     * @param reconnectGrace Tempo que uma ilha desconectada (ou ainda não conectada) tem para se conectar
+     *                       antes de ser considerada perdida.
+     */
+    public IslandCoordinator(final InetAddress bindAddress, final int port, final int islands,
+                             final OptionalDouble targetFitness, final Duration reconnectGrace) {
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.islands = islands;
+        this.targetFitness = targetFitness;
+        this.reconnectGrace = reconnectGrace;
+        this.finished = new CountDownLatch(islands);
+    }
+
+    /**
+     * Abre a porta e passa a aceitar as conexões das ilhas em segundo plano, até o fim de todas as ilhas.
+     *
+     * @return A porta em que o coordenador está escutando.
+     * @throws IOException Caso a porta não possa ser aberta.
+     */
+    public synchronized int start() throws IOException {
+        serverSocket = new ServerSocket(port, 0, bindAddress);
+        Thread acceptor = new Thread(() -> {
+            // Ilhas que caem podem se reconectar: a porta só fecha em awaitCompletion
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    Thread.ofVirtual().start(() -> handle(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("Erro ao aceitar conexão de ilha: " + e.getMessage());
+                    }
+                    return;
+                }
+            }
+        }, "island-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        for (int island = 0; island < islands; island++) {
+            awaitReconnection(island, 0);
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Aguarda o fim de todas as ilhas (concluídas ou perdidas por não se reconectarem a tempo).
+     *
+     * @return A melhor fitness alcançada entre as ilhas.
+     * @throws InterruptedException Caso a espera seja interrompida.
+     */
+    public double awaitCompletion() throws InterruptedException {
+        finished.await();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o coordenador: " + e.getMessage());
+        }
+        return getBestFitness();
+    }
+
+    /**
+     * Encerra a execução: todas as ilhas conectadas (e as que se conectarem depois) recebem {@code STOP}
+     * e terminam ao final da geração corrente.
+     */
+    public void stop() {
+        stopped = true;
+        for (Connection connection : connections.values()) {
+            connection.send(List.of(STOP));
+        }
+    }
+
+    /**
+     * Retorna a melhor fitness informada pelas ilhas até o momento.
+     *
+     * @return A melhor fitness, ou 0 se nenhuma ilha informou.
+     */
+    public double getBestFitness() {
+        return bestFitness.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+    }
+
+    private void handle(final Socket socket) {
+        int island = -1;
+        Connection connection = null;
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String[] hello = String.valueOf(reader.readLine()).split(" ");
+            if (hello.length != 2 || !hello[0].equals(HELLO)) {
+                System.err.println("Conexão recusada: mensagem inicial inválida de " + socket.getRemoteSocketAddress());
+                return;
+            }
+            int requested = Integer.parseInt(hello[1]);
+            Connection candidate = new Connection(writer);
+            synchronized (connectionCounts) {
+                if (requested < 0 || requested >= islands || completed.contains(requested)) {
+                    System.err.println("Conexão recusada: ilha " + requested + " inválida, já concluída ou perdida ("
+                            + socket.getRemoteSocketAddress() + ")");
+                    return;
+                }
+                if (connections.putIfAbsent(requested, candidate) != null) {
+                    System.err.println("Conexão recusada: ilha " + requested + " já conectada ("
+                            + socket.getRemoteSocketAddress() + ")");
+                    return;
+                }
+                connectionCounts.merge(requested, 1, Integer::sum);
+            }
+            island = requested;
+            connection = candidate;
+            System.out.println("Ilha " + island + " conectada de " + socket.getRemoteSocketAddress());
+            if (stopped) {
+                connection.send(List.of(STOP));
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(DONE)) {
+                    if (completed.add(island)) {
+                        System.out.println("Ilha " + island + " concluída.");
+                        finished.countDown();
+                    }
+                    break;
+                }
+                String[] message = line.split(" ");
+                if (message[0].equals(REPORT)) {
+                    report(island, Integer.parseInt(message[1]), Double.parseDouble(message[2]));
+                } else if (message[0].equals(EMIGRANTS)) {
+                    List<String> lines = new ArrayList<>();
+                    lines.add(line);
+                    for (int i = 0, count = Integer.parseInt(message[1]); i < count; i++) {
+                        lines.add(reader.readLine());
+                    }
+                    // Anel: os emigrantes da ilha i vão para a ilha i + 1
+                    Connection next = connections.get((island + 1) % islands);
+                    if (next != null && lines.stream().allMatch(emigrant -> emigrant != null)) {
+                        next.send(lines);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Conexão com a ilha " + island + " encerrada: " + e.getMessage());
+        } finally {
+            if (connection != null && connections.remove(island, connection) && !completed.contains(island)) {
+                awaitReconnection(island, connectionCounts.get(island));
+            }
+        }
+    }
+
+    // Considera a ilha perdida se ela não se conectar de novo dentro do prazo de reconexão
+    private void awaitReconnection(final int island, final int connectionCount) {
+        Thread.ofVirtual().start(() -> {
+            try {
+                Thread.sleep(reconnectGrace);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (connectionCounts) {
+                if (connectionCounts.getOrDefault(island, 0) == connectionCount && completed.add(island)) {
+                    System.out.println("Ilha " + island + " não se conectou em " + reconnectGrace
+                            + "; considerada perdida.");
+                    finished.countDown();
+                }
+            }
+        });
+    }
+
+    private void report(final int island, final int generation, final double fitness) {
+        bestFitness.merge(island, fitness, Math::max);
+        System.out.println("Ilha " + island + ", geração " + generation + ": melhor fitness " + fitness
+                + " (global: " + getBestFitness() + ")");
+        if (targetFitness.isPresent() && fitness >= targetFitness.getAsDouble() && !stopped) {
+            System.out.println("Fitness alvo alcançada pela ilha " + island + "; encerrando as ilhas.");
+            stop();
+        }
+    }
+
+    /**
+     * Canal de saída para uma ilha; as mensagens de várias linhas são enviadas sem intercalação.
+     */
+    private record Connection(BufferedWriter writer) {
+
+        synchronized void send(final List<String> lines) {
+            try {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Erro ao enviar mensagem para a ilha: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Executa o coordenador até o fim de todas as ilhas.
+     *
+     * @param args [porta] [número de ilhas]
+     *             [fitness alvo (opcional; "-" ou ausente para não encerrar antes, como no modo multiobjetivo)]
+     *             [endereço de escuta (opcional, padrão o local; ex.: 0.0.0.0 para ilhas em outros computadores)]
+     *             [prazo de reconexão em segundos (opcional, padrão 600)]
+     */
+    public static void main(String[] args) {
+        OptionalDouble targetFitness = args.length > 2 && !args[2].equals("-")
+                ? OptionalDouble.of(Double.parseDouble(args[2])) : OptionalDouble.empty();
+        Duration reconnectGrace = args.length > 4 ? Duration.ofSeconds(Long.parseLong(args[4])) : DEFAULT_RECONNECT_GRACE;
+        try {
+            InetAddress bindAddress = args.length > 3 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+            IslandCoordinator coordinator = new IslandCoordinator(bindAddress, Integer.parseInt(args[0]),
+                    Integer.parseInt(args[1]), targetFitness, reconnectGrace);
+            System.out.println("Coordenador escutando na porta " + coordinator.start());
+            System.out.println("Melhor fitness: " + coordinator.awaitCompletion());
+        } catch (IOException | InterruptedException e) {
+            System.out.println("Erro no coordenador: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import com.ifba.prodscalpel4objects.finder.InsertionPoint;
+import com.ifba.prodscalpel4objects.finder.InsertionPointIndex;
+import com.ifba.prodscalpel4objects.icebox.OrganFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ilha do GP Algorithm em modelo de ilhas (ver {@link IslandCoordinator}): evolui a sua população
+ * geração a geração, informa a melhor fitness ao coordenador, envia os melhores indivíduos a cada
+ * intervalo de migração e incorpora os imigrantes recebidos entre as gerações.
+ * Cada ilha enxerta os candidatos no seu hospedeiro, portanto ilhas no mesmo computador
+ * precisam de cópias separadas do projeto hospedeiro.
+ *
+ * @author Giovane Neves
+ */
+public class IslandWorker {
+
+    private static final int DEFAULT_MIGRATION_INTERVAL = 2;
+    private static final int DEFAULT_MIGRANTS = 2;
+
+    private final GPAlgorithm algorithm;
+    private final String coordinatorHost;
+    private final int coordinatorPort;
+    private final int island;
+    private final int migrationInterval;
+    private final int migrants;
+
+    /**
+     * Construtor da classe IslandWorker, com migração de 2 indivíduos a cada 2 gerações.
+     *
+     * @param algorithm       O algoritmo da ilha.
+     * @param coordinatorHost Endereço do coordenador.
+     * @param coordinatorPort Porta do coordenador.
+     * @param island          Número da ilha (de 0 ao número de ilhas - 1).
+     */
+    public IslandWorker(final GPAlgorithm algorithm, final String coordinatorHost, final int coordinatorPort,
+                        final int island) {
+        this(algorithm, coordinatorHost, coordinatorPort, island, DEFAULT_MIGRATION_INTERVAL, DEFAULT_MIGRANTS);
+    }
+
+    /**
+     * Construtor da classe IslandWorker.
+     *
+     * @param algorithm         O algoritmo da ilha.
+     * @param coordinatorHost   Endereço do coordenador.
+     * @param coordinatorPort   Porta do coordenador.
+     * @param island            Número da ilha (de 0 ao número de ilhas - 1).
+     * @param migrationInterval Número de gerações entre as migrações.
+     * @param migrants          Quantidade de indivíduos enviados em cada migração.
+     */
+    public IslandWorker(final GPAlgorithm algorithm, final String coordinatorHost, final int coordinatorPort,
+                        final int island, final int migrationInterval, final int migrants) {
+        this.algorithm = algorithm;
+        this.coordinatorHost = coordinatorHost;
+        this.coordinatorPort = coordinatorPort;
+        this.island = island;
+        this.migrationInterval = migrationInterval;
+        this.migrants = migrants;
+    }
+
+    /**
+     * Executa a ilha até o número de gerações dos parâmetros ou até o coordenador pedir o encerramento.
+     * Se o algoritmo tiver um ponto de restauração gravado, a ilha continua a partir dele.
+     *
+     * @return A população final da ilha, dos melhores para os piores.
+     * @throws IOException Caso o coordenador não esteja acessível ou o hospedeiro não possa ser testado.
+     */
+    public List<GPIndividual> run() throws IOException {
+        try (Socket socket = new Socket(coordinatorHost, coordinatorPort);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            send(writer, List.of(IslandCoordinator.HELLO + " " + island));
+
+            Queue<GPIndividual> immigrants = new ConcurrentLinkedQueue<>();
+            AtomicBoolean stopped = new AtomicBoolean();
+            Thread listener = new Thread(() -> listen(reader, immigrants, stopped), "island-" + island);
+            listener.setDaemon(true);
+            listener.start();
+
+            if (!algorithm.resume()) {
+                algorithm.initialize();
+            }
+            report(writer);
+            while (!stopped.get() && algorithm.getGeneration() < algorithm.getParameters().generations()) {
+                List<GPIndividual> received = new ArrayList<>();
+                for (GPIndividual immigrant = immigrants.poll(); immigrant != null; immigrant = immigrants.poll()) {
+                    received.add(immigrant);
+                }
+                if (!received.isEmpty()) {
+                    algorithm.immigrate(received);
+                }
+
+                algorithm.step();
+                report(writer);
+                if (algorithm.getGeneration() % migrationInterval == 0) {
+                    List<String> message = new ArrayList<>();
+                    List<GPIndividual> elites = algorithm.elites(migrants);
+                    message.add(IslandCoordinator.EMIGRANTS + " " + elites.size());
+                    elites.forEach(elite -> message.add(elite.encode()));
+                    send(writer, message);
+                }
+            }
+            send(writer, List.of(IslandCoordinator.DONE));
+            algorithm.saveHistory();
+            return algorithm.getPopulation();
+        }
+    }
+
+    // Lê as mensagens do coordenador; a conexão encerrada também interrompe a ilha
+    private void listen(final BufferedReader reader, final Queue<GPIndividual> immigrants, final AtomicBoolean stopped) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] message = line.split(" ");
+                if (message[0].equals(IslandCoordinator.STOP)) {
+                    System.out.println("Ilha " + island + ": encerramento pedido pelo coordenador.");
+                    break;
+                }
+                if (message[0].equals(IslandCoordinator.EMIGRANTS)) {
+                    for (int i = 0, count = Integer.parseInt(message[1]); i < count; i++) {
+                        immigrants.add(GPIndividual.decode(0, reader.readLine()));
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ilha " + island + ": conexão com o coordenador encerrada: " + e.getMessage());
+        } finally {
+            stopped.set(true);
+        }
+    }
+
+    private void report(final BufferedWriter writer) throws IOException {
+        List<GPIndividual> population = algorithm.getPopulation();
+        double best = population.isEmpty() ? 0 : population.get(0).fitness;
+        send(writer, List.of(IslandCoordinator.REPORT + " " + algorithm.getGeneration() + " " + best));
+    }
+
+    private static void send(final BufferedWriter writer, final List<String> lines) throws IOException {
+        for (String line : lines) {
+            writer.write(line);
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Executa uma ilha em um processo próprio.
+     *
+     * @param args [endereço do coordenador] [porta] [ilha] [hospedeiro] [arquivo .organ]
+     *             [ponto de inserção: arquivo:linha:coluna] [gerações (opcional)]
+     */
+    public static void main(String[] args) {
+        String hostProjectPath = args[3];
+        int island = Integer.parseInt(args[2]);
+        try {
+            InsertionPoint point = insertionPoint(args[5]);
+            GPParameters defaults = GPParameters.defaults(island);
+            GPParameters parameters = args.length > 6
+                    ? new GPParameters(defaults.populationSize(), Integer.parseInt(args[6]), defaults.crossoverRate(),
+                            defaults.mutationRate(), defaults.seed(), defaults.measurePerformance())
+                    : defaults;
+
+            HostTestRunner runner = new HostTestRunner(hostProjectPath);
+            GPAlgorithm algorithm = new GPAlgorithm(OrganFile.open(Paths.get(args[4])), point,
+                    new TestImpactAnalyzer(hostProjectPath, runner), runner,
+                    new TestHistory(Paths.get(hostProjectPath, ".prodscalpel", "test-history.txt")), parameters);
+            List<GPIndividual> population;
+            try (GPCheckpoint checkpoint = new GPCheckpoint(
+                    Paths.get(hostProjectPath, ".prodscalpel", "gp-island-" + island + ".checkpoint"))) {
+                algorithm.setCheckpoint(checkpoint, 1);
+                population = new IslandWorker(algorithm, args[0], Integer.parseInt(args[1]), island).run();
+            }
+            System.out.println("Ilha " + island + " concluída: melhor fitness " + population.get(0).getFitness());
+        } catch (IOException e) {
+            System.out.println("Erro na ilha " + island + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // O ponto é procurado entre os pontos indexados do arquivo (a coluna separa os pontos da mesma linha)
+    private static InsertionPoint insertionPoint(final String location) throws IOException {
+        int columnSeparator = location.lastIndexOf(':');
+        int lineSeparator = location.lastIndexOf(':', columnSeparator - 1);
+        Path file = Paths.get(location.substring(0, lineSeparator)).toAbsolutePath();
+        int line = Integer.parseInt(location.substring(lineSeparator + 1, columnSeparator));
+        int column = Integer.parseInt(location.substring(columnSeparator + 1));
+
+        InsertionPointIndex index = new InsertionPointIndex();
+        index.addFile(file);
+        return index.findByFile(file.toString()).stream()
+                .filter(point -> point.line() == line && point.column() == column)
+                .findFirst()
+                .orElseThrow(() -> new IOException("Ponto de inserção não encontrado: " + location));
+    }
+}
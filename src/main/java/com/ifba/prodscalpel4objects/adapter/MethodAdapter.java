@@ -6,14 +6,17 @@ import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.Modifier;
+import com.ifba.prodscalpel4objects.icebox.OrganFile;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Classe responsável por adaptar o código
@@ -33,5 +36,22 @@ public class MethodAdapter {
     public MethodAdapter(final String iceBoxPath) {
         this.iceBoxPath = Paths.get(iceBoxPath);
     }
+
+    /**
+    * Abre todos os órgãos do IceBox no formato binário, sem reanalisar o código-fonte.
+    * Os arquivos são mapeados em memória e cada seção só é lida quando acessada.
+    *
+    * @return Os órgãos encontrados no IceBox.
+    * @throws IOException Caso ocorra um erro ao percorrer o IceBox ou ler um órgão.
+    */
+    public List<OrganFile> openOrgans() throws IOException {
+        List<OrganFile> organs = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(iceBoxPath)) {
+            for (Path path : (Iterable<Path>) paths.filter(p -> p.toString().endsWith(OrganFile.EXTENSION))::iterator) {
+                organs.add(OrganFile.open(path));
+            }
+        }
+        return organs;
+    }
 }
 
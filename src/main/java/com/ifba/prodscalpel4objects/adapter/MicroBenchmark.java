@@ -0,0 +1,161 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Classe que mede o desempenho do hospedeiro executando os testes selecionados como carga de trabalho.
+ * Cada medição usa vários processos ({@code forks}) independentes, para que a compilação JIT e o
+ * layout de memória de um processo não dominem o resultado; em cada processo há iterações de
+ * aquecimento, descartadas, seguidas das iterações medidas (ver {@link BenchmarkFork}).
+ * O tempo e a alocação (pelo {@code ThreadMXBean}) são medidos por operação.
+ * Um processo que passa do tempo limite é encerrado junto com os que ele criou e a medição falha.
+ *
+ * @author Giovane Neves
+ */
+public class MicroBenchmark {
+
+    /**
+     * Parâmetros da medição.
+     *
+     * @param forks                  Número de processos independentes.
+     * @param warmupIterations       Iterações de aquecimento por processo.
+     * @param measurementIterations  Iterações medidas por processo.
+     * @param operationsPerIteration Execuções de cada teste por iteração.
+     */
+    public record Settings(int forks, int warmupIterations, int measurementIterations, int operationsPerIteration) {
+    }
+
+    private static final Settings DEFAULT_SETTINGS = new Settings(3, 5, 10, 20);
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofMinutes(10);
+
+    private final List<Path> classpath;
+    private final Settings settings;
+    private final Duration timeout;
+
+    /**
+     * Construtor da classe MicroBenchmark com os parâmetros padrão
+     * (3 processos, 5 iterações de aquecimento, 10 medidas, 20 operações por iteração)
+     * e 10 minutos por processo.
+     *
+     * @param classpath O classpath de teste do hospedeiro (ver {@link HostTestRunner#testClasspath()}).
+     */
+    public MicroBenchmark(final List<Path> classpath) {
+        this(classpath, DEFAULT_SETTINGS, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Construtor da classe MicroBenchmark com os parâmetros padrão.
+     *
+     * @param classpath O classpath de teste do hospedeiro.
+     * @param timeout   Tempo máximo de cada processo (ex.: {@link HostTestRunner#getTimeout()}).
+     */
+    public MicroBenchmark(final List<Path> classpath, final Duration timeout) {
+        this(classpath, DEFAULT_SETTINGS, timeout);
+    }
+
+    /**
+     * Construtor da classe MicroBenchmark.
+     *
+     * @param classpath O classpath de teste do hospedeiro.
+     * @param settings  Os parâmetros da medição.
+     * @param timeout   Tempo máximo de cada processo.
+     */
+    public MicroBenchmark(final List<Path> classpath, final Settings settings, final Duration timeout) {
+        this.classpath = List.copyOf(classpath);
+        this.settings = settings;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Mede os testes informados.
+     *
+     * @param tests Os testes usados como carga de trabalho ({@code pacote.Classe#metodo}).
+     * @return As medições de todos os processos, ou {@code null} se algum teste falhou.
+     * @throws IOException Caso os processos não possam ser executados.
+     */
+    public BenchmarkResult measure(final List<String> tests) throws IOException {
+        List<Double> nanos = new ArrayList<>();
+        List<Double> bytes = new ArrayList<>();
+        for (int fork = 0; fork < settings.forks(); fork++) {
+            if (!runFork(tests, nanos, bytes)) {
+                return null;
+            }
+        }
+        return new BenchmarkResult(nanos.stream().mapToDouble(Double::doubleValue).toArray(),
+                bytes.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    private boolean runFork(final List<String> tests, final List<Double> nanos, final List<Double> bytes)
+            throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", forkClasspath(),
+                BenchmarkFork.class.getName(),
+                String.valueOf(settings.warmupIterations()),
+                String.valueOf(settings.measurementIterations()),
+                String.valueOf(settings.operationsPerIteration())));
+        command.addAll(tests);
+
+        // A saída vai para um arquivo para que a espera possa ter um tempo limite
+        Path log = Files.createTempFile("prodscalpel-benchmark", ".log");
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+            int exitCode;
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    HostTestRunner.destroyTree(process);
+                    System.out.println("Tempo limite excedido na medição de desempenho.");
+                    return false;
+                }
+                exitCode = process.exitValue();
+            } catch (InterruptedException e) {
+                HostTestRunner.destroyTree(process);
+                Thread.currentThread().interrupt();
+                throw new IOException("Medição interrompida.", e);
+            }
+
+            boolean failed = false;
+            for (String line : Files.readAllLines(log)) {
+                if (line.startsWith("RESULT ")) {
+                    String[] values = line.split(" ");
+                    nanos.add(Double.parseDouble(values[1]));
+                    bytes.add(Double.parseDouble(values[2]));
+                } else if (line.startsWith("SKIPPED ")) {
+                    System.out.println("Teste fora da medição: " + line.substring("SKIPPED ".length()));
+                } else if (line.startsWith("FAILED ")) {
+                    System.out.println("Falha na medição: " + line.substring("FAILED ".length()));
+                    failed = true;
+                }
+            }
+            return exitCode == 0 && !failed;
+        } finally {
+            Files.deleteIfExists(log);
+        }
+    }
+
+    // O processo filho precisa do hospedeiro e da própria classe BenchmarkFork
+    private String forkClasspath() throws IOException {
+        List<Path> entries = new ArrayList<>(classpath);
+        CodeSource codeSource = BenchmarkFork.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            throw new IOException("Não foi possível localizar as classes do ProdScalpel.");
+        }
+        try {
+            entries.add(Paths.get(codeSource.getLocation().toURI()));
+        } catch (URISyntaxException e) {
+            throw new IOException("Não foi possível localizar as classes do ProdScalpel.", e);
+        }
+        return entries.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator));
+    }
+}
@@ -0,0 +1,149 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Classe com a seleção do NSGA-II: ordenação por frentes não dominadas e distância de aglomeração.
+ * Todos os objetivos são minimizados.
+ *
+ * @author Giovane Neves
+ */
+public class ParetoSelection {
+
+    private ParetoSelection() {
+    }
+
+    /**
+     * Seleciona os sobreviventes: frentes inteiras, na ordem, e a última frente parcial
+     * pelos indivíduos mais isolados (maior distância de aglomeração).
+     *
+     * @param candidates Os pais e os filhos da geração.
+     * @param size       O tamanho da população.
+     * @return Os indivíduos selecionados.
+     */
+    public static List<GPIndividual> select(final List<GPIndividual> candidates, final int size) {
+        List<GPIndividual> selected = new ArrayList<>();
+        for (List<GPIndividual> front : sortFronts(candidates)) {
+            if (selected.size() + front.size() <= size) {
+                selected.addAll(front);
+            } else {
+                front.sort(Comparator.comparingDouble((GPIndividual individual) -> individual.crowding).reversed());
+                selected.addAll(front.subList(0, size - selected.size()));
+            }
+            if (selected.size() >= size) {
+                break;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Torneio binário pelo operador de comparação do NSGA-II: menor frente e, no empate,
+     * maior distância de aglomeração. Requer {@link #select} ou {@link #sortFronts} antes.
+     *
+     * @param population A população.
+     * @param random     O gerador de números aleatórios.
+     * @return O vencedor do torneio.
+     */
+    public static GPIndividual tournament(final List<GPIndividual> population, final Random random) {
+        GPIndividual first = population.get(random.nextInt(population.size()));
+        GPIndividual second = population.get(random.nextInt(population.size()));
+        if (first.rank != second.rank) {
+            return first.rank < second.rank ? first : second;
+        }
+        return first.crowding >= second.crowding ? first : second;
+    }
+
+    /**
+     * Ordenação rápida por não dominância; a frente de cada indivíduo é gravada em {@code rank}.
+     *
+     * @param population Os indivíduos, já com os objetivos calculados.
+     * @return As frentes, da não dominada em diante.
+     */
+    public static List<List<GPIndividual>> sortFronts(final List<GPIndividual> population) {
+        int size = population.size();
+        List<List<Integer>> dominated = new ArrayList<>();
+        int[] dominationCount = new int[size];
+        List<Integer> current = new ArrayList<>();
+        for (int p = 0; p < size; p++) {
+            dominated.add(new ArrayList<>());
+            for (int q = 0; q < size; q++) {
+                if (dominates(population.get(p), population.get(q))) {
+                    dominated.get(p).add(q);
+                } else if (dominates(population.get(q), population.get(p))) {
+                    dominationCount[p]++;
+                }
+            }
+            if (dominationCount[p] == 0) {
+                current.add(p);
+            }
+        }
+
+        List<List<GPIndividual>> fronts = new ArrayList<>();
+        int rank = 0;
+        while (!current.isEmpty()) {
+            List<GPIndividual> front = new ArrayList<>();
+            List<Integer> next = new ArrayList<>();
+            for (int p : current) {
+                population.get(p).rank = rank;
+                front.add(population.get(p));
+                for (int q : dominated.get(p)) {
+                    if (--dominationCount[q] == 0) {
+                        next.add(q);
+                    }
+                }
+            }
+            assignCrowding(front);
+            fronts.add(front);
+            current = next;
+            rank++;
+        }
+        return fronts;
+    }
+
+    /**
+     * Verifica se um indivíduo domina outro: não é pior em nenhum objetivo e é melhor em pelo menos um.
+     *
+     * @param a O primeiro indivíduo.
+     * @param b O segundo indivíduo.
+     * @return {@code true} se {@code a} domina {@code b}.
+     */
+    public static boolean dominates(final GPIndividual a, final GPIndividual b) {
+        boolean better = false;
+        for (int i = 0; i < a.objectives.length; i++) {
+            if (a.objectives[i] > b.objectives[i]) {
+                return false;
+            }
+            better |= a.objectives[i] < b.objectives[i];
+        }
+        return better;
+    }
+
+    // Os extremos de cada objetivo recebem distância infinita, para preservar a frente inteira
+    private static void assignCrowding(final List<GPIndividual> front) {
+        front.forEach(individual -> individual.crowding = 0);
+        if (front.isEmpty()) {
+            return;
+        }
+        int objectives = front.get(0).objectives.length;
+        List<GPIndividual> sorted = new ArrayList<>(front);
+        for (int m = 0; m < objectives; m++) {
+            int objective = m;
+            sorted.sort(Comparator.comparingDouble(individual -> individual.objectives[objective]));
+            double min = sorted.get(0).objectives[objective];
+            double max = sorted.get(sorted.size() - 1).objectives[objective];
+            sorted.get(0).crowding = Double.POSITIVE_INFINITY;
+            sorted.get(sorted.size() - 1).crowding = Double.POSITIVE_INFINITY;
+            if (max == min) {
+                continue;
+            }
+            for (int i = 1; i < sorted.size() - 1; i++) {
+                sorted.get(i).crowding += (sorted.get(i + 1).objectives[objective]
+                        - sorted.get(i - 1).objectives[objective]) / (max - min);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Classe que guarda o histórico de execuções dos testes do hospedeiro, usado para
+ * executar primeiro os testes que mais falham (e, entre eles, os mais rápidos).
+ * O histórico é gravado em um arquivo texto, uma linha por teste:
+ * {@code teste<TAB>execuções<TAB>falhas<TAB>duração média}.
+ *
+ * @author Giovane Neves
+ */
+public class TestHistory {
+
+    private final Path file;
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    /**
+     * Construtor da classe TestHistory. Carrega o histórico, se o arquivo existir.
+     *
+     * @param file Arquivo do histórico.
+     * @throws IOException Caso o arquivo exista e não possa ser lido.
+     */
+    public TestHistory(final Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            parse(Files.readString(file), stats);
+        }
+    }
+
+    /**
+     * Taxa de falha estimada do teste, suavizada para testes com poucas execuções
+     * (um teste nunca executado tem taxa 0,5).
+     *
+     * @param test O identificador do teste.
+     * @return A taxa de falha entre 0 e 1.
+     */
+    public synchronized double failureRate(final String test) {
+        Stats testStats = stats.get(test);
+        return testStats == null ? 0.5 : (testStats.failures + 1.0) / (testStats.runs + 2.0);
+    }
+
+    /**
+     * Ordena os testes pela taxa de falha (maior primeiro) e, em caso de empate, pela duração média.
+     *
+     * @param tests Os testes a serem ordenados.
+     * @return Os testes na ordem de execução.
+     */
+    public synchronized List<String> order(final Collection<String> tests) {
+        List<String> ordered = new ArrayList<>(tests);
+        ordered.sort(Comparator.comparingDouble((String test) -> -failureRate(test))
+                .thenComparingDouble(test -> stats.containsKey(test) ? stats.get(test).meanDuration : 0.0)
+                .thenComparing(Comparator.naturalOrder()));
+        return ordered;
+    }
+
+    /**
+     * Registra o resultado de uma execução.
+     *
+     * @param result O resultado da execução dos testes.
+     */
+    public synchronized void record(final TestRunResult result) {
+        result.passed().forEach(test -> update(test, false, result.durations().getOrDefault(test, 0.0)));
+        result.failed().forEach(test -> update(test, true, result.durations().getOrDefault(test, 0.0)));
+    }
+
+    /**
+     * Grava o histórico no arquivo.
+     *
+     * @throws IOException Caso o arquivo não possa ser escrito.
+     */
+    public synchronized void save() throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.writeString(file, snapshot());
+    }
+
+    /**
+     * Retorna o histórico no formato do arquivo, para ser guardado em um {@link GPCheckpoint}.
+     *
+     * @return O conteúdo do histórico.
+     */
+    synchronized String snapshot() {
+        StringBuilder content = new StringBuilder();
+        new TreeMap<>(stats).forEach((test, testStats) -> content.append(test).append('\t')
+                .append(testStats.runs).append('\t').append(testStats.failures).append('\t')
+                .append(testStats.meanDuration).append('\n'));
+        return content.toString();
+    }
+
+    /**
+     * Substitui o histórico por um conteúdo retornado por {@link #snapshot()}.
+     *
+     * @param content O conteúdo do histórico.
+     */
+    synchronized void restore(final String content) {
+        stats.clear();
+        parse(content, stats);
+    }
+
+    private static void parse(final String content, final Map<String, Stats> stats) {
+        for (String line : content.split("\n")) {
+            String[] columns = line.strip().split("\t");
+            if (columns.length == 4) {
+                stats.put(columns[0], new Stats(Integer.parseInt(columns[1]), Integer.parseInt(columns[2]),
+                        Double.parseDouble(columns[3])));
+            }
+        }
+    }
+
+    private void update(final String test, final boolean failed, final double duration) {
+        Stats previous = stats.getOrDefault(test, new Stats(0, 0, 0.0));
+        int runs = previous.runs + 1;
+        stats.put(test, new Stats(runs, previous.failures + (failed ? 1 : 0),
+                previous.meanDuration + (duration - previous.meanDuration) / runs));
+    }
+
+    private record Stats(int runs, int failures, double meanDuration) {
+    }
+}
@@ -0,0 +1,182 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import com.ifba.prodscalpel4objects.finder.InsertionPoint;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Classe que descobre quais testes do hospedeiro exercitam um ponto de inserção.
+ * O levantamento é feito uma única vez por ponto: uma sonda é inserida no ponto, a suíte inteira
+ * é executada e a sonda grava as chamadas da pilha que ainda não havia gravado na JVM (o conjunto fica nas
+ * propriedades do sistema, de modo que cada teste é gravado uma única vez, e não a cada vez que o ponto
+ * é alcançado); os testes são os métodos de teste que aparecem entre essas chamadas. O resultado fica em
+ * {@code .prodscalpel/test-impact.txt} no hospedeiro e só é refeito quando o arquivo do ponto ou algum
+ * arquivo de {@code src/test} muda.
+ *
+ * @author Giovane Neves
+ */
+public class TestImpactAnalyzer {
+
+    private static final String IMPACT_FILE = ".prodscalpel/test-impact.txt";
+    private static final String PROBE_FILE = "target/prodscalpel-probe.txt";
+    private static final String PROBE_PROPERTY = "prodscalpel.probe.frames";
+    private static final String TEST_SOURCES = "src/test";
+
+    private final HostTestRunner runner;
+    private final Path hostProject;
+    private final Path impactFile;
+    private final Map<String, Impact> impacts = new HashMap<>();
+    private String testTreeHash;
+
+    /**
+     * Construtor da classe TestImpactAnalyzer.
+     *
+     * @param hostProjectPath Caminho do diretório do hospedeiro (onde está o pom.xml).
+     * @param runner          Executor dos testes do hospedeiro.
+     * @throws IOException Caso o levantamento salvo exista e não possa ser lido.
+     */
+    public TestImpactAnalyzer(final String hostProjectPath, final HostTestRunner runner) throws IOException {
+        this.runner = runner;
+        this.hostProject = Paths.get(hostProjectPath);
+        this.impactFile = hostProject.resolve(IMPACT_FILE);
+        if (Files.exists(impactFile)) {
+            for (String line : Files.readAllLines(impactFile)) {
+                String[] columns = line.split("\t", -1);
+                if (columns.length == 3) {
+                    List<String> tests = columns[2].isEmpty() ? List.of() : List.of(columns[2].split(","));
+                    impacts.put(columns[0], new Impact(columns[1], tests));
+                }
+            }
+        }
+    }
+
+    /**
+     * Retorna os testes que exercitam o ponto de inserção, fazendo o levantamento se necessário.
+     *
+     * @param point O ponto de inserção.
+     * @return Os testes que alcançam o ponto.
+     * @throws IOException Caso os testes do hospedeiro não possam ser executados.
+     */
+    public synchronized List<String> testsFor(final InsertionPoint point) throws IOException {
+        Path file = Paths.get(point.filePath());
+        HostPatch.restoreLeftover(file);
+        String key = point.filePath() + ":" + point.line() + ":" + point.column();
+        // Testes novos ou alterados podem passar a alcançar o ponto, então os testes também entram no hash
+        String hash = sha256((sha256(Files.readAllBytes(file)) + testTreeHash()).getBytes(StandardCharsets.UTF_8));
+        Impact impact = impacts.get(key);
+        if (impact == null || !impact.sourceHash.equals(hash)) {
+            impact = new Impact(hash, record(point));
+            impacts.put(key, impact);
+            save();
+        }
+        return impact.tests;
+    }
+
+    // Hash dos caminhos e do conteúdo de todos os arquivos de teste, calculado uma vez por execução
+    private String testTreeHash() throws IOException {
+        if (testTreeHash == null) {
+            Path testSources = hostProject.resolve(TEST_SOURCES);
+            StringBuilder combined = new StringBuilder();
+            if (Files.isDirectory(testSources)) {
+                try (Stream<Path> paths = Files.walk(testSources)) {
+                    for (Path path : paths.filter(Files::isRegularFile).sorted().toList()) {
+                        combined.append(testSources.relativize(path).toString().replace('\\', '/')).append('\t')
+                                .append(sha256(Files.readAllBytes(path))).append('\n');
+                    }
+                }
+            }
+            testTreeHash = sha256(combined.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return testTreeHash;
+    }
+
+    // Executa a suíte com a sonda no ponto e cruza as pilhas gravadas com os testes executados
+    private List<String> record(final InsertionPoint point) throws IOException {
+        Path probeFile = hostProject.resolve(PROBE_FILE).toAbsolutePath();
+        Files.createDirectories(probeFile.getParent());
+        Files.deleteIfExists(probeFile);
+
+        TestRunResult result;
+        HostPatch patch = HostPatch.insert(point, probe(probeFile));
+        try {
+            result = runner.runAll();
+        } finally {
+            patch.close();
+        }
+        if (!result.compiled()) {
+            // A sonda não compila nesse ponto (ex.: depois de um return): todos os testes são selecionados
+            System.out.println("Sonda não compilou em " + point.filePath() + ":" + point.line()
+                    + "; usando a suíte inteira.");
+            TestRunResult suite = runner.runAll();
+            List<String> allTests = new ArrayList<>(suite.passed());
+            allTests.addAll(suite.failed());
+            return allTests;
+        }
+
+        Set<String> executedTests = new HashSet<>(result.passed());
+        executedTests.addAll(result.failed());
+        Set<String> selected = new LinkedHashSet<>();
+        if (Files.exists(probeFile)) {
+            for (String frame : Files.readAllLines(probeFile)) {
+                if (executedTests.contains(frame)) {
+                    selected.add(frame);
+                }
+            }
+        }
+        System.out.println("Testes que exercitam " + point.filePath() + ":" + point.line() + ": "
+                + selected.size() + " de " + executedTests.size());
+        return List.copyOf(selected);
+    }
+
+    // Instrução inserida no hospedeiro; usa apenas nomes qualificados para não exigir imports.
+    // As chamadas já gravadas ficam em um conjunto nas propriedades do sistema, compartilhado pela JVM
+    // inteira, e o arquivo só é escrito quando a pilha tem alguma chamada nova
+    private static String probe(final Path probeFile) {
+        String path = probeFile.toString().replace("\\", "\\\\").replace("\"", "\\\"");
+        return "try { @SuppressWarnings(\"unchecked\") java.util.Set<String> prodscalpelSeen = (java.util.Set<String>) "
+                + "System.getProperties().computeIfAbsent(\"" + PROBE_PROPERTY + "\", "
+                + "prodscalpelKey -> java.util.concurrent.ConcurrentHashMap.newKeySet()); "
+                + "String prodscalpelFrames = java.util.Arrays.stream(new Throwable().getStackTrace())"
+                + ".map(prodscalpelFrame -> prodscalpelFrame.getClassName() + \"#\" + prodscalpelFrame.getMethodName())"
+                + ".filter(prodscalpelSeen::add)"
+                + ".collect(java.util.stream.Collectors.joining(\"\\n\", \"\", \"\\n\")); "
+                + "if (prodscalpelFrames.length() > 1) { "
+                + "java.nio.file.Files.writeString(java.nio.file.Paths.get(\"" + path + "\"), prodscalpelFrames, "
+                + "java.nio.file.StandardOpenOption.CREATE, java.nio.file.StandardOpenOption.APPEND); } } "
+                + "catch (java.io.IOException prodscalpelProbeException) { }";
+    }
+
+    private void save() throws IOException {
+        StringBuilder content = new StringBuilder();
+        impacts.forEach((key, impact) -> content.append(key).append('\t').append(impact.sourceHash).append('\t')
+                .append(String.join(",", impact.tests)).append('\n'));
+        Files.createDirectories(impactFile.getParent());
+        Files.writeString(impactFile, content);
+    }
+
+    private static String sha256(final byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private record Impact(String sourceHash, List<String> tests) {
+    }
+}
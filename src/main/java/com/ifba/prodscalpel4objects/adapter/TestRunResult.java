@@ -0,0 +1,26 @@
+package com.ifba.prodscalpel4objects.adapter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de uma execução dos testes do hospedeiro.
+ * Os testes são identificados por {@code pacote.Classe#metodo}.
+ *
+ * @param compiled  Indica se o hospedeiro (com o candidato aplicado) compilou.
+ * @param passed    Os testes que passaram.
+ * @param failed    Os testes que falharam (falha ou erro).
+ * @param durations Duração de cada teste executado, em segundos.
+ */
+public record TestRunResult(boolean compiled, List<String> passed, List<String> failed,
+                            Map<String, Double> durations) {
+
+    /**
+     * Indica se o hospedeiro compilou e nenhum teste falhou.
+     *
+     * @return {@code true} se a execução foi bem-sucedida.
+     */
+    public boolean success() {
+        return compiled && failed.isEmpty();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+/**
+ * Interrompe uma extração que ultrapassou o seu {@link ExtractionBudget}.
+ * Guarda o limite ultrapassado e o quanto a extração havia consumido até a interrupção.
+ *
+ * @author lara
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ExtractionBudget.Limit limit;
+    private final String target;
+    private final int closureSize;
+    private final int filesParsed;
+    private final long heapBytes;
+    private final long elapsedMillis;
+
+    /**
+     * Construtor da classe BudgetExceededException.
+     *
+     * @param limit         O limite ultrapassado.
+     * @param target        A extração interrompida ({@code caminho#metodo}).
+     * @param closureSize   Métodos dependentes encontrados até a interrupção.
+     * @param filesParsed   Arquivos carregados até a interrupção.
+     * @param heapBytes     Heap estimado das árvores sintáticas carregadas.
+     * @param elapsedMillis Tempo gasto nas etapas da extração.
+     */
+    public BudgetExceededException(ExtractionBudget.Limit limit, String target, int closureSize, int filesParsed,
+                                   long heapBytes, long elapsedMillis) {
+        super("Limite de " + limit.getDescription() + " excedido em " + target + " (fechamento: " + closureSize
+                + " métodos, arquivos: " + filesParsed + ", heap estimado: " + heapBytes + " bytes, tempo: "
+                + elapsedMillis + " ms)");
+        this.limit = limit;
+        this.target = target;
+        this.closureSize = closureSize;
+        this.filesParsed = filesParsed;
+        this.heapBytes = heapBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public ExtractionBudget.Limit getLimit() {
+        return limit;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    public int getClosureSize() {
+        return closureSize;
+    }
+
+    public int getFilesParsed() {
+        return filesParsed;
+    }
+
+    public long getHeapBytes() {
+        return heapBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,146 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.printer.DefaultPrettyPrinter;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache limitado (LRU) das unidades de compilação do doador, compartilhado entre extrações.
+ * As unidades guardadas aqui são compartilhadas e não devem ser modificadas: quem precisar
+ * alterar um nó deve trabalhar sobre um clone. A impressora é instalada em cada unidade antes de ela
+ * entrar no cache, porque {@code toString()} a instalaria sob demanda no mapa de dados da unidade,
+ * que não é seguro para escrita concorrente.
+ *
+ * @author lara
+ */
+public class CompilationUnitCache {
+
+    private final int capacity;
+    private final long memoryBudgetBytes;
+    private final LinkedHashMap<Path, CachedUnit> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Long> weights = new HashMap<>();
+    private long totalWeight;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Construtor da classe CompilationUnitCache.
+     *
+     * @param capacity Número máximo de unidades de compilação mantidas em memória.
+     */
+    public CompilationUnitCache(final int capacity) {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    /**
+     * Construtor da classe CompilationUnitCache com orçamento de memória.
+     * O peso de cada entrada é estimado por {@link MemoryBudget#estimateAstBytes(long)}.
+     *
+     * @param capacity          Número máximo de unidades de compilação mantidas em memória.
+     * @param memoryBudgetBytes Heap estimado máximo ocupado pelas unidades em cache.
+     */
+    public CompilationUnitCache(final int capacity, final long memoryBudgetBytes) {
+        this.capacity = capacity;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Retorna a unidade de compilação do arquivo, analisando-o apenas se ela não estiver no cache.
+     *
+     * @param path Caminho do arquivo-fonte.
+     * @return A unidade de compilação, ou vazio se a análise falhar.
+     * @throws IOException Caso ocorra um erro ao ler o arquivo.
+     */
+    public Optional<CompilationUnit> get(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        synchronized (entries) {
+            CachedUnit cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return Optional.of(cached.compilationUnit());
+            }
+        }
+        misses.incrementAndGet();
+
+        // A análise é feita fora do lock para não serializar as extrações; o texto original
+        // é mantido junto com a AST para que os membros possam ser copiados sem reimpressão
+        byte[] bytes = Files.readAllBytes(key);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        ParseResult<CompilationUnit> parseResult = new JavaParser().parse(text);
+        if (parseResult.getResult().isEmpty()) {
+            return Optional.empty();
+        }
+        CompilationUnit parsed = parseResult.getResult().get();
+        parsed.setStorage(key);
+        parsed.printer(new DefaultPrettyPrinter());
+        long weight = MemoryBudget.estimateAstBytes(bytes.length) + text.length() * 2L;
+        synchronized (entries) {
+            CachedUnit existing = entries.putIfAbsent(key, new CachedUnit(parsed, CharBuffer.wrap(text)));
+            if (existing != null) {
+                return Optional.of(existing.compilationUnit());
+            }
+            weights.put(key, weight);
+            totalWeight += weight;
+            evict();
+            return Optional.of(parsed);
+        }
+    }
+
+    /**
+     * Retorna o texto original de uma unidade de compilação obtida deste cache.
+     * Se a unidade já saiu do cache, o arquivo é lido novamente.
+     *
+     * @param cu A unidade de compilação.
+     * @return O texto do arquivo de origem, ou vazio se a unidade não veio de um arquivo.
+     * @throws IOException Caso ocorra um erro ao ler o arquivo.
+     */
+    public Optional<CharBuffer> getSource(CompilationUnit cu) throws IOException {
+        if (cu.getStorage().isEmpty()) {
+            return Optional.empty();
+        }
+        Path key = cu.getStorage().get().getPath().toAbsolutePath().normalize();
+        synchronized (entries) {
+            CachedUnit cached = entries.get(key);
+            if (cached != null && cached.compilationUnit() == cu) {
+                // Cada chamador recebe sua própria visão do mesmo buffer
+                return Optional.of(cached.source().duplicate());
+            }
+        }
+        return Optional.of(CharBuffer.wrap(new String(Files.readAllBytes(key), StandardCharsets.UTF_8)));
+    }
+
+    // Remove as entradas usadas há mais tempo até respeitar a capacidade e o orçamento,
+    // mantendo sempre ao menos a entrada mais recente
+    private void evict() {
+        Iterator<Path> eldest = entries.keySet().iterator();
+        while (entries.size() > 1 && (entries.size() > capacity || totalWeight > memoryBudgetBytes)) {
+            Path key = eldest.next();
+            eldest.remove();
+            totalWeight -= weights.remove(key);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private record CachedUnit(CompilationUnit compilationUnit, CharBuffer source) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resumo compacto de um arquivo do doador: o suficiente para indexar métodos e
+ * seguir chamadas sem manter a {@code CompilationUnit} em memória.
+ *
+ * @param path         Caminho absoluto do arquivo.
+ * @param packageName  Nome do pacote, ou vazio para o pacote padrão.
+ * @param primaryClass Nome da primeira classe do arquivo (a usada pelo extrator), ou vazio.
+ * @param isInterface  Se o tipo principal é uma interface.
+ * @param imports      Importações do arquivo ({@code .*} para importações com asterisco).
+ * @param fieldTypes   Tipos dos campos da classe principal (nome -> tipo).
+ * @param methods      Resumos dos métodos da classe principal.
+ */
+public record CompilationUnitSummary(String path, String packageName, String primaryClass, boolean isInterface,
+                                     List<String> imports, Map<String, String> fieldTypes,
+                                     List<MethodSummary> methods) {
+
+}
@@ -0,0 +1,432 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.AssignExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.ObjectCreationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.expr.StringLiteralExpr;
+import com.github.javaparser.ast.nodeTypes.NodeWithAnnotations;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Índice de injeção de dependências de doadores no estilo Spring, construído em uma única
+ * varredura do {@link StreamingDonorScanner}. Registra os beans (classes com estereótipos e métodos
+ * {@code @Bean} de classes {@code @Configuration}), com nome, {@code @Primary} e {@code @Qualifier},
+ * os pontos de injeção de cada classe (campos {@code @Autowired}/{@code @Inject}/{@code @Resource},
+ * construtores, setters {@code @Autowired} e construtores do Lombok) e a hierarquia de tipos,
+ * de modo que um colaborador injetado por interface é resolvido para a sua implementação por consulta.
+ * Os tipos são comparados pelo nome simples.
+ *
+ * @author lara
+ */
+public class DependencyInjectionIndex {
+
+    private static final Set<String> STEREOTYPES = Set.of("Component", "Service", "Repository", "Controller",
+            "RestController", "Configuration", "Named");
+    private static final Set<String> INJECTED_FIELD = Set.of("Autowired", "Inject", "Resource");
+    private static final Set<String> QUALIFIERS = Set.of("Qualifier", "Named");
+
+    private final List<Bean> beans = new ArrayList<>();
+    private final Map<String, Map<String, Injection>> injections = new HashMap<>();
+    private final Map<String, Set<String>> supertypes = new HashMap<>();
+    private final Map<String, List<String>> qualifiedNames = new HashMap<>();
+    private final Map<String, Path> sourceFiles = new HashMap<>();
+
+    /**
+     * Um bean do doador.
+     *
+     * @param name          O nome do bean (padrão: nome simples da classe com inicial minúscula, ou o nome do método {@code @Bean}).
+     * @param qualifiedName O nome completo da classe que implementa o bean.
+     * @param declaredType  O tipo sob o qual o bean é declarado (a própria classe, ou o retorno do método {@code @Bean}).
+     * @param primary       Se o bean tem {@code @Primary}.
+     * @param qualifiers    Os valores de {@code @Qualifier} do bean.
+     */
+    public record Bean(String name, String qualifiedName, String declaredType, boolean primary, Set<String> qualifiers) {
+
+        /**
+         * Retorna o nome simples da classe que implementa o bean.
+         *
+         * @return O nome simples.
+         */
+        public String simpleName() {
+            return qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+        }
+    }
+
+    /**
+     * Um campo preenchido por injeção.
+     *
+     * @param field     O nome do campo.
+     * @param type      O tipo declarado do campo (nome simples).
+     * @param qualifier O valor de {@code @Qualifier}/{@code @Named}/{@code @Resource(name)}, ou {@code null}.
+     */
+    public record Injection(String field, String type, String qualifier) {
+    }
+
+    /**
+     * Constrói o índice percorrendo todo o doador.
+     *
+     * @param sourceRoot O diretório raiz do código-fonte do doador.
+     * @return O índice.
+     * @throws IOException Caso ocorra um erro ao percorrer o diretório.
+     */
+    public static DependencyInjectionIndex build(Path sourceRoot) throws IOException {
+        DependencyInjectionIndex index = new DependencyInjectionIndex();
+        new StreamingDonorScanner(sourceRoot).scan(index::add);
+        return index;
+    }
+
+    /**
+     * Registra as classes de uma unidade de compilação. Pode ser usado como visitante do
+     * {@link StreamingDonorScanner}, inclusive com várias threads.
+     *
+     * @param path O caminho do arquivo.
+     * @param cu   A unidade de compilação.
+     */
+    public synchronized void add(Path path, CompilationUnit cu) {
+        for (ClassOrInterfaceDeclaration cls : cu.findAll(ClassOrInterfaceDeclaration.class)) {
+            Optional<String> qualifiedName = cls.getFullyQualifiedName();
+            if (qualifiedName.isEmpty()) {
+                continue;
+            }
+            String className = cls.getNameAsString();
+            qualifiedNames.computeIfAbsent(className, key -> new ArrayList<>()).add(qualifiedName.get());
+            sourceFiles.put(qualifiedName.get(), path.toAbsolutePath());
+
+            Set<String> direct = supertypes.computeIfAbsent(className, key -> new HashSet<>());
+            cls.getExtendedTypes().forEach(type -> direct.add(type.getNameAsString()));
+            cls.getImplementedTypes().forEach(type -> direct.add(type.getNameAsString()));
+
+            boolean bean = cls.getAnnotations().stream().anyMatch(annotation -> STEREOTYPES.contains(simpleName(annotation)));
+            if (!bean) {
+                // Campos @Autowired fora de um bean não são injetados, mas são registrados por tolerância
+                registerFieldInjections(cls, qualifiedName.get());
+                continue;
+            }
+            if (!cls.isInterface() && !cls.isAbstract()) {
+                String name = annotationValue(cls, STEREOTYPES).orElse(decapitalize(className));
+                beans.add(new Bean(name, qualifiedName.get(), className, hasAnnotation(cls, "Primary"),
+                        qualifiers(cls)));
+            }
+            registerFieldInjections(cls, qualifiedName.get());
+            registerConstructorInjections(cls, qualifiedName.get());
+            if (hasAnnotation(cls, "Configuration")) {
+                registerBeanMethods(cu, cls);
+            }
+        }
+    }
+
+    /**
+     * Retorna os campos injetados de uma classe.
+     *
+     * @param qualifiedName O nome completo da classe.
+     * @return Nome do campo -> injeção.
+     */
+    public synchronized Map<String, Injection> injectedFields(String qualifiedName) {
+        return Map.copyOf(injections.getOrDefault(qualifiedName, Map.of()));
+    }
+
+    /**
+     * Resolve o bean injetado em um campo, com as regras do Spring: qualificador, bean único do tipo,
+     * bean {@code @Primary} e, por fim, bean com o mesmo nome do campo.
+     *
+     * @param qualifiedName O nome completo da classe que recebe a injeção.
+     * @param field         O nome do campo.
+     * @return O bean injetado, se o campo for injetado e o bean for determinado.
+     */
+    public synchronized Optional<Bean> resolve(String qualifiedName, String field) {
+        Injection injection = injections.getOrDefault(qualifiedName, Map.of()).get(field);
+        if (injection == null) {
+            return Optional.empty();
+        }
+        List<Bean> candidates = candidates(injection.type());
+        if (injection.qualifier() != null) {
+            candidates = candidates.stream()
+                    .filter(bean -> bean.name().equals(injection.qualifier())
+                            || bean.qualifiers().contains(injection.qualifier()))
+                    .toList();
+        }
+        if (candidates.size() == 1) {
+            return Optional.of(candidates.get(0));
+        }
+        List<Bean> primary = candidates.stream().filter(Bean::primary).toList();
+        if (primary.size() == 1) {
+            return Optional.of(primary.get(0));
+        }
+        return candidates.stream().filter(bean -> bean.name().equals(field)).findFirst();
+    }
+
+    /**
+     * Retorna os beans que podem ser injetados em um tipo (a própria classe, subclasses e implementações).
+     *
+     * @param type O nome simples do tipo.
+     * @return Os beans compatíveis.
+     */
+    public synchronized List<Bean> candidates(String type) {
+        String simpleType = simpleTypeName(type);
+        return beans.stream()
+                .filter(bean -> isAssignable(bean.declaredType(), simpleType)
+                        || isAssignable(bean.simpleName(), simpleType))
+                .toList();
+    }
+
+    /**
+     * Retorna o nome completo de uma classe do doador pelo nome simples, se ele for único.
+     *
+     * @param simpleName O nome simples da classe.
+     * @return O nome completo.
+     */
+    public synchronized Optional<String> qualifiedName(String simpleName) {
+        List<String> names = qualifiedNames.getOrDefault(simpleTypeName(simpleName), List.of());
+        return names.size() == 1 ? Optional.of(names.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Retorna o arquivo que declara uma classe do doador.
+     *
+     * @param qualifiedName O nome completo da classe.
+     * @return O caminho do arquivo.
+     */
+    public synchronized Optional<Path> sourceFile(String qualifiedName) {
+        return Optional.ofNullable(sourceFiles.get(qualifiedName));
+    }
+
+    // Percorre a hierarquia a partir do tipo do bean
+    private boolean isAssignable(String type, String target) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(List.of(type));
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (current.equals(target)) {
+                return true;
+            }
+            if (visited.add(current)) {
+                pending.addAll(supertypes.getOrDefault(current, Set.of()));
+            }
+        }
+        return false;
+    }
+
+    private void registerFieldInjections(ClassOrInterfaceDeclaration cls, String qualifiedName) {
+        // Construtores do Lombok: campos final (@RequiredArgsConstructor) ou todos (@AllArgsConstructor),
+        // sempre sem inicializador e não estáticos
+        boolean requiredArgs = hasAnnotation(cls, "RequiredArgsConstructor");
+        boolean allArgs = hasAnnotation(cls, "AllArgsConstructor");
+        boolean bean = cls.getAnnotations().stream().anyMatch(annotation -> STEREOTYPES.contains(simpleName(annotation)));
+
+        for (FieldDeclaration field : cls.getFields()) {
+            boolean annotated = field.getAnnotations().stream()
+                    .anyMatch(annotation -> INJECTED_FIELD.contains(simpleName(annotation)));
+            boolean lombok = bean && !field.isStatic() && (allArgs || (requiredArgs && field.isFinal()));
+            if (!annotated && !lombok) {
+                continue;
+            }
+            String qualifier = qualifier(field).orElse(null);
+            if (qualifier == null && hasAnnotation(field, "Resource")) {
+                qualifier = annotationAttribute(field, "Resource", "name").orElse(null);
+            }
+            for (var variable : field.getVariables()) {
+                if (annotated || variable.getInitializer().isEmpty()) {
+                    addInjection(qualifiedName, new Injection(variable.getNameAsString(),
+                            simpleTypeName(variable.getTypeAsString()), qualifier));
+                }
+            }
+        }
+    }
+
+    // Construtor único ou anotado, e setters @Autowired: o parâmetro é ligado ao campo pela atribuição
+    private void registerConstructorInjections(ClassOrInterfaceDeclaration cls, String qualifiedName) {
+        List<CallableDeclaration<?>> injectors = new ArrayList<>();
+        List<ConstructorDeclaration> constructors = cls.getConstructors();
+        if (constructors.size() == 1) {
+            injectors.add(constructors.get(0));
+        } else {
+            constructors.stream()
+                    .filter(constructor -> hasAnnotation(constructor, "Autowired") || hasAnnotation(constructor, "Inject"))
+                    .forEach(injectors::add);
+        }
+        cls.getMethods().stream()
+                .filter(method -> hasAnnotation(method, "Autowired") || hasAnnotation(method, "Inject"))
+                .forEach(injectors::add);
+
+        for (CallableDeclaration<?> injector : injectors) {
+            Map<String, Parameter> parameters = new LinkedHashMap<>();
+            injector.getParameters().forEach(parameter -> parameters.put(parameter.getNameAsString(), parameter));
+            for (AssignExpr assign : injector.findAll(AssignExpr.class)) {
+                Expression value = assign.getValue();
+                Parameter parameter = value.isNameExpr() ? parameters.get(value.asNameExpr().getNameAsString()) : null;
+                if (parameter == null) {
+                    continue;
+                }
+                Expression target = assign.getTarget();
+                String field = target.isFieldAccessExpr() ? target.asFieldAccessExpr().getNameAsString()
+                        : target.isNameExpr() ? target.asNameExpr().getNameAsString() : null;
+                if (field != null && cls.getFieldByName(field).isPresent()) {
+                    addInjection(qualifiedName, new Injection(field, simpleTypeName(parameter.getTypeAsString()),
+                            qualifier(parameter).orElse(null)));
+                }
+            }
+        }
+    }
+
+    // Métodos @Bean: o tipo declarado é o retorno e a implementação é a classe instanciada no return
+    private void registerBeanMethods(CompilationUnit cu, ClassOrInterfaceDeclaration configuration) {
+        for (MethodDeclaration method : configuration.getMethods()) {
+            if (!hasAnnotation(method, "Bean") || !(method.getType() instanceof ClassOrInterfaceType returnType)) {
+                continue;
+            }
+            String implementation = method.findAll(ReturnStmt.class).stream()
+                    .flatMap(returnStmt -> returnStmt.getExpression().stream())
+                    .filter(Expression::isObjectCreationExpr)
+                    .map(Expression::asObjectCreationExpr)
+                    .map(ObjectCreationExpr::getType)
+                    .map(ClassOrInterfaceType::getNameAsString)
+                    .findFirst()
+                    .orElse(returnType.getNameAsString());
+            String name = annotationValue(method, Set.of("Bean")).orElse(method.getNameAsString());
+            beans.add(new Bean(name, qualify(cu, implementation), returnType.getNameAsString(),
+                    hasAnnotation(method, "Primary"), qualifiers(method)));
+        }
+    }
+
+    private void addInjection(String qualifiedName, Injection injection) {
+        injections.computeIfAbsent(qualifiedName, key -> new LinkedHashMap<>()).put(injection.field(), injection);
+    }
+
+    // Nome completo pelo import explícito ou pelo pacote do arquivo
+    private static String qualify(CompilationUnit cu, String simpleName) {
+        return cu.getImports().stream()
+                .filter(importDecl -> !importDecl.isAsterisk() && !importDecl.isStatic())
+                .map(importDecl -> importDecl.getNameAsString())
+                .filter(name -> name.endsWith("." + simpleName))
+                .findFirst()
+                .orElseGet(() -> cu.getPackageDeclaration()
+                        .map(pd -> pd.getNameAsString() + "." + simpleName)
+                        .orElse(simpleName));
+    }
+
+    private static Set<String> qualifiers(NodeWithAnnotations<?> node) {
+        return qualifier(node).map(Set::of).orElse(Set.of());
+    }
+
+    private static Optional<String> qualifier(NodeWithAnnotations<?> node) {
+        return annotationValue(node, QUALIFIERS);
+    }
+
+    private static boolean hasAnnotation(NodeWithAnnotations<?> node, String name) {
+        return node.getAnnotations().stream().anyMatch(annotation -> simpleName(annotation).equals(name));
+    }
+
+    // Valor de @Anotacao("x") ou @Anotacao(value = "x") / @Anotacao(name = "x")
+    private static Optional<String> annotationValue(NodeWithAnnotations<?> node, Set<String> names) {
+        for (AnnotationExpr annotation : node.getAnnotations()) {
+            if (!names.contains(simpleName(annotation))) {
+                continue;
+            }
+            if (annotation instanceof SingleMemberAnnotationExpr single) {
+                return stringValue(single.getMemberValue());
+            }
+            if (annotation instanceof NormalAnnotationExpr normal) {
+                Optional<String> value = attribute(normal, "value");
+                return value.isPresent() ? value : attribute(normal, "name");
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<String> annotationAttribute(NodeWithAnnotations<?> node, String annotationName,
+                                                        String attribute) {
+        return node.getAnnotations().stream()
+                .filter(annotation -> simpleName(annotation).equals(annotationName))
+                .filter(AnnotationExpr::isNormalAnnotationExpr)
+                .findFirst()
+                .flatMap(annotation -> attribute(annotation.asNormalAnnotationExpr(), attribute));
+    }
+
+    private static Optional<String> attribute(NormalAnnotationExpr annotation, String attribute) {
+        return annotation.getPairs().stream()
+                .filter(pair -> pair.getNameAsString().equals(attribute))
+                .findFirst()
+                .flatMap(pair -> stringValue(pair.getValue()));
+    }
+
+    // @Bean({"a", "b"}): o primeiro nome é o principal
+    private static Optional<String> stringValue(Expression value) {
+        if (value instanceof StringLiteralExpr literal) {
+            return Optional.of(literal.getValue()).filter(text -> !text.isEmpty());
+        }
+        if (value.isArrayInitializerExpr()) {
+            NodeList<Expression> values = value.asArrayInitializerExpr().getValues();
+            return values.isEmpty() ? Optional.empty() : stringValue(values.get(0));
+        }
+        return Optional.empty();
+    }
+
+    private static String simpleName(AnnotationExpr annotation) {
+        String name = annotation.getNameAsString();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    // Remove argumentos genéricos, arrays e qualificação: java.util.List<Foo> -> List
+    private static String simpleTypeName(String type) {
+        String name = type;
+        int generic = name.indexOf('<');
+        if (generic != -1) {
+            name = name.substring(0, generic);
+        }
+        name = name.replace("[]", "").strip();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static String decapitalize(String name) {
+        // Regra do Spring (Introspector.decapitalize): "URLService" permanece igual
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Constrói o índice de um doador e imprime os beans e as injeções resolvidas.
+     *
+     * @param args [raiz do código-fonte do doador]
+     */
+    public static void main(String[] args) {
+        try {
+            DependencyInjectionIndex index = build(Paths.get(args[0]));
+            index.beans.forEach(bean -> System.out.println("Bean " + bean.name() + ": " + bean.qualifiedName()
+                    + (bean.primary() ? " (primário)" : "")));
+            index.injections.forEach((cls, fields) -> fields.values().forEach(injection ->
+                    System.out.println(cls + "." + injection.field() + " (" + injection.type() + ") -> "
+                            + index.resolve(cls, injection.field()).map(Bean::qualifiedName).orElse("?"))));
+        } catch (IOException e) {
+            System.out.println("Erro ao indexar o doador: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
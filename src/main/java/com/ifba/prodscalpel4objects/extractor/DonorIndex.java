@@ -0,0 +1,77 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Índice dos métodos públicos do doador que podem ser extraídos.
+ * Guarda apenas os alvos de extração, construídos a partir dos resumos do {@link StreamingDonorScanner}.
+ *
+ * @author lara
+ */
+public class DonorIndex {
+
+    private final List<ExtractionTarget> publicMethods;
+
+    private DonorIndex(List<ExtractionTarget> publicMethods) {
+        this.publicMethods = publicMethods;
+    }
+
+    /**
+     * Constrói o índice percorrendo o doador em modo de fluxo, com orçamento de memória padrão.
+     *
+     * @param sourceRoot O diretório raiz do código-fonte do doador.
+     * @return O índice dos métodos públicos.
+     * @throws IOException Caso ocorra um erro ao percorrer o diretório.
+     */
+    public static DonorIndex build(Path sourceRoot) throws IOException {
+        return build(new StreamingDonorScanner(sourceRoot));
+    }
+
+    /**
+     * Constrói o índice a partir dos resumos produzidos pelo scanner, sem manter nenhuma AST.
+     *
+     * @param scanner O scanner configurado para o doador.
+     * @return O índice dos métodos públicos.
+     * @throws IOException Caso ocorra um erro ao percorrer o diretório.
+     */
+    public static DonorIndex build(StreamingDonorScanner scanner) throws IOException {
+        return fromSummaries(scanner.scan());
+    }
+
+    /**
+     * Constrói o índice a partir de resumos já calculados.
+     *
+     * @param summaries Os resumos dos arquivos do doador.
+     * @return O índice dos métodos públicos.
+     */
+    public static DonorIndex fromSummaries(List<CompilationUnitSummary> summaries) {
+        List<ExtractionTarget> targets = new ArrayList<>();
+        for (CompilationUnitSummary summary : summaries) {
+            if (summary.primaryClass().isEmpty() || summary.isInterface()) {
+                continue;
+            }
+            // O extrator localiza o método pelo nome na primeira classe do arquivo,
+            // por isso sobrecargas geram um único alvo
+            Set<String> methodNames = new LinkedHashSet<>();
+            for (MethodSummary method : summary.methods()) {
+                if (method.isPublic() && method.hasBody()) {
+                    methodNames.add(method.name());
+                }
+            }
+            methodNames.forEach(name -> targets.add(new ExtractionTarget(summary.path(), summary.primaryClass(), name)));
+        }
+        targets.sort(Comparator.comparing(ExtractionTarget::sourceFilePath)
+                .thenComparing(ExtractionTarget::methodName));
+        return new DonorIndex(List.copyOf(targets));
+    }
+
+    public List<ExtractionTarget> getPublicMethods() {
+        return publicMethods;
+    }
+}
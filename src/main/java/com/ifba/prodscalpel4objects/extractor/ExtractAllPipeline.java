@@ -0,0 +1,331 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.ifba.prodscalpel4objects.icebox.IceBox;
+import com.ifba.prodscalpel4objects.icebox.IceBoxVerifier;
+import com.ifba.prodscalpel4objects.icebox.VerificationFailure;
+import com.ifba.prodscalpel4objects.icebox.VerificationReport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Extrai todos os métodos públicos de um doador para o IceBox.
+ * Os alvos vêm do {@link DonorIndex} e passam pelas etapas de um {@link StagedExtractionPipeline};
+ * as extrações compartilham um {@link CompilationUnitCache} limitado, de modo que as classes
+ * usadas por vários métodos são analisadas uma única vez enquanto estiverem no cache.
+ * Cada alvo concluído é registrado em um arquivo de progresso, permitindo retomar uma execução interrompida;
+ * um alvo registrado cujo método não está mais no arquivo da sua classe no IceBox é extraído de novo.
+ * Opcionalmente, ao final o IceBox é compilado por um {@link IceBoxVerifier}, com o classpath mínimo
+ * calculado pelo {@link PomAnalyzer} a partir do pom.xml do doador e dos imports dos arquivos do IceBox.
+ *
+ * @author lara
+ */
+public class ExtractAllPipeline {
+
+    // Extrações em espera entre duas etapas e trabalhadores da etapa de gravação
+    private static final int QUEUE_CAPACITY = 64;
+    private static final int IO_CONCURRENCY = 32;
+
+    private final Path sourceRoot;
+    private final int parallelism;
+    private final CompilationUnitCache compilationUnitCache;
+    private final IceBox iceBox;
+    private final Path progressFile;
+    private IceBoxVerifier verifier;
+    private Path pomFile;
+    private ExtractionBudget budget = ExtractionBudget.unlimited();
+    private boolean minimalEmission;
+    private DependencyInjectionIndex dependencyInjectionIndex;
+
+    /**
+     * Construtor da classe ExtractAllPipeline.
+     *
+     * @param sourceRootPath Caminho do diretório raiz do código-fonte do doador.
+     * @param parallelism    Número de threads das etapas de fechamento e emissão.
+     * @param cacheCapacity  Número máximo de unidades de compilação mantidas em memória.
+     * @param progressFile   Arquivo onde os alvos concluídos são registrados.
+     */
+    public ExtractAllPipeline(String sourceRootPath, int parallelism, int cacheCapacity, Path progressFile) {
+        this(sourceRootPath, parallelism, cacheCapacity, new IceBox(Paths.get(IceBox.DEFAULT_ROOT)), progressFile);
+    }
+
+    /**
+     * Construtor da classe ExtractAllPipeline com um IceBox configurado.
+     *
+     * @param sourceRootPath Caminho do diretório raiz do código-fonte do doador.
+     * @param parallelism    Número de threads das etapas de fechamento e emissão.
+     * @param cacheCapacity  Número máximo de unidades de compilação mantidas em memória.
+     * @param iceBox         IceBox onde os órgãos são salvos.
+     * @param progressFile   Arquivo onde os alvos concluídos são registrados.
+     */
+    public ExtractAllPipeline(String sourceRootPath, int parallelism, int cacheCapacity, IceBox iceBox,
+                              Path progressFile) {
+        this.sourceRoot = Paths.get(sourceRootPath);
+        this.parallelism = parallelism;
+        this.compilationUnitCache = new CompilationUnitCache(cacheCapacity, StreamingDonorScanner.DEFAULT_MEMORY_BUDGET);
+        this.iceBox = iceBox;
+        this.progressFile = progressFile;
+    }
+
+    /**
+     * Define a verificação de compilação executada ao final da extração.
+     *
+     * @param verifier O verificador do IceBox, ou {@code null} para não verificar.
+     */
+    public void setVerifier(IceBoxVerifier verifier) {
+        this.verifier = verifier;
+    }
+
+    /**
+     * Ativa a verificação de compilação ao final da extração, com o classpath mínimo para os imports
+     * dos arquivos do IceBox, formado pelas dependências (diretas e transitivas) do pom.xml do doador.
+     * Tem precedência sobre o verificador definido em {@link #setVerifier(IceBoxVerifier)}.
+     *
+     * @param pomFile O pom.xml do doador, ou {@code null} para não calcular o classpath.
+     */
+    public void setPomFile(Path pomFile) {
+        this.pomFile = pomFile;
+    }
+
+    /**
+     * Ativa a emissão mínima dos órgãos (ver {@link MethodExtractorV1#setMinimalEmission(boolean)}).
+     *
+     * @param minimalEmission {@code true} para podar imports e campos não usados.
+     */
+    public void setMinimalEmission(boolean minimalEmission) {
+        this.minimalEmission = minimalEmission;
+    }
+
+    /**
+     * Define os limites de recursos de cada alvo, para que uma extração patológica
+     * (por exemplo, um fechamento que alcança boa parte do doador) não prenda a execução inteira.
+     * Os alvos interrompidos não são registrados como concluídos e voltam a ser tentados na próxima execução.
+     *
+     * @param budget O orçamento de cada extração.
+     */
+    public void setBudget(ExtractionBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Executa a extração de todos os métodos públicos ainda não concluídos.
+     */
+    public void run() {
+        DonorIndex donorIndex;
+        try {
+            // O índice de injeção é montado na mesma varredura dos resumos
+            DependencyInjectionIndex injectionIndex = new DependencyInjectionIndex();
+            donorIndex = DonorIndex.fromSummaries(new StreamingDonorScanner(sourceRoot,
+                    StreamingDonorScanner.DEFAULT_MEMORY_BUDGET, parallelism).scan(injectionIndex::add));
+            dependencyInjectionIndex = injectionIndex;
+        } catch (Exception e) {
+            System.out.println("Erro na extração do projeto: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        run(donorIndex.getPublicMethods());
+    }
+
+    /**
+     * Executa a extração dos alvos informados ainda não concluídos, na ordem dada
+     * (por exemplo, os métodos ordenados pelo {@link HotMethodRanker}).
+     *
+     * @param targets Os alvos de extração.
+     */
+    public void run(List<ExtractionTarget> targets) {
+        try {
+            Set<String> completed = loadCompleted();
+
+            // Um alvo registrado só é pulado se o método ainda está no arquivo da sua classe no IceBox
+            Map<Path, Set<String>> methodsByFile = new HashMap<>();
+            List<ExtractionTarget> pending = targets.stream()
+                    .filter(target -> !completed.contains(target.id()) || !isExtracted(target, methodsByFile))
+                    .toList();
+            System.out.println("Métodos a extrair: " + targets.size()
+                    + " (pendentes: " + pending.size() + ")");
+
+            MethodExtractorV1 extractor = new MethodExtractorV1(sourceRoot.toString(), compilationUnitCache, iceBox);
+            extractor.setBudget(budget);
+            extractor.setMinimalEmission(minimalEmission);
+            if (dependencyInjectionIndex != null) {
+                extractor.setDependencyInjectionIndex(dependencyInjectionIndex);
+            } else {
+                // Sem a varredura de run(), o índice é construído uma vez para todos os alvos
+                extractor.setBuildDependencyInjectionIndex(true);
+            }
+            Path progressDirectory = progressFile.toAbsolutePath().getParent();
+            if (progressDirectory != null) {
+                Files.createDirectories(progressDirectory);
+            }
+            try (BufferedWriter journal = Files.newBufferedWriter(progressFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                Progress progress = new Progress(pending.size(), journal,
+                        target -> isExtracted(target, new HashMap<>()));
+                StagedExtractionPipeline pipeline = new StagedExtractionPipeline(extractor, QUEUE_CAPACITY,
+                        IO_CONCURRENCY, parallelism);
+                for (StagedExtractionPipeline.StageReport stage : pipeline.run(pending, progress::completed)) {
+                    System.out.println("Etapa de " + stage.stage() + ": " + stage.processed() + " processados, "
+                            + stage.failed() + " não concluídos (orçamento excedido: " + stage.cancelled() + "), "
+                            + (stage.errors().size() - stage.cancelled()) + " erros.");
+                }
+                System.out.println("Extração concluída: " + progress.succeeded.get() + " de " + pending.size()
+                        + " métodos (falhas: " + progress.failed.get() + ", cache: "
+                        + compilationUnitCache.getHits() + " acertos, " + compilationUnitCache.getMisses() + " análises).");
+            }
+            if (verifier != null || pomFile != null) {
+                verify(targets);
+            }
+        } catch (Exception e) {
+            System.out.println("Erro na extração do projeto: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Compila o IceBox e reporta cada erro com os alvos de extração que o produziram
+    private void verify(List<ExtractionTarget> targets) throws IOException {
+        Map<String, ExtractionTarget> targetsByOrgan = new HashMap<>();
+        for (ExtractionTarget target : targets) {
+            targetsByOrgan.put(target.className() + "#" + target.methodName(), target);
+        }
+
+        IceBoxVerifier activeVerifier = pomFile != null
+                ? new IceBoxVerifier(iceBox, minimalClasspath(), parallelism)
+                : verifier;
+        VerificationReport report = activeVerifier.verify();
+        for (VerificationFailure failure : report.failures()) {
+            System.out.println("Erro de compilação em " + failure.file() + ":" + failure.line() + ": " + failure.message());
+            for (String organ : failure.targets()) {
+                // Os órgãos são identificados por pacote.Classe#metodo; os alvos, pela classe simples
+                String simpleName = organ.substring(organ.lastIndexOf('.', organ.indexOf('#')) + 1);
+                ExtractionTarget target = targetsByOrgan.get(simpleName);
+                System.out.println("    alvo: " + (target != null ? target.id() : organ));
+            }
+        }
+        System.out.println("Verificação do IceBox: " + report.files() + " arquivos (já verificados: " + report.cached()
+                + ", erros: " + report.failures().size() + ").");
+    }
+
+    // Os jars das dependências do doador que fornecem os imports dos arquivos do IceBox
+    private List<Path> minimalClasspath() throws IOException {
+        PomAnalyzer analyzer = new PomAnalyzer();
+        analyzer.index(pomFile);
+        Set<String> imports = new HashSet<>();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(iceBox.getRoot())) {
+            // Diretórios ocultos (locks, temporários) não fazem parte do IceBox
+            files = paths.filter(path -> path.toString().endsWith(".java"))
+                    .filter(path -> !iceBox.getRoot().relativize(path).toString().startsWith("."))
+                    .toList();
+        }
+        JavaParser parser = new JavaParser();
+        for (Path file : files) {
+            parser.parse(file).getResult().ifPresent(cu -> cu.getImports().forEach(importDecl ->
+                    imports.add((importDecl.isStatic() ? "static " : "") + importDecl.getNameAsString()
+                            + (importDecl.isAsterisk() ? ".*" : ""))));
+        }
+        List<Path> classpath = analyzer.minimalClasspath(imports);
+        System.out.println("Classpath da verificação: " + classpath.size() + " jars para " + imports.size() + " imports.");
+        return classpath;
+    }
+
+    /**
+     * Verifica se o método do alvo está no arquivo da sua classe no IceBox.
+     *
+     * @param target        O alvo de extração.
+     * @param methodsByFile Os métodos já lidos de cada arquivo, para não analisar o mesmo arquivo várias vezes.
+     * @return {@code true} se o método foi encontrado.
+     */
+    private boolean isExtracted(ExtractionTarget target, Map<Path, Set<String>> methodsByFile) {
+        Path relativeDirectory = sourceRoot.toAbsolutePath().normalize()
+                .relativize(Paths.get(target.sourceFilePath()).toAbsolutePath().normalize()).getParent();
+        Path classFile = iceBox.resolve((relativeDirectory != null ? relativeDirectory + "/" : "")
+                + target.className() + ".java");
+        Set<String> methods = methodsByFile.computeIfAbsent(classFile, file -> {
+            Set<String> names = new HashSet<>();
+            try {
+                if (Files.exists(file)) {
+                    new JavaParser().parse(Files.readString(file)).getResult().ifPresent(cu ->
+                            cu.findAll(MethodDeclaration.class).forEach(method -> names.add(method.getNameAsString())));
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao ler o arquivo da classe: " + file);
+            }
+            return names;
+        });
+        return methods.contains(target.methodName());
+    }
+
+    private Set<String> loadCompleted() throws IOException {
+        Set<String> completed = new HashSet<>();
+        if (Files.exists(progressFile)) {
+            for (String line : Files.readAllLines(progressFile)) {
+                if (!line.isBlank()) {
+                    completed.add(line.strip());
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Acompanha o andamento da execução e registra os alvos concluídos.
+     */
+    private static class Progress {
+
+        private final int total;
+        private final int reportStep;
+        private final BufferedWriter journal;
+        private final Predicate<ExtractionTarget> extracted;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        Progress(int total, BufferedWriter journal, Predicate<ExtractionTarget> extracted) {
+            this.total = total;
+            this.reportStep = Math.max(1, total / 100);
+            this.journal = journal;
+            this.extracted = extracted;
+        }
+
+        void completed(ExtractionTarget target, boolean success) {
+            // Só é registrado o alvo cujo método chegou ao arquivo da classe
+            if (success && !extracted.test(target)) {
+                System.err.println("Método ausente no IceBox após a extração: " + target.id());
+                success = false;
+            }
+            if (success) {
+                succeeded.incrementAndGet();
+                synchronized (journal) {
+                    try {
+                        journal.write(target.id());
+                        journal.newLine();
+                        journal.flush();
+                    } catch (IOException e) {
+                        System.err.println("Erro ao registrar o progresso de: " + target.id());
+                    }
+                }
+            } else {
+                failed.incrementAndGet();
+            }
+
+            int done = processed.incrementAndGet();
+            if (done % reportStep == 0 || done == total) {
+                System.out.println("Progresso: " + done + "/" + total + " (" + (done * 100 / total) + "%)");
+            }
+        }
+    }
+}
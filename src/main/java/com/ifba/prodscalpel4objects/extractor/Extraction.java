@@ -0,0 +1,157 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.ifba.prodscalpel4objects.icebox.IceBox;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estado de uma extração entre as etapas do {@link MethodExtractorV1}
+ * (análise, resolução, fechamento, emissão e gravação). Cada etapa preenche os campos
+ * usados pelas seguintes; a extração passa por uma etapa de cada vez, portanto não há acesso concorrente.
+ * Também contabiliza os recursos consumidos pela extração em relação ao seu {@link ExtractionBudget}.
+ *
+ * @author lara
+ */
+class Extraction {
+
+    /**
+     * Uma gravação no IceBox preparada pela etapa de emissão.
+     */
+    @FunctionalInterface
+    interface PendingWrite {
+
+        void apply(IceBox iceBox) throws IOException;
+    }
+
+    final String sourceFilePath;
+    final String methodName;
+
+    // Análise
+    CompilationUnit cu;
+    ClassOrInterfaceDeclaration sourceClass;
+    MethodDeclaration method;
+    Path targetDirectory;
+
+    // Resolução
+    Set<MethodDeclaration> dependentMethods;
+    Set<String> requiredClasses;
+    final Map<String, ClassOrInterfaceDeclaration> externalClasses = new LinkedHashMap<>();
+
+    // Fechamento
+    Set<FieldDeclaration> requiredFields;
+    Set<MethodDeclaration> sameClassMethods;
+    Set<MethodDeclaration> externalMethods;
+    Set<String> accessedMembers;
+    List<ImportDeclaration> organImports;
+    final Map<String, Set<MethodDeclaration>> classDependentMethods = new LinkedHashMap<>();
+    final Map<String, Set<FieldDeclaration>> classRequiredFields = new LinkedHashMap<>();
+
+    // Emissão
+    final List<PendingWrite> writes = new ArrayList<>();
+
+    // Orçamento
+    ExtractionBudget budget = ExtractionBudget.unlimited();
+    private final Set<Path> loadedFiles = new HashSet<>();
+    private long heapBytes;
+    private int closureSize;
+    private long activeNanos;
+    private long stageStartNanos;
+
+    Extraction(String sourceFilePath, String methodName) {
+        this.sourceFilePath = sourceFilePath;
+        this.methodName = methodName;
+    }
+
+    /**
+     * Identificador da extração nas mensagens.
+     *
+     * @return {@code caminho#metodo}.
+     */
+    String id() {
+        return sourceFilePath + "#" + methodName;
+    }
+
+    /**
+     * Marca o início de uma etapa; o tempo do orçamento só corre entre {@code enterStage} e {@link #leaveStage()}.
+     */
+    void enterStage() {
+        stageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Marca o fim de uma etapa.
+     */
+    void leaveStage() {
+        activeNanos += System.nanoTime() - stageStartNanos;
+        stageStartNanos = 0;
+    }
+
+    /**
+     * Verifica o tempo gasto pela extração.
+     *
+     * @throws BudgetExceededException Caso o tempo do orçamento tenha se esgotado.
+     */
+    void checkBudget() {
+        if (elapsedNanos() > budget.wallTime().toNanos()) {
+            throw exceeded(ExtractionBudget.Limit.WALL_TIME);
+        }
+    }
+
+    /**
+     * Registra o tamanho atual do fechamento de dependências.
+     *
+     * @param size Número de métodos dependentes encontrados.
+     * @throws BudgetExceededException Caso o fechamento ou o tempo ultrapassem o orçamento.
+     */
+    void closureGrew(int size) {
+        closureSize = size;
+        if (size > budget.maxClosureSize()) {
+            throw exceeded(ExtractionBudget.Limit.CLOSURE_SIZE);
+        }
+        checkBudget();
+    }
+
+    /**
+     * Registra um arquivo do doador antes da sua análise. Um arquivo já carregado por esta extração
+     * não é contado de novo, mesmo que tenha saído do cache.
+     *
+     * @param file        Caminho normalizado do arquivo.
+     * @param sourceBytes Tamanho do arquivo em bytes.
+     * @throws BudgetExceededException Caso os arquivos, o heap estimado ou o tempo ultrapassem o orçamento.
+     */
+    void loading(Path file, long sourceBytes) {
+        checkBudget();
+        if (!loadedFiles.add(file)) {
+            return;
+        }
+        // Mesma estimativa usada pelo CompilationUnitCache: a AST e o texto original
+        heapBytes += MemoryBudget.estimateAstBytes(sourceBytes) + sourceBytes * 2;
+        if (loadedFiles.size() > budget.maxFilesParsed()) {
+            throw exceeded(ExtractionBudget.Limit.FILES_PARSED);
+        }
+        if (heapBytes > budget.maxHeapBytes()) {
+            throw exceeded(ExtractionBudget.Limit.HEAP);
+        }
+    }
+
+    private long elapsedNanos() {
+        return activeNanos + (stageStartNanos == 0 ? 0 : System.nanoTime() - stageStartNanos);
+    }
+
+    private BudgetExceededException exceeded(ExtractionBudget.Limit limit) {
+        return new BudgetExceededException(limit, id(), closureSize, loadedFiles.size(), heapBytes,
+                elapsedNanos() / 1_000_000);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.time.Duration;
+
+/**
+ * Limites de recursos de uma única extração. As verificações são cooperativas: o laço do fechamento
+ * de dependências e a carga de arquivos do doador conferem o orçamento e interrompem a extração
+ * com uma {@link BudgetExceededException} quando um limite é ultrapassado.
+ *
+ * @param wallTime       Tempo máximo gasto nas etapas da extração (sem contar a espera nas filas do pipeline).
+ * @param maxClosureSize Número máximo de métodos dependentes no fechamento.
+ * @param maxFilesParsed Número máximo de arquivos do doador carregados.
+ * @param maxHeapBytes   Heap estimado máximo das árvores sintáticas carregadas
+ *                       (ver {@link MemoryBudget#estimateAstBytes(long)}).
+ */
+public record ExtractionBudget(Duration wallTime, int maxClosureSize, int maxFilesParsed, long maxHeapBytes) {
+
+    /**
+     * Os limites do orçamento.
+     */
+    public enum Limit {
+        WALL_TIME("tempo"),
+        CLOSURE_SIZE("tamanho do fechamento"),
+        FILES_PARSED("arquivos analisados"),
+        HEAP("heap estimado");
+
+        private final String description;
+
+        Limit(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    /**
+     * Orçamento sem limites, usado quando nenhum é configurado.
+     *
+     * @return O orçamento.
+     */
+    public static ExtractionBudget unlimited() {
+        return new ExtractionBudget(Duration.ofNanos(Long.MAX_VALUE), Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+/**
+ * Representa um método a ser extraído do doador.
+ *
+ * @param sourceFilePath Caminho do arquivo-fonte que contém o método.
+ * @param className      Nome da classe que declara o método.
+ * @param methodName     Nome do método.
+ */
+public record ExtractionTarget(String sourceFilePath, String className, String methodName) {
+
+    /**
+     * Identificador estável do alvo, usado no registro de progresso.
+     *
+     * @return O identificador no formato {@code caminho#metodo}.
+     */
+    public String id() {
+        return sourceFilePath + "#" + methodName;
+    }
+}
@@ -0,0 +1,240 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Ordena os métodos públicos do doador pelo tempo de execução observado em uma gravação do JFR
+ * (eventos {@code jdk.ExecutionSample}) e pelo custo de extração, medido pelo tamanho do fechamento
+ * que a extração copiaria: o método, os métodos dependentes e as classes do doador exigidas, calculados
+ * pelas etapas de análise e resolução do {@link MethodExtractorV1} com um orçamento pequeno.
+ * Quando essas etapas falham, o tamanho é estimado pelo grafo de chamadas dos resumos do
+ * {@link StreamingDonorScanner}; quando o orçamento é excedido, o fechamento conta como o limite do orçamento.
+ * Os métodos quentes e com fechamento pequeno aparecem primeiro.
+ *
+ * @author lara
+ */
+public class HotMethodRanker {
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final int CACHE_CAPACITY = 256;
+
+    // Orçamento da medição do fechamento de cada método: além dele, o método é caro de extrair
+    private static final ExtractionBudget CLOSURE_BUDGET = new ExtractionBudget(Duration.ofSeconds(5), 200, 200,
+            Long.MAX_VALUE);
+
+    private final Path sourceRoot;
+
+    /**
+     * Construtor da classe HotMethodRanker.
+     *
+     * @param sourceRoot O diretório raiz do código-fonte do doador.
+     */
+    public HotMethodRanker(Path sourceRoot) {
+        this.sourceRoot = sourceRoot;
+    }
+
+    /**
+     * Ordena os métodos do doador que aparecem na gravação.
+     *
+     * @param recording A gravação do JFR do doador em execução.
+     * @param limit     Quantidade máxima de métodos retornados.
+     * @return Os métodos ordenados pela pontuação, da maior para a menor.
+     * @throws IOException Caso a gravação ou o doador não possam ser lidos.
+     */
+    public List<RankedMethod> rank(Path recording, int limit) throws IOException {
+        // O índice de injeção é montado na mesma varredura dos resumos, como na extração
+        DependencyInjectionIndex injectionIndex = new DependencyInjectionIndex();
+        List<CompilationUnitSummary> summaries = new StreamingDonorScanner(sourceRoot).scan(injectionIndex::add);
+        Map<String, long[]> samples = readSamples(recording);
+        CallGraph callGraph = new CallGraph(summaries);
+        MethodExtractorV1 extractor = new MethodExtractorV1(sourceRoot.toString(),
+                new CompilationUnitCache(CACHE_CAPACITY));
+        extractor.setBudget(CLOSURE_BUDGET);
+        extractor.setDependencyInjectionIndex(injectionIndex);
+        Map<String, CompilationUnitSummary> byPath = new HashMap<>();
+        for (CompilationUnitSummary summary : summaries) {
+            byPath.putIfAbsent(summary.path(), summary);
+        }
+        List<RankedMethod> ranked = new ArrayList<>();
+        for (ExtractionTarget target : DonorIndex.fromSummaries(summaries).getPublicMethods()) {
+            CompilationUnitSummary summary = byPath.get(target.sourceFilePath());
+            if (summary == null) {
+                continue;
+            }
+            long[] counts = samples.get(qualifiedName(summary) + "#" + target.methodName());
+            if (counts == null) {
+                continue;
+            }
+            int closureSize = closureSize(extractor, target, () -> callGraph.closureSize(summary, target.methodName()));
+            ranked.add(new RankedMethod(target, counts[0], counts[1], closureSize, (double) counts[0] / closureSize));
+        }
+
+        ranked.sort(Comparator.comparingDouble(RankedMethod::score).reversed()
+                .thenComparing(method -> method.target().id()));
+        return ranked.size() > limit ? List.copyOf(ranked.subList(0, limit)) : List.copyOf(ranked);
+    }
+
+    // O método, os métodos dependentes e as classes do doador que a extração copiaria
+    private static int closureSize(MethodExtractorV1 extractor, ExtractionTarget target, IntSupplier estimate) {
+        Extraction extraction = new Extraction(target.sourceFilePath(), target.methodName());
+        extraction.enterStage();
+        try {
+            if (!extractor.parse(extraction)) {
+                return estimate.getAsInt();
+            }
+            extractor.resolve(extraction);
+            return 1 + extraction.dependentMethods.size() + extraction.externalClasses.size();
+        } catch (BudgetExceededException e) {
+            return Math.max(CLOSURE_BUDGET.maxClosureSize(), estimate.getAsInt());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Fechamento estimado pelo grafo de chamadas para " + target.id() + ": " + e.getMessage());
+            return estimate.getAsInt();
+        } finally {
+            extraction.leaveStage();
+        }
+    }
+
+    // Por método (pacote.Classe#metodo): amostras inclusivas e próprias
+    private static Map<String, long[]> readSamples(Path recording) throws IOException {
+        Map<String, long[]> samples = new HashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                if (!event.getEventType().getName().equals(EXECUTION_SAMPLE) || event.getStackTrace() == null) {
+                    continue;
+                }
+                // Um método recursivo conta uma única vez por amostra
+                Set<String> seen = new HashSet<>();
+                boolean top = true;
+                for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                    RecordedMethod method = frame.getMethod();
+                    if (method == null || !frame.isJavaFrame()) {
+                        continue;
+                    }
+                    String key = topLevelName(method.getType().getName()) + "#" + method.getName();
+                    long[] counts = samples.computeIfAbsent(key, ignored -> new long[2]);
+                    if (seen.add(key)) {
+                        counts[0]++;
+                    }
+                    if (top) {
+                        counts[1]++;
+                        top = false;
+                    }
+                }
+            }
+        }
+        return samples;
+    }
+
+    // Classes internas e anônimas (Classe$Interna, Classe$1) são atribuídas à classe do arquivo
+    private static String topLevelName(String binaryName) {
+        int dollar = binaryName.indexOf('$');
+        return dollar == -1 ? binaryName : binaryName.substring(0, dollar);
+    }
+
+    private static String qualifiedName(CompilationUnitSummary summary) {
+        return summary.packageName().isEmpty()
+                ? summary.primaryClass()
+                : summary.packageName() + "." + summary.primaryClass();
+    }
+
+    /**
+     * Grafo de chamadas aproximado dos resumos, usado quando o fechamento não pode ser medido pela extração: resolve chamadas sem escopo ou em {@code this}
+     * para a própria classe, chamadas em campos pelo tipo declarado do campo e chamadas estáticas
+     * ({@code Classe.metodo}) pelo nome da classe. Chamadas em variáveis locais não são seguidas.
+     */
+    private static class CallGraph {
+
+        private final Map<String, List<CompilationUnitSummary>> bySimpleName = new HashMap<>();
+
+        CallGraph(List<CompilationUnitSummary> summaries) {
+            for (CompilationUnitSummary summary : summaries) {
+                if (!summary.primaryClass().isEmpty()) {
+                    bySimpleName.computeIfAbsent(summary.primaryClass(), key -> new ArrayList<>()).add(summary);
+                }
+            }
+        }
+
+        int closureSize(CompilationUnitSummary start, String methodName) {
+            Set<String> visited = new HashSet<>();
+            Deque<Node> pending = new ArrayDeque<>();
+            pending.add(new Node(start, methodName));
+            while (!pending.isEmpty()) {
+                Node node = pending.poll();
+                if (!visited.add(node.summary().path() + "#" + node.methodName())) {
+                    continue;
+                }
+                for (MethodSummary method : node.summary().methods()) {
+                    if (!method.name().equals(node.methodName())) {
+                        continue;
+                    }
+                    for (String call : method.calls()) {
+                        resolve(node.summary(), call).forEach(pending::add);
+                    }
+                }
+            }
+            return visited.size();
+        }
+
+        private List<Node> resolve(CompilationUnitSummary caller, String call) {
+            int dot = call.lastIndexOf('.');
+            String name = call.substring(dot + 1);
+            if (dot == -1 || call.substring(0, dot).equals("this")) {
+                return declared(caller, name);
+            }
+            String scope = call.substring(0, dot);
+            String type = caller.fieldTypes().getOrDefault(scope, scope);
+            int generic = type.indexOf('<');
+            if (generic != -1) {
+                type = type.substring(0, generic);
+            }
+            CompilationUnitSummary callee = find(caller, type);
+            return callee == null ? List.of() : declared(callee, name);
+        }
+
+        private static List<Node> declared(CompilationUnitSummary summary, String name) {
+            boolean exists = summary.methods().stream().anyMatch(method -> method.name().equals(name));
+            return exists ? List.of(new Node(summary, name)) : List.of();
+        }
+
+        // Entre classes de mesmo nome, prefere a do mesmo pacote e depois a importada
+        private CompilationUnitSummary find(CompilationUnitSummary caller, String simpleName) {
+            List<CompilationUnitSummary> candidates = bySimpleName.getOrDefault(simpleName, List.of());
+            if (candidates.size() <= 1) {
+                return candidates.isEmpty() ? null : candidates.get(0);
+            }
+            for (CompilationUnitSummary candidate : candidates) {
+                if (candidate.packageName().equals(caller.packageName())) {
+                    return candidate;
+                }
+            }
+            for (CompilationUnitSummary candidate : candidates) {
+                if (caller.imports().contains(qualifiedName(candidate))
+                        || caller.imports().contains(candidate.packageName() + ".*")) {
+                    return candidate;
+                }
+            }
+            return candidates.get(0);
+        }
+
+        private record Node(CompilationUnitSummary summary, String methodName) {
+        }
+    }
+}
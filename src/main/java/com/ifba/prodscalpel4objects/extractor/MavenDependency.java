@@ -0,0 +1,24 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.nio.file.Path;
+
+/**
+ * Dependência declarada no pom.xml do doador.
+ *
+ * @param groupId    O groupId da dependência.
+ * @param artifactId O artifactId da dependência.
+ * @param version    A versão, já com as propriedades substituídas.
+ * @param scope      O escopo declarado ({@code compile} quando omitido).
+ * @param jar        O caminho do jar no repositório Maven local.
+ */
+public record MavenDependency(String groupId, String artifactId, String version, String scope, Path jar) {
+
+    /**
+     * Coordenadas da dependência no formato {@code groupId:artifactId:version}.
+     *
+     * @return As coordenadas da dependência.
+     */
+    public String coordinates() {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+/**
+ * Orçamento de memória para árvores sintáticas em uso ao mesmo tempo.
+ * Como o tamanho real de uma {@code CompilationUnit} não é medido, o custo é estimado
+ * a partir do tamanho do arquivo-fonte.
+ *
+ * @author lara
+ */
+public class MemoryBudget {
+
+    // Estimativa de bytes de heap ocupados pela AST do JavaParser por byte de código-fonte
+    private static final long AST_BYTES_PER_SOURCE_BYTE = 40;
+
+    private final long limitBytes;
+    private long inUseBytes;
+
+    /**
+     * Construtor da classe MemoryBudget.
+     *
+     * @param limitBytes Quantidade máxima de bytes estimados em uso simultâneo.
+     */
+    public MemoryBudget(final long limitBytes) {
+        this.limitBytes = limitBytes;
+    }
+
+    /**
+     * Reserva memória do orçamento, bloqueando até que haja espaço disponível.
+     * Um pedido maior que o orçamento inteiro é limitado ao orçamento, para que arquivos
+     * muito grandes ainda possam ser processados (sozinhos).
+     *
+     * @param bytes Quantidade de bytes estimados.
+     * @return A quantidade efetivamente reservada, a ser devolvida em {@link #release(long)}.
+     * @throws InterruptedException Caso a thread seja interrompida durante a espera.
+     */
+    public synchronized long acquire(long bytes) throws InterruptedException {
+        long granted = Math.min(bytes, limitBytes);
+        while (inUseBytes + granted > limitBytes) {
+            wait();
+        }
+        inUseBytes += granted;
+        return granted;
+    }
+
+    /**
+     * Devolve memória reservada ao orçamento.
+     *
+     * @param grantedBytes A quantidade retornada por {@link #acquire(long)}.
+     */
+    public synchronized void release(long grantedBytes) {
+        inUseBytes -= grantedBytes;
+        notifyAll();
+    }
+
+    /**
+     * Estima o heap ocupado pela AST de um arquivo-fonte.
+     *
+     * @param sourceBytes Tamanho do arquivo-fonte em bytes.
+     * @return A estimativa em bytes.
+     */
+    public static long estimateAstBytes(long sourceBytes) {
+        return sourceBytes * AST_BYTES_PER_SOURCE_BYTE;
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+}
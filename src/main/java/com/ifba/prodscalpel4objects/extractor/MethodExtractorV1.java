@@ -3,19 +3,27 @@ package com.ifba.prodscalpel4objects.extractor;
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
 import com.github.javaparser.ast.Modifier;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.FieldDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.expr.NameExpr;
 import com.github.javaparser.ast.expr.ObjectCreationExpr;
 import com.github.javaparser.ast.expr.VariableDeclarationExpr;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.type.Type;
+import com.ifba.prodscalpel4objects.icebox.IceBox;
+import com.ifba.prodscalpel4objects.icebox.Organ;
+import com.ifba.prodscalpel4objects.icebox.OrganFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,7 +39,15 @@ import java.util.*;
 // TODO: -Class annotations are not being preserved in extracted code.
 public class MethodExtractorV1 {
 
+    private static final int DEFAULT_CACHE_CAPACITY = 256;
+
     private final Path sourceRoot;
+    private final CompilationUnitCache compilationUnitCache;
+    private final IceBox iceBox;
+    private boolean minimalEmission;
+    private DependencyInjectionIndex dependencyInjectionIndex;
+    private boolean buildDependencyInjectionIndex;
+    private ExtractionBudget budget = ExtractionBudget.unlimited();
 
     /**
      * Construtor da classe MethodExtractorV1.
@@ -39,157 +55,361 @@ public class MethodExtractorV1 {
      * @param sourceRootPath Caminho do diretório raiz do código-fonte.
      */
     public MethodExtractorV1(String sourceRootPath) {
+        this(sourceRootPath, new CompilationUnitCache(DEFAULT_CACHE_CAPACITY));
+    }
+
+    /**
+     * Construtor da classe MethodExtractorV1 com um cache de unidades de compilação compartilhado.
+     *
+     * @param sourceRootPath       Caminho do diretório raiz do código-fonte.
+     * @param compilationUnitCache Cache compartilhado entre as extrações.
+     */
+    public MethodExtractorV1(String sourceRootPath, CompilationUnitCache compilationUnitCache) {
+        this(sourceRootPath, compilationUnitCache, new IceBox(Paths.get(IceBox.DEFAULT_ROOT)));
+    }
+
+    /**
+     * Construtor da classe MethodExtractorV1 com um cache compartilhado e um IceBox configurado.
+     *
+     * @param sourceRootPath       Caminho do diretório raiz do código-fonte.
+     * @param compilationUnitCache Cache compartilhado entre as extrações.
+     * @param iceBox               IceBox onde os órgãos são salvos.
+     */
+    public MethodExtractorV1(String sourceRootPath, CompilationUnitCache compilationUnitCache, IceBox iceBox) {
         this.sourceRoot = Paths.get(sourceRootPath);
+        this.compilationUnitCache = compilationUnitCache;
+        this.iceBox = iceBox;
+    }
+
+    /**
+     * Ativa a emissão mínima: os órgãos passam a conter apenas os imports referenciados
+     * e os campos alcançados pelos métodos emitidos, em vez de todos os do arquivo de origem.
+     *
+     * @param minimalEmission {@code true} para podar imports e campos não usados.
+     */
+    public void setMinimalEmission(boolean minimalEmission) {
+        this.minimalEmission = minimalEmission;
+    }
+
+    /**
+     * Define os limites de recursos de cada extração. Uma extração que ultrapassa um limite
+     * é interrompida e não grava nada no IceBox.
+     *
+     * @param budget O orçamento de cada extração.
+     */
+    public void setBudget(ExtractionBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Define o índice de injeção de dependências do doador, usado para seguir colaboradores injetados
+     * por interface até a implementação. Sem ele (e sem {@link #setBuildDependencyInjectionIndex}),
+     * os colaboradores injetados não são seguidos.
+     *
+     * @param dependencyInjectionIndex O índice construído para a mesma raiz do código-fonte.
+     */
+    public synchronized void setDependencyInjectionIndex(DependencyInjectionIndex dependencyInjectionIndex) {
+        this.dependencyInjectionIndex = dependencyInjectionIndex;
+    }
+
+    /**
+     * Faz o índice de injeção de dependências ser construído na primeira consulta, quando nenhum foi definido.
+     * A construção analisa todo o doador uma única vez por extrator, então deve ser ativada sempre que o doador
+     * usa injeção de dependências (como o {@code main} e o {@link ExtractAllPipeline} fazem).
+     *
+     * @param buildDependencyInjectionIndex {@code true} para construir o índice sob demanda.
+     */
+    public synchronized void setBuildDependencyInjectionIndex(boolean buildDependencyInjectionIndex) {
+        this.buildDependencyInjectionIndex = buildDependencyInjectionIndex;
     }
 
     /**
      * Método principal para extração do método e suas dependências.
+     * As etapas ({@link #parse}, {@link #resolve}, {@link #closure}, {@link #emit} e {@link #write})
+     * são executadas em sequência; o {@link StagedExtractionPipeline} as executa em paralelo para vários métodos.
      *
      * @param sourceFilePath      Caminho do arquivo-fonte.
      * @param methodToBeExtracted Nome do método a ser extraído.
+     * @return {@code true} se a extração foi concluída.
      */
-    public void extract(String sourceFilePath, String methodToBeExtracted) {
+    public boolean extract(String sourceFilePath, String methodToBeExtracted) {
+        Extraction extraction = new Extraction(sourceFilePath, methodToBeExtracted);
+        extraction.enterStage();
         try {
-            File source = new File(sourceFilePath);
-            JavaParser javaParser = new JavaParser();
-            ParseResult<CompilationUnit> sourceParseResult = javaParser.parse(source);
-
-            Optional<CompilationUnit> cuOpt = sourceParseResult.getResult();
-            if (cuOpt.isEmpty()) {
-                System.out.println("Falha ao analisar o arquivo: " + sourceFilePath);
-                return;
+            if (!parse(extraction)) {
+                return false;
             }
-            CompilationUnit cu = cuOpt.get();
+            resolve(extraction);
+            closure(extraction);
+            emit(extraction);
+            write(extraction);
+            return true;
+        } catch (BudgetExceededException e) {
+            System.out.println("Extração interrompida: " + e.getMessage());
+            return false;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-            Optional<String> packageNameOpt = cu.getPackageDeclaration().map(pd -> pd.getNameAsString());
-            String packagePath = packageNameOpt.map(pkg -> pkg.replace(".", "/")).orElse("");
-            Path targetDirectory = Paths.get("IceBox", packagePath);
-            Files.createDirectories(targetDirectory);
+    /**
+     * Etapa de análise: obtém a unidade de compilação do arquivo e localiza a classe e o método.
+     * A partir daqui a extração fica sujeita ao orçamento configurado.
+     *
+     * @param extraction A extração.
+     * @return {@code false} se o arquivo, a classe ou o método não forem encontrados.
+     * @throws IOException Caso ocorra um erro ao ler o arquivo.
+     * @throws BudgetExceededException Caso o arquivo ultrapasse o orçamento da extração.
+     */
+    boolean parse(Extraction extraction) throws IOException {
+        extraction.budget = budget;
+        Optional<CompilationUnit> cuOpt = load(Paths.get(extraction.sourceFilePath), extraction);
+        if (cuOpt.isEmpty()) {
+            System.out.println("Falha ao analisar o arquivo: " + extraction.sourceFilePath);
+            return false;
+        }
+        CompilationUnit cu = cuOpt.get();
 
-            Optional<ClassOrInterfaceDeclaration> sourceClassOpt = cu.findFirst(ClassOrInterfaceDeclaration.class);
-            if (sourceClassOpt.isEmpty()) {
-                System.out.println("Classe fonte não encontrada.");
-                return;
-            }
-            ClassOrInterfaceDeclaration sourceClass = sourceClassOpt.get();
+        Optional<ClassOrInterfaceDeclaration> sourceClassOpt = cu.findFirst(ClassOrInterfaceDeclaration.class);
+        if (sourceClassOpt.isEmpty()) {
+            System.out.println("Classe fonte não encontrada.");
+            return false;
+        }
+        ClassOrInterfaceDeclaration sourceClass = sourceClassOpt.get();
+
+        MethodDeclaration method = sourceClass.findFirst(MethodDeclaration.class,
+                m -> m.getNameAsString().equals(extraction.methodName)).orElse(null);
+
+        if (method == null) {
+            System.out.println("Método não encontrado: " + extraction.methodName);
+            return false;
+        }
+
+        String packagePath = cu.getPackageDeclaration().map(pd -> pd.getNameAsString().replace(".", "/")).orElse("");
+        extraction.cu = cu;
+        extraction.sourceClass = sourceClass;
+        extraction.method = method;
+        extraction.targetDirectory = iceBox.resolve(packagePath);
+        return true;
+    }
 
-            MethodDeclaration method = sourceClass.findFirst(MethodDeclaration.class,
-                    m -> m.getNameAsString().equals(methodToBeExtracted)).orElse(null);
+    /**
+     * Etapa de resolução: encontra os métodos de que o método depende, separa-os por classe e calcula
+     * os campos do órgão; em seguida encontra as classes exigidas por esse fechamento
+     * e carrega as classes externas do código-fonte.
+     *
+     * @param extraction A extração, já analisada.
+     * @throws IOException Caso ocorra um erro ao ler um arquivo do doador.
+     * @throws BudgetExceededException Caso o fechamento ultrapasse o orçamento da extração.
+     */
+    void resolve(Extraction extraction) throws IOException {
+        CompilationUnit cu = extraction.cu;
+        ClassOrInterfaceDeclaration sourceClass = extraction.sourceClass;
+        extraction.dependentMethods = findAllDependentMethods(extraction.method, sourceClass, cu,
+                Paths.get(extraction.sourceFilePath).getParent(), extraction);
+        memberClosure(extraction);
+        // Na emissão mínima, apenas os tipos dos campos alcançados são exigidos
+        Collection<FieldDeclaration> fields = minimalEmission ? extraction.requiredFields : sourceClass.getFields();
+        extraction.requiredClasses = findRequiredClasses(extraction.method, sourceClass, cu, fields);
+
+        for (String className : extraction.requiredClasses) {
+            if (className.equals(sourceClass.getNameAsString())) {
+                continue;
+            }
+            // Encontra a classe externa no código-fonte
+            Optional<String> importPath = findImportPath(className, cu);
+            if (importPath.isEmpty()) {
+                continue;
+            }
+            Path classFilePath = sourceRoot.resolve(importPath.get().replace(".", "/") + ".java");
+            if (!Files.exists(classFilePath)) {
+                continue;
+            }
+            try {
+                load(classFilePath, extraction)
+                        .flatMap(classCU -> classCU.findFirst(ClassOrInterfaceDeclaration.class))
+                        .ifPresent(externalClass -> extraction.externalClasses.put(className, externalClass));
+            } catch (IOException e) {
+                System.err.println("Erro ao ler o arquivo da classe: " + classFilePath);
+            }
+        }
+    }
 
-            if (method == null) {
-                System.out.println("Método não encontrado: " + methodToBeExtracted);
-                return;
+    // Separa os métodos dependentes por classe e calcula os campos do órgão
+    private void memberClosure(Extraction extraction) {
+        ClassOrInterfaceDeclaration sourceClass = extraction.sourceClass;
+        Set<FieldDeclaration> requiredFields = findRequiredFields(extraction.method, extraction.dependentMethods,
+                sourceClass);
+
+        // Separa os métodos dependentes em duas categorias:
+        // 1. Métodos da mesma classe (AnimalService).
+        // 2. Métodos de outras classes.
+        Set<MethodDeclaration> sameClassMethods = new HashSet<>();
+        Set<MethodDeclaration> externalMethods = new HashSet<>();
+
+        for (MethodDeclaration depMethod : extraction.dependentMethods) {
+            Optional<ClassOrInterfaceDeclaration> parentClassOpt = enclosingClass(depMethod);
+            if (parentClassOpt.isPresent() && parentClassOpt.get().getNameAsString().equals(sourceClass.getNameAsString())) {
+                sameClassMethods.add(depMethod); // Método da mesma classe
+            } else {
+                externalMethods.add(depMethod); // Método de outra classe
             }
+        }
 
-            Set<MethodDeclaration> dependentMethods = findAllDependentMethods(method, sourceClass, cu, Paths.get(sourceFilePath).getParent());
-            Set<FieldDeclaration> requiredFields = findRequiredFields(method, dependentMethods, sourceClass);
+        List<BodyDeclaration<?>> organMethods = new ArrayList<>(sameClassMethods);
+        organMethods.add(extraction.method);
+        Set<String> accessedMembers = Set.of();
+        if (minimalEmission) {
+            // Mantém apenas os campos alcançados (inclusive por this.campo e por inicializadores)
+            requiredFields = OrganPruner.reachedFields(sourceClass, organMethods, Set.of());
+            List<MethodDeclaration> closure = new ArrayList<>(extraction.dependentMethods);
+            closure.add(extraction.method);
+            accessedMembers = OrganPruner.accessedMembers(closure);
+        }
 
-            // Separa os métodos dependentes em duas categorias:
-            // 1. Métodos da mesma classe (AnimalService).
-            // 2. Métodos de outras classes.
-            Set<MethodDeclaration> sameClassMethods = new HashSet<>();
-            Set<MethodDeclaration> externalMethods = new HashSet<>();
+        extraction.requiredFields = requiredFields;
+        extraction.sameClassMethods = sameClassMethods;
+        extraction.externalMethods = externalMethods;
+        extraction.accessedMembers = accessedMembers;
+    }
 
-            for (MethodDeclaration depMethod : dependentMethods) {
-                Optional<ClassOrInterfaceDeclaration> parentClassOpt = depMethod.findAncestor(ClassOrInterfaceDeclaration.class);
-                if (parentClassOpt.isPresent() && parentClassOpt.get().getNameAsString().equals(sourceClass.getNameAsString())) {
-                    sameClassMethods.add(depMethod); // Método da mesma classe
-                } else {
-                    externalMethods.add(depMethod); // Método de outra classe
+    /**
+     * Etapa de fechamento: calcula os imports emitidos e os métodos e campos dependentes de cada classe externa.
+     *
+     * @param extraction A extração, já resolvida.
+     */
+    void closure(Extraction extraction) {
+        List<BodyDeclaration<?>> organMembers = new ArrayList<>(extraction.requiredFields);
+        organMembers.addAll(extraction.sameClassMethods);
+        organMembers.add(extraction.method);
+        extraction.organImports = emittedImports(extraction.cu.getImports(), extraction.sourceClass, organMembers);
+
+        // Encontra os métodos e os campos dependentes em cada classe externa
+        extraction.externalClasses.forEach((className, externalClass) -> {
+            Set<MethodDeclaration> classDependentMethods = new HashSet<>();
+            for (MethodDeclaration externalMethod : extraction.externalMethods) {
+                Optional<ClassOrInterfaceDeclaration> parentClassOpt = enclosingClass(externalMethod);
+                if (parentClassOpt.isPresent() && parentClassOpt.get().getNameAsString().equals(className)) {
+                    classDependentMethods.add(externalMethod);
                 }
             }
+            extraction.classDependentMethods.put(className, classDependentMethods);
+            extraction.classRequiredFields.put(className,
+                    findRequiredFieldsForExternalClass(externalClass, classDependentMethods));
+        });
+    }
 
-            // Salva a classe do método principal junto com os métodos da mesma classe
-            saveClassFile(cu, sourceClass, targetDirectory, method, sameClassMethods, requiredFields);
+    /**
+     * Etapa de emissão: monta o código e o órgão e prepara as gravações, sem escrever no IceBox.
+     * As gravações ficam na ordem em que devem ser aplicadas: a classe do órgão, os métodos externos,
+     * o órgão binário e, por último, as classes dependentes, que são juntadas aos arquivos já existentes.
+     *
+     * @param extraction A extração, com o fechamento calculado.
+     * @throws IOException Caso ocorra um erro ao ler uma classe dependente ou ao codificar o órgão.
+     */
+    void emit(Extraction extraction) throws IOException {
+        CompilationUnit cu = extraction.cu;
+        ClassOrInterfaceDeclaration sourceClass = extraction.sourceClass;
 
-            // Salva métodos externos (de outras classes)
-            for (MethodDeclaration externalMethod : externalMethods) {
-                saveExternalMethod(externalMethod, cu);
-            }
+        // Classe do método principal junto com os métodos da mesma classe
+        String organSource = emitClassFile(cu, sourceClass, extraction.organImports, extraction.targetDirectory,
+                extraction.method, extraction.sameClassMethods, extraction.requiredFields, extraction.writes);
 
-            // Salva classes dependentes
-            Set<String> requiredClasses = findRequiredClasses(method, sourceClass, cu);
-// No método extract, substitua a chamada para saveClass:
-            for (String className : requiredClasses) {
-                // Verifica se a classe atual é a classe fonte
-                if (className.equals(sourceClass.getNameAsString())) {
-                    // Para a classe fonte, usamos os métodos e campos já identificados
-                    saveClass(className, cu, sameClassMethods, requiredFields);
-                } else {
-                    // Para classes externas, precisamos encontrar os métodos e campos dependentes
-                    Set<MethodDeclaration> classDependentMethods = new HashSet<>();
-                    Set<FieldDeclaration> classRequiredFields = new HashSet<>();
-
-                    // Encontra a classe externa no código-fonte
-                    Optional<String> importPath = findImportPath(className, cu);
-                    if (importPath.isPresent()) {
-                        Path classFilePath = sourceRoot.resolve(importPath.get().replace(".", "/") + ".java");
-                        if (Files.exists(classFilePath)) {
-                            try {
-                                // Analisa a classe externa
-                                JavaParser exJavaParser = new JavaParser();
-                                ParseResult<CompilationUnit> parseResult = exJavaParser.parse(classFilePath);
-                                if (parseResult.getResult().isPresent()) {
-                                    CompilationUnit classCU = parseResult.getResult().get();
-                                    Optional<ClassOrInterfaceDeclaration> classOpt = classCU.findFirst(ClassOrInterfaceDeclaration.class);
-
-                                    if (classOpt.isPresent()) {
-                                        ClassOrInterfaceDeclaration externalClass = classOpt.get();
-
-                                        // Encontra os métodos dependentes na classe externa
-                                        for (MethodDeclaration externalMethod : externalMethods) {
-                                            Optional<ClassOrInterfaceDeclaration> parentClassOpt = externalMethod.findAncestor(ClassOrInterfaceDeclaration.class);
-                                            if (parentClassOpt.isPresent() && parentClassOpt.get().getNameAsString().equals(className)) {
-                                                classDependentMethods.add(externalMethod);
-                                            }
-                                        }
-
-                                        // Encontra os campos dependentes na classe externa
-                                        classRequiredFields.addAll(findRequiredFieldsForExternalClass(externalClass, classDependentMethods));
-                                    }
-                                }
-                            } catch (IOException e) {
-                                System.err.println("Erro ao ler o arquivo da classe: " + classFilePath);
-                            }
-                        }
-                    }
+        // Métodos externos (de outras classes)
+        for (MethodDeclaration externalMethod : extraction.externalMethods) {
+            emitExternalMethod(externalMethod, cu, extraction.writes);
+        }
 
-                    // Chama saveClass com os métodos e campos dependentes da classe externa
-                    saveClass(className, cu, classDependentMethods, classRequiredFields);
-                }
+        // Órgão em formato binário, com o fechamento de dependências
+        emitOrganFile(organSource, cu, extraction.organImports, sourceClass, extraction.targetDirectory,
+                extraction.method, extraction.dependentMethods, extraction.requiredFields, extraction.requiredClasses,
+                extraction.writes);
+
+        // Classes dependentes
+        for (String className : extraction.requiredClasses) {
+            if (className.equals(sourceClass.getNameAsString())) {
+                // Para a classe fonte, usamos os métodos e campos já identificados
+                emitClass(className, cu, extraction.sameClassMethods, extraction.requiredFields,
+                        extraction.accessedMembers, extraction.writes);
+            } else {
+                emitClass(className, cu, extraction.classDependentMethods.getOrDefault(className, Set.of()),
+                        extraction.classRequiredFields.getOrDefault(className, Set.of()),
+                        extraction.accessedMembers, extraction.writes);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
     }
 
     /**
-     * Salva o arquivo da classe extraída, contendo o método principal e os métodos dependentes da mesma classe.
+     * Etapa de gravação: aplica no IceBox as gravações preparadas pela emissão.
+     *
+     * @param extraction A extração, já emitida.
+     * @throws IOException Caso ocorra um erro ao escrever um arquivo.
+     */
+    void write(Extraction extraction) throws IOException {
+        for (Extraction.PendingWrite pendingWrite : extraction.writes) {
+            pendingWrite.apply(iceBox);
+        }
+    }
+
+    /**
+     * Prepara a gravação do arquivo da classe extraída, contendo o método principal e os métodos dependentes da mesma classe.
+     * O código é recortado do texto original (ver {@link SourceSliceEmitter}); a AST só é impressa
+     * quando o texto original não está disponível.
      *
      * @param cu               A unidade de compilação da classe.
      * @param cls              A classe a ser salva.
+     * @param imports          Os imports emitidos.
      * @param targetDirectory  O diretório de destino para o arquivo da classe.
      * @param mainMethod       O método principal que está sendo extraído.
      * @param dependentMethods Os métodos dependentes da mesma classe.
      * @param requiredFields   Os campos necessários para os métodos.
-     * @throws IOException Caso ocorra um erro ao escrever o arquivo.
+     * @param writes           As gravações da extração.
+     * @return O código emitido.
+     * @throws IOException Caso ocorra um erro ao ler o texto original.
      */
-    private void saveClassFile(CompilationUnit cu, ClassOrInterfaceDeclaration cls, Path targetDirectory,
-                               MethodDeclaration mainMethod, Set<MethodDeclaration> dependentMethods,
-                               Set<FieldDeclaration> requiredFields) throws IOException {
+    private String emitClassFile(CompilationUnit cu, ClassOrInterfaceDeclaration cls, List<ImportDeclaration> imports,
+                                 Path targetDirectory, MethodDeclaration mainMethod, Set<MethodDeclaration> dependentMethods,
+                                 Set<FieldDeclaration> requiredFields, List<Extraction.PendingWrite> writes) throws IOException {
+        List<BodyDeclaration<?>> keptMembers = new ArrayList<>(requiredFields);
+        keptMembers.add(mainMethod);
+        keptMembers.addAll(dependentMethods);
+
+        Optional<String> slicedCode = compilationUnitCache.getSource(cu)
+                .flatMap(source -> new SourceSliceEmitter(source).emitClass(cu, cls, imports, keptMembers));
+        String code = slicedCode.isPresent()
+                ? slicedCode.get()
+                : printClassFile(cu, cls, imports, mainMethod, dependentMethods, requiredFields);
+
+        // Salva o código no diretório de destino
+        String classFileName = cls.getNameAsString() + ".java";
+        Path classFilePath = targetDirectory.resolve(classFileName);
+        writes.add(box -> {
+            if (box.update(classFilePath, existingCode -> mergeEmittedClass(existingCode, code))) {
+                System.out.println("Classe salva em: " + classFilePath);
+            }
+        });
+        return code;
+    }
+
+    // Monta a classe extraída pela AST, quando o texto original não está disponível
+    private String printClassFile(CompilationUnit cu, ClassOrInterfaceDeclaration cls, List<ImportDeclaration> imports,
+                                  MethodDeclaration mainMethod, Set<MethodDeclaration> dependentMethods,
+                                  Set<FieldDeclaration> requiredFields) {
         // Cria uma nova CompilationUnit com o mesmo pacote e imports
+        // (os nós são clonados porque a unidade de compilação original é compartilhada pelo cache)
         CompilationUnit newCU = new CompilationUnit();
-        cu.getPackageDeclaration().ifPresent(newCU::setPackageDeclaration);
-        cu.getImports().forEach(newCU::addImport);
+        cu.getPackageDeclaration().ifPresent(pd -> newCU.setPackageDeclaration(pd.clone()));
+        imports.forEach(importDecl -> newCU.addImport(importDecl.clone()));
 
         // Cria uma nova classe com o mesmo nome
         ClassOrInterfaceDeclaration newClass = newCU.addClass(cls.getNameAsString());
 
         // Copia as anotações da classe original
-        cls.getAnnotations().forEach(newClass::addAnnotation);
+        cls.getAnnotations().forEach(annotation -> newClass.addAnnotation(annotation.clone()));
 
         // Copia os campos necessários
-        requiredFields.forEach(newClass::addMember);
+        requiredFields.forEach(field -> newClass.addMember(field.clone()));
 
         // Copia o método principal
         newClass.addMember(mainMethod.clone());
@@ -199,22 +419,68 @@ public class MethodExtractorV1 {
             newClass.addMember(depMethod.clone());
         }
 
-        // Salva a nova CompilationUnit no diretório de destino
-        String classFileName = cls.getNameAsString() + ".java";
-        Path classFilePath = targetDirectory.resolve(classFileName);
-        Files.writeString(classFilePath, newCU.toString());
-        System.out.println("Classe salva em: " + classFilePath);
+        return newCU.toString();
+    }
+
+    /**
+     * Prepara a gravação do órgão extraído no formato binário do IceBox ({@code Classe.metodo.organ}),
+     * junto com o fechamento de dependências, os campos exigidos e os imports.
+     *
+     * @param organSource      O código emitido para o órgão.
+     * @param cu               A unidade de compilação de origem.
+     * @param imports          Os imports emitidos.
+     * @param cls              A classe de origem do método.
+     * @param targetDirectory  O diretório de destino.
+     * @param mainMethod       O método principal extraído.
+     * @param dependentMethods Todos os métodos dependentes (da mesma classe e externos).
+     * @param requiredFields   Os campos necessários para os métodos.
+     * @param requiredClasses  As classes necessárias para o método.
+     * @param writes           As gravações da extração.
+     * @throws IOException Caso ocorra um erro ao codificar o órgão.
+     */
+    private void emitOrganFile(String organSource, CompilationUnit cu, List<ImportDeclaration> organImports,
+                               ClassOrInterfaceDeclaration cls, Path targetDirectory, MethodDeclaration mainMethod, Set<MethodDeclaration> dependentMethods,
+                               Set<FieldDeclaration> requiredFields, Set<String> requiredClasses,
+                               List<Extraction.PendingWrite> writes) throws IOException {
+        Set<String> dependencyClosure = new TreeSet<>();
+        for (MethodDeclaration depMethod : dependentMethods) {
+            String ownerName = enclosingClass(depMethod)
+                    .map(ClassOrInterfaceDeclaration::getNameAsString)
+                    .orElse(cls.getNameAsString());
+            dependencyClosure.add(ownerName + "." + depMethod.getNameAsString());
+        }
+        requiredClasses.forEach(className -> dependencyClosure.add(sanitizeClassName(className)));
+
+        List<String> fields = requiredFields.stream().map(FieldDeclaration::toString).sorted().toList();
+        List<String> imports = organImports.stream()
+                .map(importDecl -> (importDecl.isStatic() ? "static " : "") + importDecl.getNameAsString()
+                        + (importDecl.isAsterisk() ? ".*" : ""))
+                .toList();
+
+        Organ organ = new Organ(cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse(""),
+                cls.getNameAsString(), mainMethod.getNameAsString(), organSource, List.copyOf(dependencyClosure),
+                fields, imports, OrganFile.tokenize(organSource));
+
+        Path organFilePath = targetDirectory.resolve(cls.getNameAsString() + "." + mainMethod.getNameAsString()
+                + OrganFile.EXTENSION);
+        byte[] content = OrganFile.encode(organ);
+        writes.add(box -> {
+            box.write(organFilePath, content);
+            System.out.println("Órgão salvo em: " + organFilePath);
+        });
     }
 
     /**
-     * Salva o método externo em um arquivo se ele ainda não existir.
+     * Prepara a gravação do método externo no arquivo da sua classe, se ele ainda não existir lá.
      *
      * @param method   O método a ser salvo.
      * @param sourceCU A unidade de compilação do código-fonte.
-     * @throws IOException Caso ocorra um erro ao escrever o arquivo.
+     * @param writes   As gravações da extração.
+     * @throws IOException Caso ocorra um erro ao ler o texto original do método.
      */
-    private void saveExternalMethod(MethodDeclaration method, CompilationUnit sourceCU) throws IOException {
-        Optional<ClassOrInterfaceDeclaration> parentClassOpt = method.findAncestor(ClassOrInterfaceDeclaration.class);
+    private void emitExternalMethod(MethodDeclaration method, CompilationUnit sourceCU,
+                                    List<Extraction.PendingWrite> writes) throws IOException {
+        Optional<ClassOrInterfaceDeclaration> parentClassOpt = enclosingClass(method);
         if (parentClassOpt.isEmpty()) return;
 
         ClassOrInterfaceDeclaration parentClass = parentClassOpt.get();
@@ -228,55 +494,96 @@ public class MethodExtractorV1 {
             packagePath = packagePath.substring(0, lastDotIndex); // Corta até o último ponto
         }
 
-        // Cria o diretório de destino no IceBox com a estrutura de pacotes original
-        Path methodTargetDirectory = Paths.get("IceBox", packagePath.replace(".", "/"));
-        Files.createDirectories(methodTargetDirectory);
+        // Diretório de destino no IceBox com a estrutura de pacotes original
+        Path methodTargetDirectory = iceBox.resolve(packagePath.replace(".", "/"));
 
         // Define o caminho do arquivo da classe (sem criar subdiretórios adicionais)
         Path classFilePath = methodTargetDirectory.resolve(parentClass.getNameAsString() + ".java");
 
-        CompilationUnit methodCU;
-        ClassOrInterfaceDeclaration newClass;
-
-        if (Files.exists(classFilePath)) {
-            // Se o arquivo já existe, carrega o conteúdo existente
-            String existingCode = Files.readString(classFilePath);
-            JavaParser parser = new JavaParser();
-            ParseResult<CompilationUnit> parseResult = parser.parse(existingCode);
-
-            if (parseResult.getResult().isPresent()) {
-                methodCU = parseResult.getResult().get();
-                Optional<ClassOrInterfaceDeclaration> existingClassOpt = methodCU.findFirst(ClassOrInterfaceDeclaration.class);
-
-                if (existingClassOpt.isPresent()) {
-                    newClass = existingClassOpt.get();
+        // O método é recortado do texto original do arquivo em que foi declarado
+        Optional<CharBuffer> methodSource = Optional.empty();
+        Optional<CompilationUnit> methodSourceCU = method.findCompilationUnit();
+        if (methodSourceCU.isPresent()) {
+            methodSource = compilationUnitCache.getSource(methodSourceCU.get());
+        }
+        Optional<SourceSliceEmitter> emitter = methodSource.map(SourceSliceEmitter::new);
+
+        // Na emissão mínima os imports vêm do próprio arquivo do método, podados pelo uso
+        List<ImportDeclaration> imports = minimalEmission && methodSourceCU.isPresent()
+                ? OrganPruner.requiredImports(methodSourceCU.get().getImports(), null, List.of(method))
+                : sourceCU.getImports();
+
+        // A leitura e a reescrita do arquivo existente são feitas sob o lock do IceBox
+        String packageName = packagePath;
+        writes.add(box -> {
+            boolean saved = box.update(classFilePath, existingCode -> {
+                CompilationUnit methodCU;
+                ClassOrInterfaceDeclaration newClass;
+
+                if (existingCode.isPresent()) {
+                    // Se o arquivo já existe, carrega o conteúdo existente
+                    JavaParser parser = new JavaParser();
+                    ParseResult<CompilationUnit> parseResult = parser.parse(existingCode.get());
+
+                    if (parseResult.getResult().isPresent()) {
+                        methodCU = parseResult.getResult().get();
+                        Optional<ClassOrInterfaceDeclaration> existingClassOpt = methodCU.findFirst(ClassOrInterfaceDeclaration.class);
+
+                        if (existingClassOpt.isPresent()) {
+                            newClass = existingClassOpt.get();
+                            boolean methodExists = newClass.getMethods().stream()
+                                    .anyMatch(m -> m.getNameAsString().equals(method.getNameAsString()));
+                            if (methodExists) {
+                                return Optional.empty();
+                            }
+                            // Insere o texto original do método sem reimprimir o arquivo existente
+                            CompilationUnit existingCU = methodCU;
+                            Optional<String> mergedCode = emitter.flatMap(sliceEmitter ->
+                                    sliceEmitter.mergeInto(existingCode.get(), existingCU, imports, method));
+                            if (mergedCode.isPresent()) {
+                                return mergedCode;
+                            }
+                        } else {
+                            newClass = methodCU.addClass(parentClass.getNameAsString());
+                        }
+                    } else {
+                        return Optional.empty(); // Erro ao carregar o arquivo existente
+                    }
                 } else {
+                    Optional<String> newCode = emitter.flatMap(sliceEmitter -> sliceEmitter.emitNewClass(
+                            packageName, parentClass.getNameAsString(), imports, List.of(method)));
+                    if (newCode.isPresent()) {
+                        return newCode;
+                    }
+                    // Cria um novo arquivo se ele não existir
+                    methodCU = new CompilationUnit();
+                    methodCU.setPackageDeclaration(packageName); // Usa o packagePath sem o nome da classe
                     newClass = methodCU.addClass(parentClass.getNameAsString());
                 }
-            } else {
-                return; // Erro ao carregar o arquivo existente
-            }
-        } else {
-            // Cria um novo arquivo se ele não existir
-            methodCU = new CompilationUnit();
-            methodCU.setPackageDeclaration(packagePath); // Usa o packagePath sem o nome da classe
-            newClass = methodCU.addClass(parentClass.getNameAsString());
-        }
 
-        // Adiciona os imports necessários
-        sourceCU.getImports().forEach(methodCU::addImport);
+                // Adiciona os imports necessários
+                for (ImportDeclaration importDecl : imports) {
+                    methodCU.addImport(importDecl.clone());
+                }
+
+                // Verifica se o método já existe no arquivo
+                boolean methodExists = newClass.getMethods().stream()
+                        .anyMatch(m -> m.getNameAsString().equals(method.getNameAsString()));
 
-        // Verifica se o método já existe no arquivo
-        boolean methodExists = newClass.getMethods().stream()
-                .anyMatch(m -> m.getNameAsString().equals(method.getNameAsString()));
+                if (methodExists) {
+                    return Optional.empty();
+                }
+                // Adiciona o método ao arquivo
+                newClass.addMember(method.clone());
+                return Optional.of(methodCU.toString());
+            });
 
-        if (!methodExists) {
-            // Adiciona o método ao arquivo
-            newClass.addMember(method.clone());
-            Files.writeString(classFilePath, methodCU.toString());
-            System.out.println("Método salvo em: " + classFilePath);
-        }
+            if (saved) {
+                System.out.println("Método salvo em: " + classFilePath);
+            }
+        });
     }
+
     /**
      * Encontra o caminho de importação de uma classe, se ela existir no código.
      * Agora com suporte para importações com *.
@@ -291,7 +598,7 @@ public class MethodExtractorV1 {
 
         // Verifica as importações explícitas
         Optional<String> explicitImport = sourceCU.getImports().stream()
-                .map(importDecl -> importDecl.getName().toString())
+                .map(importDecl -> importDecl.getNameAsString())
                 .filter(importedClass -> importedClass.endsWith(sanitizedClassName))
                 .findFirst();
 
@@ -302,7 +609,7 @@ public class MethodExtractorV1 {
         // Verifica importações com *
         Optional<String> wildcardImport = sourceCU.getImports().stream()
                 .filter(importDecl -> importDecl.isAsterisk()) // Verifica se é uma importação com *
-                .map(importDecl -> importDecl.getName().toString() + "." + sanitizedClassName) // Constrói o caminho completo
+                .map(importDecl -> importDecl.getNameAsString() + "." + sanitizedClassName) // Constrói o caminho completo
                 .filter(importedClass -> {
                     // Verifica se o arquivo da classe existe no pacote
                     Path classFilePath = sourceRoot.resolve(importedClass.replace(".", "/") + ".java");
@@ -330,7 +637,9 @@ public class MethodExtractorV1 {
             return Optional.of(sanitizedClassName);
         }
 
-        return Optional.empty();
+        // Implementações alcançadas por injeção não costumam ser importadas por quem as usa
+        return dependencyInjectionIndex().qualifiedName(sanitizedClassName)
+                .filter(qualifiedName -> Files.exists(sourceRoot.resolve(qualifiedName.replace(".", "/") + ".java")));
     }
 
     /**
@@ -340,12 +649,14 @@ public class MethodExtractorV1 {
      * @param sourceClass A classe onde os métodos são definidos.
      * @param sourceCU    A unidade de compilação do código-fonte.
      * @param sourceRoot  O diretório raiz do código-fonte.
+     * @param extraction  A extração, cujo orçamento é verificado a cada método processado.
      * @return Um conjunto de métodos dependentes.
      */
     private Set<MethodDeclaration> findAllDependentMethods(MethodDeclaration method,
                                                            ClassOrInterfaceDeclaration sourceClass,
                                                            CompilationUnit sourceCU,
-                                                           Path sourceRoot) {
+                                                           Path sourceRoot,
+                                                           Extraction extraction) {
         Set<MethodDeclaration> allDependentMethods = new HashSet<>();
         Set<MethodDeclaration> processedMethods = new HashSet<>();
         Set<MethodDeclaration> methodsToProcess = new HashSet<>();
@@ -357,10 +668,14 @@ public class MethodExtractorV1 {
 
             if (processedMethods.contains(currentMethod)) continue;
             processedMethods.add(currentMethod);
+            extraction.checkBudget();
 
+            // Chamadas sem escopo são procuradas na classe do próprio método (que pode ser uma implementação injetada)
+            ClassOrInterfaceDeclaration currentClass = enclosingClass(currentMethod)
+                    .orElse(sourceClass);
             List<MethodCallExpr> methodCalls = currentMethod.findAll(MethodCallExpr.class);
             for (MethodCallExpr call : methodCalls) {
-                Optional<MethodDeclaration> dependentMethodOpt = sourceClass.findFirst(MethodDeclaration.class,
+                Optional<MethodDeclaration> dependentMethodOpt = currentClass.findFirst(MethodDeclaration.class,
                         m -> m.getNameAsString().equals(call.getNameAsString()));
 
                 if (dependentMethodOpt.isPresent()) {
@@ -368,13 +683,15 @@ public class MethodExtractorV1 {
                     if (!processedMethods.contains(dependentMethod)) {
                         allDependentMethods.add(dependentMethod);
                         methodsToProcess.add(dependentMethod);
+                        extraction.closureGrew(allDependentMethods.size());
                     }
                 } else {
-                    dependentMethodOpt = findExternalMethod(call, sourceCU);
+                    dependentMethodOpt = findExternalMethod(call, sourceCU, extraction);
                     dependentMethodOpt.ifPresent(dependentMethod -> {
                         if (!processedMethods.contains(dependentMethod)) {
                             allDependentMethods.add(dependentMethod);
                             methodsToProcess.add(dependentMethod);
+                            extraction.closureGrew(allDependentMethods.size());
                         }
                     });
                 }
@@ -387,10 +704,9 @@ public class MethodExtractorV1 {
                     Path classFilePath = sourceRoot.resolve(importPath.get().replace(".", "/") + ".java");
                     if (Files.exists(classFilePath)) {
                         try {
-                            JavaParser javaParser = new JavaParser();
-                            ParseResult<CompilationUnit> parseResult = javaParser.parse(classFilePath);
-                            if (parseResult.getResult().isPresent()) {
-                                CompilationUnit classCU = parseResult.getResult().get();
+                            Optional<CompilationUnit> classCUOpt = load(classFilePath, extraction);
+                            if (classCUOpt.isPresent()) {
+                                CompilationUnit classCU = classCUOpt.get();
                                 classCU.findFirst(ClassOrInterfaceDeclaration.class)
                                         .ifPresent(classDecl -> {
                                             System.out.println("Classe dependente encontrada: " + classDecl.getNameAsString());
@@ -409,15 +725,21 @@ public class MethodExtractorV1 {
     /**
      * Encontra métodos externos chamados por um método, se eles existirem.
      *
-     * @param call     A expressão de chamada do método.
-     * @param sourceCU A unidade de compilação do código-fonte.
+     * @param call       A expressão de chamada do método.
+     * @param sourceCU   A unidade de compilação do código-fonte.
+     * @param extraction A extração, em cujo orçamento os arquivos carregados são contados.
      * @return O método dependente externo, se encontrado.
      */
-    private Optional<MethodDeclaration> findExternalMethod(MethodCallExpr call, CompilationUnit sourceCU) {
+    private Optional<MethodDeclaration> findExternalMethod(MethodCallExpr call, CompilationUnit sourceCU,
+                                                           Extraction extraction) {
         try {
             String scopeName = call.getScope().map(Object::toString).orElse("");
             if (scopeName.isEmpty()) return Optional.empty();
 
+            // Colaborador injetado: o método é procurado na implementação resolvida pelo índice de injeção
+            Optional<MethodDeclaration> injectedMethod = findInjectedMethod(call, scopeName, extraction);
+            if (injectedMethod.isPresent()) return injectedMethod;
+
             Optional<String> className = sourceCU.findAll(FieldDeclaration.class).stream()
                     .filter(field -> field.getVariables().stream()
                             .anyMatch(variable -> variable.getNameAsString().equals(scopeName)))
@@ -431,18 +753,81 @@ public class MethodExtractorV1 {
             Path classFilePath = sourceRoot.resolve(importPath.get().replace(".", "/") + ".java");
             if (!Files.exists(classFilePath)) return Optional.empty();
 
-            JavaParser javaParser = new JavaParser();
-            ParseResult<CompilationUnit> parseResult = javaParser.parse(classFilePath);
-            return parseResult.getResult()
+            return load(classFilePath, extraction)
                     .flatMap(cu -> cu.findFirst(ClassOrInterfaceDeclaration.class))
                     .flatMap(cls -> cls.findFirst(MethodDeclaration.class,
                             m -> m.getNameAsString().equals(call.getNameAsString())));
+        } catch (BudgetExceededException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return Optional.empty();
         }
     }
 
+    /**
+     * Encontra o método chamado em um campo injetado, na classe do bean que o Spring injetaria.
+     * A classe que recebe a injeção é a que contém a chamada, não necessariamente a classe extraída.
+     *
+     * @param call       A expressão de chamada do método.
+     * @param scopeName  O escopo da chamada (nome do campo, com ou sem {@code this.}).
+     * @param extraction A extração, em cujo orçamento o arquivo da implementação é contado.
+     * @return O método da implementação, se o campo for injetado e a implementação tiver o método com corpo.
+     * @throws IOException Caso o arquivo da implementação não possa ser lido.
+     */
+    private Optional<MethodDeclaration> findInjectedMethod(MethodCallExpr call, String scopeName,
+                                                           Extraction extraction) throws IOException {
+        String fieldName = scopeName.startsWith("this.") ? scopeName.substring("this.".length()) : scopeName;
+        Optional<String> callerClass = enclosingClass(call)
+                .flatMap(ClassOrInterfaceDeclaration::getFullyQualifiedName);
+        if (callerClass.isEmpty()) return Optional.empty();
+
+        Optional<DependencyInjectionIndex.Bean> bean = dependencyInjectionIndex().resolve(callerClass.get(), fieldName);
+        if (bean.isEmpty()) return Optional.empty();
+        Optional<Path> implementationFile = dependencyInjectionIndex().sourceFile(bean.get().qualifiedName());
+        if (implementationFile.isEmpty()) return Optional.empty();
+
+        // O arquivo pode declarar outras classes antes da do bean
+        return load(implementationFile.get(), extraction)
+                .flatMap(cu -> cu.findFirst(ClassOrInterfaceDeclaration.class,
+                        cls -> cls.getNameAsString().equals(bean.get().simpleName())))
+                .flatMap(cls -> cls.findFirst(MethodDeclaration.class,
+                        m -> m.getNameAsString().equals(call.getNameAsString()) && m.getBody().isPresent()));
+    }
+
+    // Classe que declara o nó (equivale a findAncestor(ClassOrInterfaceDeclaration.class),
+    // sem o array genérico criado pela chamada com varargs)
+    private static Optional<ClassOrInterfaceDeclaration> enclosingClass(Node node) {
+        for (Optional<Node> parent = node.getParentNode(); parent.isPresent(); parent = parent.get().getParentNode()) {
+            if (parent.get() instanceof ClassOrInterfaceDeclaration cls) {
+                return Optional.of(cls);
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Carrega uma unidade de compilação pelo cache, contando o arquivo no orçamento da extração antes da análise
+    private Optional<CompilationUnit> load(Path file, Extraction extraction) throws IOException {
+        extraction.loading(file.toAbsolutePath().normalize(), Files.size(file));
+        return compilationUnitCache.get(file);
+    }
+
+    // Constrói o índice de injeção na primeira consulta, se nenhum foi definido e a construção foi pedida;
+    // caso contrário usa um índice vazio
+    private synchronized DependencyInjectionIndex dependencyInjectionIndex() {
+        if (dependencyInjectionIndex == null && !buildDependencyInjectionIndex) {
+            dependencyInjectionIndex = new DependencyInjectionIndex();
+        } else if (dependencyInjectionIndex == null) {
+            try {
+                dependencyInjectionIndex = DependencyInjectionIndex.build(sourceRoot);
+            } catch (IOException e) {
+                System.err.println("Erro ao construir o índice de injeção de dependências: " + e.getMessage());
+                dependencyInjectionIndex = new DependencyInjectionIndex();
+            }
+        }
+        return dependencyInjectionIndex;
+    }
+
     /**
      * Encontra todos os atributos da classe que são usados diretamente pelos métodos fornecidos.
      *
@@ -495,9 +880,11 @@ public class MethodExtractorV1 {
      * @param method      O método analisado.
      * @param sourceClass A classe onde o método está definido.
      * @param sourceCU    A unidade de compilação do código-fonte.
+     * @param fields      Os campos da classe cujos tipos são exigidos.
      * @return Um conjunto de classes necessárias.
      */
-    private Set<String> findRequiredClasses(MethodDeclaration method, ClassOrInterfaceDeclaration sourceClass, CompilationUnit sourceCU) {
+    private Set<String> findRequiredClasses(MethodDeclaration method, ClassOrInterfaceDeclaration sourceClass,
+                                            CompilationUnit sourceCU, Collection<FieldDeclaration> fields) {
         Set<String> requiredClasses = new HashSet<>();
 
         // Adiciona classes usadas como tipos de retorno e parâmetros
@@ -513,19 +900,26 @@ public class MethodExtractorV1 {
         });
 
         // Adiciona classes usadas como tipos de campos
-        sourceClass.getFields().forEach(field -> {
+        Set<String> fieldNames = new HashSet<>();
+        fields.forEach(field -> {
+            field.getVariables().forEach(variable -> fieldNames.add(variable.getNameAsString()));
             if (field.getElementType() instanceof ClassOrInterfaceType) {
                 requiredClasses.add(((ClassOrInterfaceType) field.getElementType()).getNameAsString());
             }
         });
 
-        // Adiciona classes injetadas via Spring (campos com @Autowired ou @RequiredArgsConstructor)
-        sourceClass.getFields().forEach(field -> {
-            if (field.isAnnotationPresent("Autowired") || field.isAnnotationPresent("RequiredArgsConstructor")) {
-                if (field.getElementType() instanceof ClassOrInterfaceType) {
-                    requiredClasses.add(((ClassOrInterfaceType) field.getElementType()).getNameAsString());
+        // Adiciona classes injetadas via Spring (campos, construtores e Lombok) e as implementações
+        // que seriam injetadas, quando o campo é declarado pela interface
+        sourceClass.getFullyQualifiedName().ifPresent(qualifiedName -> {
+            DependencyInjectionIndex injectionIndex = dependencyInjectionIndex();
+            injectionIndex.injectedFields(qualifiedName).values().forEach(injection -> {
+                if (!fieldNames.contains(injection.field())) {
+                    return;
                 }
-            }
+                requiredClasses.add(injection.type());
+                injectionIndex.resolve(qualifiedName, injection.field())
+                        .ifPresent(bean -> requiredClasses.add(bean.simpleName()));
+            });
         });
 
         // Adiciona classes declaradas dentro do método (variáveis locais)
@@ -540,7 +934,9 @@ public class MethodExtractorV1 {
         return requiredClasses;
     }
 
-    private void saveClass(String className, CompilationUnit sourceCU, Set<MethodDeclaration> dependentMethods, Set<FieldDeclaration> requiredFields) throws IOException {
+    private void emitClass(String className, CompilationUnit sourceCU, Set<MethodDeclaration> dependentMethods,
+                           Set<FieldDeclaration> requiredFields, Set<String> accessedMembers,
+                           List<Extraction.PendingWrite> writes) throws IOException {
         // Limpa o nome da classe
         String sanitizedClassName = sanitizeClassName(className);
 
@@ -559,83 +955,175 @@ public class MethodExtractorV1 {
             return;
         }
 
-        // Cria o diretório de destino no IceBox com a estrutura de pacotes original
-        Path targetDirectory = Paths.get("IceBox", packagePath).getParent();
-        if (targetDirectory == null) {
-            System.out.println("Não foi possível determinar o diretório de destino para a classe: " + sanitizedClassName);
-            return;
-        }
-        Files.createDirectories(targetDirectory);
-
-        // Salva a classe no diretório correto
-        Path targetClassFilePath = Paths.get("IceBox", packagePath + ".java");
-        JavaParser javaParser = new JavaParser();
-        ParseResult<CompilationUnit> parseResult = javaParser.parse(classFilePath);
+        // Salva a classe no IceBox, com a estrutura de pacotes original
+        Path targetClassFilePath = iceBox.resolve(packagePath + ".java");
+        Optional<CompilationUnit> classCUOpt = compilationUnitCache.get(classFilePath);
 
-        if (parseResult.getResult().isPresent()) {
-            CompilationUnit classCU = parseResult.getResult().get();
-            Optional<ClassOrInterfaceDeclaration> classOpt = classCU.findFirst(ClassOrInterfaceDeclaration.class);
+        if (classCUOpt.isPresent()) {
+            CompilationUnit classCU = classCUOpt.get();
+            // O arquivo pode declarar outras classes antes da que dá nome a ele
+            Optional<ClassOrInterfaceDeclaration> classOpt = classCU.findFirst(ClassOrInterfaceDeclaration.class,
+                            cls -> cls.getNameAsString().equals(sanitizedClassName))
+                    .or(() -> classCU.findFirst(ClassOrInterfaceDeclaration.class));
 
             if (classOpt.isPresent()) {
                 ClassOrInterfaceDeclaration originalClass = classOpt.get();
+
+                // Todos os campos são mantidos, exceto na emissão mínima, que mantém apenas os alcançados
+                // pelos métodos dependentes e os acessados pelo órgão (objeto.campo)
+                Collection<FieldDeclaration> fields = originalClass.getFields();
+                if (minimalEmission) {
+                    Set<String> seedNames = new HashSet<>(accessedMembers);
+                    requiredFields.forEach(field -> field.getVariables()
+                            .forEach(variable -> seedNames.add(variable.getNameAsString())));
+                    fields = OrganPruner.reachedFields(originalClass, dependentMethods, seedNames);
+                }
+                List<BodyDeclaration<?>> keptMembers = new ArrayList<>(fields);
+                keptMembers.addAll(dependentMethods);
+                List<ImportDeclaration> imports = emittedImports(classCU.getImports(), originalClass, keptMembers);
+
+                // Recorta do texto original os campos e os métodos dependentes
+                Optional<String> slicedCode = compilationUnitCache.getSource(classCU).flatMap(source ->
+                        new SourceSliceEmitter(source).emitClass(classCU, originalClass, imports, keptMembers));
+                if (slicedCode.isPresent()) {
+                    writes.add(box -> {
+                        if (box.update(targetClassFilePath,
+                                existingCode -> mergeEmittedClass(existingCode, slicedCode.get()))) {
+                            System.out.println("Classe salva em: " + targetClassFilePath);
+                        }
+                    });
+                    return;
+                }
+
+                // Sem o texto original, monta a classe pela AST
+                // (os nós são clonados porque a unidade de compilação original é compartilhada pelo cache)
                 CompilationUnit newCU = new CompilationUnit();
-                classCU.getPackageDeclaration().ifPresent(newCU::setPackageDeclaration);
-                classCU.getImports().forEach(newCU::addImport);
+                classCU.getPackageDeclaration().ifPresent(pd -> newCU.setPackageDeclaration(pd.clone()));
+                imports.forEach(importDecl -> newCU.addImport(importDecl.clone()));
 
                 // Cria uma nova classe com o mesmo nome, extends, implements e anotações
                 ClassOrInterfaceDeclaration newClass = newCU.addClass(originalClass.getNameAsString());
 
                 // Copia as anotações da classe original
-                originalClass.getAnnotations().forEach(newClass::addAnnotation);
+                originalClass.getAnnotations().forEach(annotation -> newClass.addAnnotation(annotation.clone()));
 
                 // Copia extends
                 if (originalClass.getExtendedTypes().isNonEmpty()) {
-                    originalClass.getExtendedTypes().forEach(newClass::addExtendedType);
+                    originalClass.getExtendedTypes().forEach(type -> newClass.addExtendedType(type.clone()));
                 }
 
                 // Copia implements
                 if (originalClass.getImplementedTypes().isNonEmpty()) {
-                    originalClass.getImplementedTypes().forEach(newClass::addImplementedType);
+                    originalClass.getImplementedTypes().forEach(type -> newClass.addImplementedType(type.clone()));
                 }
 
-                // Copia todos os campos da classe original, incluindo anotações e modificadores
-                originalClass.getFields().forEach(field -> {
-                    FieldDeclaration newField = new FieldDeclaration();
-
-                    // Copia as anotações do campo
-                    field.getAnnotations().forEach(newField::addAnnotation);
+                // Copia os campos mantidos (o clone já inclui anotações e modificadores)
+                fields.forEach(field -> newClass.addMember(field.clone()));
 
-                    // Copia os modificadores do campo
-                    newField.setModifiers(field.getModifiers()); // Usa setModifiers
-
-                    // Copia as variáveis do campo
-                    field.getVariables().forEach(variable -> newField.addVariable(variable.clone()));
-
-                    // Adiciona o campo à nova classe
-                    newClass.addMember(newField);
-                });
-
-                // Copia os métodos dependentes, incluindo anotações e modificadores
+                // Copia os métodos dependentes (o clone já inclui anotações e modificadores)
                 for (MethodDeclaration method : dependentMethods) {
-                    MethodDeclaration newMethod = method.clone();
-
-                    // Copia as anotações do método
-                    method.getAnnotations().forEach(newMethod::addAnnotation);
-
-                    // Copia os modificadores do método
-                    newMethod.setModifiers(method.getModifiers()); // Usa setModifiers
-
-                    // Adiciona o método à nova classe
-                    newClass.addMember(newMethod);
+                    newClass.addMember(method.clone());
                 }
 
                 // Salva a nova CompilationUnit no diretório de destino
-                Files.writeString(targetClassFilePath, newCU.toString());
-                System.out.println("Classe salva em: " + targetClassFilePath);
+                String code = newCU.toString();
+                writes.add(box -> {
+                    if (box.update(targetClassFilePath, existingCode -> mergeEmittedClass(existingCode, code))) {
+                        System.out.println("Classe salva em: " + targetClassFilePath);
+                    }
+                });
             }
         }
     }
 
+    /**
+     * Junta a classe emitida ao arquivo que já existe no IceBox, para que extrações diferentes
+     * da mesma classe (ou a emissão das classes dependentes) não apaguem os membros umas das outras.
+     * Os membros que ainda não existem no arquivo são recortados do código emitido e inseridos
+     * junto com os imports que faltam; os que já existem são mantidos como estão.
+     *
+     * @param existingCode O conteúdo atual do arquivo (vazio se ele não existe).
+     * @param emittedCode  O código emitido para a classe.
+     * @return O novo conteúdo do arquivo, ou vazio se não há nada a acrescentar
+     * (ou se o arquivo existente não puder ser analisado).
+     */
+    private Optional<String> mergeEmittedClass(Optional<String> existingCode, String emittedCode) {
+        if (existingCode.isEmpty()) {
+            return Optional.of(emittedCode);
+        }
+        JavaParser parser = new JavaParser();
+        Optional<CompilationUnit> emittedCUOpt = parser.parse(emittedCode).getResult();
+        Optional<ClassOrInterfaceDeclaration> emittedClassOpt = emittedCUOpt
+                .flatMap(emittedCU -> emittedCU.findFirst(ClassOrInterfaceDeclaration.class));
+        if (emittedClassOpt.isEmpty()) {
+            return Optional.empty();
+        }
+        SourceSliceEmitter emittedSlices = new SourceSliceEmitter(CharBuffer.wrap(emittedCode));
+        List<ImportDeclaration> emittedImports = emittedCUOpt.get().getImports();
+
+        String mergedCode = existingCode.get();
+        boolean changed = false;
+        for (BodyDeclaration<?> member : emittedClassOpt.get().getMembers()) {
+            // O arquivo é analisado de novo a cada inserção, pois as posições mudam
+            Optional<CompilationUnit> existingCUOpt = parser.parse(mergedCode).getResult();
+            Optional<ClassOrInterfaceDeclaration> existingClassOpt = existingCUOpt
+                    .flatMap(existingCU -> existingCU.findFirst(ClassOrInterfaceDeclaration.class));
+            if (existingClassOpt.isEmpty()) {
+                return Optional.empty();
+            }
+            if (declaresMember(existingClassOpt.get(), member)) {
+                continue;
+            }
+            Optional<String> withMember = emittedSlices.mergeInto(mergedCode, existingCUOpt.get(), emittedImports,
+                    member);
+            if (withMember.isEmpty()) {
+                return Optional.empty();
+            }
+            mergedCode = withMember.get();
+            changed = true;
+        }
+        return changed ? Optional.of(mergedCode) : Optional.empty();
+    }
+
+    // Campos são comparados pelos nomes das variáveis, métodos e construtores pela assinatura
+    // e tipos internos pelo nome
+    private static boolean declaresMember(ClassOrInterfaceDeclaration cls, BodyDeclaration<?> member) {
+        if (member instanceof FieldDeclaration field) {
+            Set<String> names = new HashSet<>();
+            field.getVariables().forEach(variable -> names.add(variable.getNameAsString()));
+            return cls.getFields().stream().flatMap(existing -> existing.getVariables().stream())
+                    .anyMatch(variable -> names.contains(variable.getNameAsString()));
+        }
+        if (member instanceof CallableDeclaration<?> callable) {
+            String signature = callable.getSignature().asString();
+            return cls.getMembers().stream()
+                    .filter(existing -> existing instanceof CallableDeclaration<?>)
+                    .map(existing -> (CallableDeclaration<?>) existing)
+                    .anyMatch(existing -> existing.isConstructorDeclaration() == callable.isConstructorDeclaration()
+                            && existing.getSignature().asString().equals(signature));
+        }
+        if (member instanceof TypeDeclaration<?> type) {
+            return cls.getMembers().stream()
+                    .anyMatch(existing -> existing instanceof TypeDeclaration<?> existingType
+                            && existingType.getNameAsString().equals(type.getNameAsString()));
+        }
+        return cls.getMembers().stream().anyMatch(existing -> existing.equals(member));
+    }
+
+    /**
+     * Retorna os imports a serem emitidos: todos os do arquivo de origem ou, na emissão mínima,
+     * apenas os referenciados pelo cabeçalho da classe e pelos membros emitidos.
+     *
+     * @param imports Os imports do arquivo de origem.
+     * @param cls     A classe cujo cabeçalho é emitido.
+     * @param members Os membros emitidos.
+     * @return Os imports a serem emitidos.
+     */
+    private List<ImportDeclaration> emittedImports(List<ImportDeclaration> imports, ClassOrInterfaceDeclaration cls,
+                                                   Collection<? extends BodyDeclaration<?>> members) {
+        return minimalEmission ? OrganPruner.requiredImports(imports, cls, members) : imports;
+    }
+
     /**
      * Remove caracteres inválidos do nome da classe para criar um caminho de arquivo válido.
      *
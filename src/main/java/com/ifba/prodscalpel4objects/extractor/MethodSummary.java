@@ -0,0 +1,18 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.util.List;
+
+/**
+ * Resumo compacto de um método do doador, mantido após a AST ser descartada.
+ *
+ * @param className Nome da classe que declara o método.
+ * @param name      Nome do método.
+ * @param signature Assinatura do método (tipo de retorno, nome e tipos dos parâmetros).
+ * @param isPublic  Se o método é público.
+ * @param hasBody   Se o método possui corpo (métodos abstratos e de interface não possuem).
+ * @param calls     Chamadas feitas pelo método, no formato {@code escopo.nome} ou apenas {@code nome}.
+ */
+public record MethodSummary(String className, String name, String signature, boolean isPublic,
+                            boolean hasBody, List<String> calls) {
+
+}
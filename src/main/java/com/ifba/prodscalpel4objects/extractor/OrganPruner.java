@@ -0,0 +1,140 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.Name;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Passagem de uso de referências para a emissão mínima dos órgãos: descobre quais nomes os membros
+ * emitidos realmente usam e, a partir deles, quais imports e campos precisam ser mantidos.
+ * A análise é sintática (sem resolução de símbolos), então na dúvida o item é mantido:
+ * imports com {@code *} nunca são removidos.
+ *
+ * @author lara
+ */
+class OrganPruner {
+
+    private OrganPruner() {
+    }
+
+    /**
+     * Retorna os imports exigidos pelos membros emitidos e, se informado, pelo cabeçalho da classe
+     * (anotações, parâmetros de tipo, {@code extends} e {@code implements}).
+     *
+     * @param imports Os imports do arquivo de origem.
+     * @param header  A classe cujo cabeçalho é emitido, ou {@code null} se o cabeçalho não vem do doador.
+     * @param members Os membros emitidos.
+     * @return Os imports usados, na ordem original.
+     */
+    static List<ImportDeclaration> requiredImports(List<ImportDeclaration> imports, ClassOrInterfaceDeclaration header,
+                                                   Collection<? extends Node> members) {
+        List<Node> emitted = new ArrayList<>(members);
+        if (header != null) {
+            emitted.addAll(header.getAnnotations());
+            emitted.addAll(header.getTypeParameters());
+            emitted.addAll(header.getExtendedTypes());
+            emitted.addAll(header.getImplementedTypes());
+        }
+        Set<String> names = referencedNames(emitted);
+
+        List<ImportDeclaration> required = new ArrayList<>();
+        for (ImportDeclaration importDecl : imports) {
+            // Em imports estáticos o identificador é o membro importado; nos demais, o tipo
+            if (importDecl.isAsterisk() || names.contains(importDecl.getName().getIdentifier())) {
+                required.add(importDecl);
+            }
+        }
+        return required;
+    }
+
+    /**
+     * Retorna os campos da classe alcançados a partir dos nós informados, incluindo os campos
+     * usados nos inicializadores de outros campos alcançados.
+     *
+     * @param cls        A classe dona dos campos.
+     * @param roots      Os nós a partir dos quais os campos são alcançados (ex.: os métodos emitidos).
+     * @param extraNames Nomes de campos acessados de fora da classe (ex.: {@code objeto.campo}).
+     * @return Os campos alcançados, na ordem da classe.
+     */
+    static Set<FieldDeclaration> reachedFields(ClassOrInterfaceDeclaration cls, Collection<? extends Node> roots,
+                                               Set<String> extraNames) {
+        Set<String> names = new HashSet<>(extraNames);
+        Deque<Node> pending = new ArrayDeque<>(roots);
+        Set<FieldDeclaration> reached = new LinkedHashSet<>();
+
+        while (!pending.isEmpty()) {
+            pending.poll().walk(node -> {
+                if (node instanceof NameExpr nameExpr) {
+                    names.add(nameExpr.getNameAsString());
+                } else if (node instanceof FieldAccessExpr fieldAccess && fieldAccess.getScope().isThisExpr()) {
+                    names.add(fieldAccess.getNameAsString());
+                }
+            });
+            for (FieldDeclaration field : cls.getFields()) {
+                boolean used = field.getVariables().stream()
+                        .anyMatch(variable -> names.contains(variable.getNameAsString()));
+                if (used && reached.add(field)) {
+                    // O inicializador pode depender de outros campos
+                    pending.add(field);
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Retorna os nomes acessados com qualificador ({@code objeto.nome}) nos nós informados.
+     * São os candidatos a campos de outras classes usados pelo órgão.
+     *
+     * @param nodes Os nós analisados.
+     * @return Os nomes acessados.
+     */
+    static Set<String> accessedMembers(Collection<? extends Node> nodes) {
+        Set<String> names = new HashSet<>();
+        for (Node node : nodes) {
+            node.findAll(FieldAccessExpr.class).forEach(fieldAccess -> names.add(fieldAccess.getNameAsString()));
+        }
+        return names;
+    }
+
+    // Nomes simples que podem depender de um import: tipos, anotações, nomes soltos
+    // (campos importados estaticamente ou escopos como Classe.metodo()) e chamadas sem escopo
+    private static Set<String> referencedNames(Collection<? extends Node> nodes) {
+        Set<String> names = new HashSet<>();
+        for (Node root : nodes) {
+            root.walk(node -> {
+                if (node instanceof ClassOrInterfaceType type) {
+                    names.add(type.getNameAsString());
+                } else if (node instanceof AnnotationExpr annotation) {
+                    // Em @Externa.Interna o import é de Externa: o segmento mais à esquerda
+                    Name name = annotation.getName();
+                    while (name.getQualifier().isPresent()) {
+                        name = name.getQualifier().get();
+                    }
+                    names.add(name.getIdentifier());
+                } else if (node instanceof NameExpr nameExpr) {
+                    names.add(nameExpr.getNameAsString());
+                } else if (node instanceof MethodCallExpr call && call.getScope().isEmpty()) {
+                    names.add(call.getNameAsString());
+                }
+            });
+        }
+        return names;
+    }
+}
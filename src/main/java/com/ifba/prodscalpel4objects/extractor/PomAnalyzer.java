@@ -1,10 +1,582 @@
 package com.ifba.prodscalpel4objects.extractor;
 
+import com.github.javaparser.ast.CompilationUnit;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
 /**
- * Classe que será responsável por analisar uma classe Java e identificar quais dependências,
- * especificadas no arquivo pom.xml, são diretamente utilizadas pela classe.
+ * Classe responsável por analisar uma classe Java e identificar quais dependências do pom.xml,
+ * diretas ou transitivas, fornecem os pacotes que ela importa.
+ * <p>
+ * As dependências transitivas são lidas dos POMs no repositório Maven local, com as propriedades e as versões
+ * gerenciadas dos POMs pai e dos BOMs importados; artefatos sem classes próprias (como os starters do
+ * Spring Boot) entram no classpath pelas dependências deles.
+ * <p>
+ * Os jars das dependências são procurados no repositório Maven local e apenas o diretório central
+ * de cada jar é lido (por mapeamento em memória), uma única vez, para montar o índice pacote -> artefato.
+ * O índice fica em cache em memória e em disco (invalidado pela data e tamanho do jar), de modo que
+ * descobrir o classpath mínimo de um órgão é uma consulta por import.
  *
  * @author Lara
  **/
- public class PomAnalyzer {
+public class PomAnalyzer {
+
+    // Registro "End of Central Directory" do formato ZIP
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_ZIP_COMMENT = 0xFFFF;
+
+    private static final Pattern PROPERTY = Pattern.compile("\\$\\{([^}]+)}");
+
+    // Limite da cadeia de POMs pai e de BOMs importados
+    private static final int MAX_POM_DEPTH = 16;
+
+    private final Path localRepository;
+    private final Path indexCacheFile;
+    private final Map<Path, IndexedJar> indexedJars = new ConcurrentHashMap<>();
+    private final Map<String, Set<MavenDependency>> artifactsByPackage = new ConcurrentHashMap<>();
+    private final Map<Path, PomModel> models = new ConcurrentHashMap<>();
+
+    /**
+     * Construtor da classe PomAnalyzer, usando o repositório local padrão ({@code ~/.m2/repository}).
+     */
+    public PomAnalyzer() {
+        this(Paths.get(System.getProperty("user.home"), ".m2", "repository"),
+                Paths.get(System.getProperty("user.home"), ".prodscalpel", "package-index.txt"));
+    }
+
+    /**
+     * Construtor da classe PomAnalyzer.
+     *
+     * @param localRepository Diretório do repositório Maven local.
+     * @param indexCacheFile  Arquivo onde o índice de pacotes dos jars é guardado entre execuções.
+     */
+    public PomAnalyzer(Path localRepository, Path indexCacheFile) {
+        this.localRepository = localRepository;
+        this.indexCacheFile = indexCacheFile;
+        loadIndexCache();
+    }
+
+    /**
+     * Lê as dependências declaradas no pom.xml, substituindo as propriedades e as versões
+     * definidas em {@code dependencyManagement} (inclusive as herdadas dos POMs pai e as importadas de BOMs).
+     * Dependências de teste e do tipo pom são ignoradas.
+     *
+     * @param pomFile Caminho do pom.xml do doador.
+     * @return As dependências diretas com o caminho do jar no repositório local.
+     * @throws IOException Caso o pom.xml não possa ser lido.
+     */
+    public List<MavenDependency> readDependencies(Path pomFile) throws IOException {
+        PomModel model = readModel(pomFile, 0);
+        List<MavenDependency> dependencies = new ArrayList<>();
+        for (DeclaredDependency declared : declaredDependencies(model, model.managedVersions(), false)) {
+            dependencies.add(declared.dependency());
+        }
+        return dependencies;
+    }
+
+    /**
+     * Lê as dependências do pom.xml e, a partir dos POMs delas no repositório local, as suas dependências
+     * transitivas de escopo {@code compile} e {@code runtime} que não são opcionais nem excluídas.
+     * Como no Maven, vence a versão mais próxima do doador, e as versões gerenciadas pelo doador valem também
+     * para as dependências transitivas. Perfis e faixas de versões não são considerados.
+     *
+     * @param pomFile Caminho do pom.xml do doador.
+     * @return As dependências diretas e transitivas, na ordem em que são encontradas.
+     * @throws IOException Caso o pom.xml do doador não possa ser lido.
+     */
+    public List<MavenDependency> resolveDependencies(Path pomFile) throws IOException {
+        PomModel root = readModel(pomFile, 0);
+        Map<String, MavenDependency> resolved = new LinkedHashMap<>();
+        Deque<DeclaredDependency> pending = new ArrayDeque<>(declaredDependencies(root, root.managedVersions(), false));
+        while (!pending.isEmpty()) {
+            DeclaredDependency declared = pending.poll();
+            MavenDependency dependency = declared.dependency();
+            if (resolved.putIfAbsent(dependency.groupId() + ":" + dependency.artifactId(), dependency) != null
+                    || dependency.scope().equals("system")) {
+                continue;
+            }
+            Path dependencyPom = dependency.jar().resolveSibling(dependency.artifactId() + "-" + dependency.version()
+                    + ".pom");
+            if (!Files.isRegularFile(dependencyPom)) {
+                continue;
+            }
+            try {
+                for (DeclaredDependency transitive : declaredDependencies(readModel(dependencyPom, 0),
+                        root.managedVersions(), true)) {
+                    MavenDependency child = transitive.dependency();
+                    if (declared.exclusions().contains(child.groupId() + ":" + child.artifactId())
+                            || declared.exclusions().contains(child.groupId() + ":*")
+                            || declared.exclusions().contains("*:*")) {
+                        continue;
+                    }
+                    Set<String> exclusions = new HashSet<>(declared.exclusions());
+                    exclusions.addAll(transitive.exclusions());
+                    pending.add(new DeclaredDependency(child, exclusions));
+                }
+            } catch (IOException e) {
+                System.err.println("POM da dependência ignorado: " + dependencyPom + " (" + e.getMessage() + ")");
+            }
+        }
+        return List.copyOf(resolved.values());
+    }
+
+    // Dependências declaradas no modelo; as transitivas de teste, provided, system ou opcionais não são seguidas
+    private List<DeclaredDependency> declaredDependencies(PomModel model, Map<String, String> rootManagedVersions,
+                                                         boolean transitive) {
+        List<DeclaredDependency> dependencies = new ArrayList<>();
+        Map<String, String> properties = model.properties();
+        for (Element dependency : model.dependencies()) {
+            String depGroupId = resolve(text(dependency, "groupId", ""), properties);
+            String artifactId = resolve(text(dependency, "artifactId", ""), properties);
+            String depVersion = resolve(text(dependency, "version", ""), properties);
+            String scope = text(dependency, "scope", "compile");
+            String type = text(dependency, "type", "jar");
+            String key = depGroupId + ":" + artifactId;
+            if (transitive && rootManagedVersions.containsKey(key)) {
+                depVersion = rootManagedVersions.get(key);
+            } else if (depVersion.isEmpty()) {
+                depVersion = model.managedVersions().getOrDefault(key, "");
+            }
+            if (scope.equals("test") || !type.equals("jar")) {
+                continue;
+            }
+            if (transitive && (!(scope.equals("compile") || scope.equals("runtime"))
+                    || text(dependency, "optional", "false").equals("true"))) {
+                continue;
+            }
+            if (depVersion.isEmpty() || depVersion.contains("${")) {
+                if (!transitive) {
+                    System.out.println("Versão não resolvida para a dependência: " + key);
+                }
+                continue;
+            }
+
+            Path jar = scope.equals("system")
+                    ? Paths.get(resolve(text(dependency, "systemPath", ""), properties))
+                    : localRepository.resolve(depGroupId.replace('.', '/')).resolve(artifactId).resolve(depVersion)
+                    .resolve(artifactId + "-" + depVersion + ".jar");
+            Set<String> exclusions = new HashSet<>();
+            Element exclusionsElement = child(dependency, "exclusions");
+            if (exclusionsElement != null) {
+                for (Element exclusion : children(exclusionsElement, "exclusion")) {
+                    exclusions.add(text(exclusion, "groupId", "*") + ":" + text(exclusion, "artifactId", "*"));
+                }
+            }
+            dependencies.add(new DeclaredDependency(new MavenDependency(depGroupId, artifactId, depVersion, scope, jar),
+                    exclusions));
+        }
+        return dependencies;
+    }
+
+    // Propriedades e versões gerenciadas do POM, somadas às dos POMs pai e dos BOMs importados
+    private PomModel readModel(Path pomFile, int depth) throws IOException {
+        Path normalized = pomFile.toAbsolutePath().normalize();
+        PomModel cached = models.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+        Element project;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document document = factory.newDocumentBuilder().parse(normalized.toFile());
+            project = document.getDocumentElement();
+        } catch (Exception e) {
+            throw new IOException("Erro ao ler o pom.xml: " + pomFile, e);
+        }
+
+        Map<String, String> properties = new HashMap<>();
+        Map<String, String> managedVersions = new HashMap<>();
+        Element parent = child(project, "parent");
+        if (parent != null && depth < MAX_POM_DEPTH) {
+            // O pai é procurado primeiro no caminho relativo (projetos com módulos) e depois no repositório local
+            Path parentPom = normalized.resolveSibling(text(parent, "relativePath", "../pom.xml"));
+            if (Files.isDirectory(parentPom)) {
+                parentPom = parentPom.resolve("pom.xml");
+            }
+            if (!Files.isRegularFile(parentPom)) {
+                parentPom = repositoryPom(text(parent, "groupId", ""), text(parent, "artifactId", ""),
+                        text(parent, "version", ""));
+            }
+            if (Files.isRegularFile(parentPom)) {
+                try {
+                    PomModel parentModel = readModel(parentPom, depth + 1);
+                    properties.putAll(parentModel.properties());
+                    managedVersions.putAll(parentModel.managedVersions());
+                } catch (IOException e) {
+                    System.err.println("POM pai ignorado: " + parentPom + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+
+        String version = text(project, "version", parent != null ? text(parent, "version", "") : "");
+        String groupId = text(project, "groupId", parent != null ? text(parent, "groupId", "") : "");
+        properties.put("project.version", version);
+        properties.put("version", version);
+        properties.put("project.groupId", groupId);
+        if (parent != null) {
+            properties.put("project.parent.version", text(parent, "version", ""));
+        }
+        Element propertiesElement = child(project, "properties");
+        if (propertiesElement != null) {
+            for (Element property : children(propertiesElement, null)) {
+                properties.put(property.getTagName(), property.getTextContent().strip());
+            }
+        }
+
+        // Versões gerenciadas, usadas pelas dependências que não declaram versão; as declaradas no próprio POM
+        // têm precedência sobre as importadas de BOMs
+        Element management = child(project, "dependencyManagement");
+        if (management != null && child(management, "dependencies") != null) {
+            Map<String, String> declaredVersions = new HashMap<>();
+            for (Element dependency : children(child(management, "dependencies"), "dependency")) {
+                String depGroupId = resolve(text(dependency, "groupId", ""), properties);
+                String artifactId = resolve(text(dependency, "artifactId", ""), properties);
+                String depVersion = resolve(text(dependency, "version", ""), properties);
+                if (text(dependency, "scope", "").equals("import") && text(dependency, "type", "").equals("pom")) {
+                    Path bom = repositoryPom(depGroupId, artifactId, depVersion);
+                    if (Files.isRegularFile(bom) && depth < MAX_POM_DEPTH) {
+                        try {
+                            managedVersions.putAll(readModel(bom, depth + 1).managedVersions());
+                        } catch (IOException e) {
+                            System.err.println("BOM ignorado: " + bom + " (" + e.getMessage() + ")");
+                        }
+                    }
+                } else {
+                    declaredVersions.put(depGroupId + ":" + artifactId, depVersion);
+                }
+            }
+            managedVersions.putAll(declaredVersions);
+        }
+
+        Element dependenciesElement = child(project, "dependencies");
+        PomModel model = new PomModel(properties, managedVersions,
+                dependenciesElement == null ? List.of() : children(dependenciesElement, "dependency"));
+        models.put(normalized, model);
+        return model;
+    }
+
+    private Path repositoryPom(String groupId, String artifactId, String version) {
+        return localRepository.resolve(groupId.replace('.', '/')).resolve(artifactId).resolve(version)
+                .resolve(artifactId + "-" + version + ".pom");
+    }
+
+    /**
+     * Indexa os pacotes de todas as dependências do pom.xml, diretas e transitivas
+     * (ver {@link #resolveDependencies(Path)}). Jars já indexados e não modificados são lidos do cache.
+     *
+     * @param pomFile Caminho do pom.xml do doador.
+     * @return As dependências indexadas.
+     * @throws IOException Caso o pom.xml não possa ser lido.
+     */
+    public List<MavenDependency> index(Path pomFile) throws IOException {
+        List<MavenDependency> dependencies = resolveDependencies(pomFile);
+        boolean changed = false;
+        for (MavenDependency dependency : dependencies) {
+            changed |= index(dependency);
+        }
+        if (changed) {
+            saveIndexCache();
+        }
+        return dependencies;
+    }
+
+    /**
+     * Encontra o conjunto mínimo de artefatos que fornecem os imports informados.
+     * Aceita imports no formato do órgão: {@code a.b.C}, {@code a.b.*} e {@code static a.b.C.m}.
+     *
+     * @param imports Os imports do órgão.
+     * @return Os artefatos necessários, sem repetição.
+     */
+    public Set<MavenDependency> minimalArtifacts(Collection<String> imports) {
+        Set<MavenDependency> artifacts = new LinkedHashSet<>();
+        for (String importName : imports) {
+            artifacts.addAll(artifactsFor(importName));
+        }
+        return artifacts;
+    }
+
+    /**
+     * Identifica as dependências do pom.xml diretamente utilizadas pela classe.
+     *
+     * @param cu A unidade de compilação da classe.
+     * @return Os artefatos necessários para compilar a classe.
+     */
+    public Set<MavenDependency> usedDependencies(CompilationUnit cu) {
+        List<String> imports = cu.getImports().stream()
+                .map(importDecl -> (importDecl.isStatic() ? "static " : "") + importDecl.getNameAsString()
+                        + (importDecl.isAsterisk() ? ".*" : ""))
+                .toList();
+        return minimalArtifacts(imports);
+    }
+
+    /**
+     * Monta o classpath mínimo (caminhos dos jars) para os imports informados.
+     *
+     * @param imports Os imports do órgão.
+     * @return Os jars necessários.
+     */
+    public List<Path> minimalClasspath(Collection<String> imports) {
+        return minimalArtifacts(imports).stream().map(MavenDependency::jar).toList();
+    }
+
+    private Set<MavenDependency> artifactsFor(String importName) {
+        String name = importName.strip();
+        boolean isStatic = name.startsWith("static ");
+        if (isStatic) {
+            name = name.substring("static ".length()).strip();
+        }
+        if (name.endsWith(".*")) {
+            name = name.substring(0, name.length() - 2);
+            // "a.b.*" normalmente é um pacote; "static a.b.C.*" é uma classe
+            if (!isStatic) {
+                Set<MavenDependency> artifacts = artifactsByPackage.get(name);
+                if (artifacts != null) {
+                    return artifacts;
+                }
+                // Um pacote não indexado não pertence a nenhum artefato; remover segmentos daqui em diante
+                // encontraria um pacote ancestral e anexaria dependências sem relação.
+                // Só "a.b.C.*" (classes aninhadas de C, pela convenção de nomes) segue para a busca da classe
+                String lastSegment = name.substring(name.lastIndexOf('.') + 1);
+                if (lastSegment.isEmpty() || !Character.isUpperCase(lastSegment.charAt(0))) {
+                    return Set.of();
+                }
+            }
+        } else if (isStatic) {
+            // Remove o membro importado estaticamente
+            name = name.substring(0, Math.max(0, name.lastIndexOf('.')));
+        }
+
+        // Remove o nome da classe (e de classes aninhadas) até encontrar um pacote indexado
+        int lastDot = name.lastIndexOf('.');
+        while (lastDot > 0) {
+            name = name.substring(0, lastDot);
+            Set<MavenDependency> artifacts = artifactsByPackage.get(name);
+            if (artifacts != null) {
+                return artifacts;
+            }
+            lastDot = name.lastIndexOf('.');
+        }
+        return Set.of();
+    }
+
+    // Retorna true se o jar precisou ser lido (e o cache em disco deve ser atualizado)
+    private boolean index(MavenDependency dependency) {
+        Path jar = dependency.jar();
+        if (!Files.isRegularFile(jar)) {
+            System.out.println("Jar não encontrado no repositório local: " + jar);
+            return false;
+        }
+        try {
+            long lastModified = Files.getLastModifiedTime(jar).toMillis();
+            long size = Files.size(jar);
+            IndexedJar cached = indexedJars.get(jar);
+            boolean read = false;
+            if (cached == null || cached.lastModified() != lastModified || cached.size() != size) {
+                cached = new IndexedJar(lastModified, size, readPackages(jar));
+                indexedJars.put(jar, cached);
+                read = true;
+            }
+            for (String packageName : cached.packages()) {
+                artifactsByPackage.computeIfAbsent(packageName, key -> ConcurrentHashMap.newKeySet()).add(dependency);
+            }
+            return read;
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o jar: " + jar);
+            return false;
+        }
+    }
+
+    /**
+     * Lê os pacotes de um jar percorrendo apenas o diretório central, mapeado em memória.
+     * Jars no formato ZIP64 são lidos pelo {@link ZipFile}.
+     */
+    private static Set<String> readPackages(Path jar) throws IOException {
+        Set<String> packages = new HashSet<>();
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long tailStart = Math.max(0, fileSize - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_ZIP_COMMENT);
+            MappedByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, fileSize - tailStart);
+            tail.order(ByteOrder.LITTLE_ENDIAN);
+
+            int end = -1;
+            for (int position = tail.capacity() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+                if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                    end = position;
+                    break;
+                }
+            }
+            if (end == -1) {
+                throw new IOException("Diretório central não encontrado em: " + jar);
+            }
+
+            int entryCount = Short.toUnsignedInt(tail.getShort(end + 10));
+            long centralSize = Integer.toUnsignedLong(tail.getInt(end + 12));
+            long centralOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+            if (entryCount == 0xFFFF || centralOffset == 0xFFFFFFFFL || centralSize == 0xFFFFFFFFL) {
+                return readPackagesWithZipFile(jar);
+            }
+
+            MappedByteBuffer central = channel.map(FileChannel.MapMode.READ_ONLY, centralOffset, centralSize);
+            central.order(ByteOrder.LITTLE_ENDIAN);
+            int position = 0;
+            while (position + 46 <= central.capacity() && central.getInt(position) == CENTRAL_DIRECTORY_ENTRY) {
+                int nameLength = Short.toUnsignedInt(central.getShort(position + 28));
+                int extraLength = Short.toUnsignedInt(central.getShort(position + 30));
+                int commentLength = Short.toUnsignedInt(central.getShort(position + 32));
+                byte[] name = new byte[nameLength];
+                central.get(position + 46, name);
+                addPackage(new String(name, StandardCharsets.UTF_8), packages);
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+        return packages;
+    }
+
+    private static Set<String> readPackagesWithZipFile(Path jar) throws IOException {
+        Set<String> packages = new HashSet<>();
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                addPackage(entries.nextElement().getName(), packages);
+            }
+        }
+        return packages;
+    }
+
+    private static void addPackage(String entryName, Set<String> packages) {
+        if (!entryName.endsWith(".class")) {
+            return;
+        }
+        String name = entryName;
+        // Classes de jars multi-release ficam em META-INF/versions/<n>/
+        if (name.startsWith("META-INF/versions/")) {
+            int start = name.indexOf('/', "META-INF/versions/".length());
+            if (start == -1) {
+                return;
+            }
+            name = name.substring(start + 1);
+        } else if (name.startsWith("META-INF/")) {
+            return;
+        }
+        int lastSlash = name.lastIndexOf('/');
+        if (lastSlash > 0) {
+            packages.add(name.substring(0, lastSlash).replace('/', '.'));
+        }
+    }
+
+    private void loadIndexCache() {
+        if (indexCacheFile == null || !Files.exists(indexCacheFile)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(indexCacheFile)) {
+                String[] parts = line.split("\t", -1);
+                if (parts.length != 4) {
+                    continue;
+                }
+                Set<String> packages = parts[3].isEmpty() ? Set.of() : Set.of(parts[3].split(","));
+                indexedJars.put(Paths.get(parts[0]),
+                        new IndexedJar(Long.parseLong(parts[1]), Long.parseLong(parts[2]), packages));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cache do índice de pacotes ignorado: " + indexCacheFile);
+            indexedJars.clear();
+        }
+    }
+
+    private void saveIndexCache() {
+        if (indexCacheFile == null) {
+            return;
+        }
+        try {
+            Path parentDirectory = indexCacheFile.toAbsolutePath().getParent();
+            if (parentDirectory != null) {
+                Files.createDirectories(parentDirectory);
+            }
+            List<String> lines = new ArrayList<>();
+            indexedJars.forEach((jar, indexed) -> lines.add(jar + "\t" + indexed.lastModified() + "\t"
+                    + indexed.size() + "\t" + String.join(",", indexed.packages())));
+            Files.write(indexCacheFile, lines);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar o cache do índice de pacotes: " + indexCacheFile);
+        }
+    }
+
+    private static String resolve(String value, Map<String, String> properties) {
+        String resolved = value;
+        // Algumas propriedades referenciam outras, por isso a substituição é repetida
+        for (int i = 0; i < 10 && resolved.contains("${"); i++) {
+            Matcher matcher = PROPERTY.matcher(resolved);
+            StringBuilder builder = new StringBuilder();
+            while (matcher.find()) {
+                String replacement = properties.getOrDefault(matcher.group(1), matcher.group());
+                matcher.appendReplacement(builder, Matcher.quoteReplacement(replacement));
+            }
+            matcher.appendTail(builder);
+            resolved = builder.toString();
+        }
+        return resolved;
+    }
+
+    private static Element child(Element parent, String name) {
+        List<Element> matches = children(parent, name);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> result = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && (name == null || element.getTagName().equals(name))) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    private static String text(Element parent, String name, String defaultValue) {
+        Element element = child(parent, name);
+        return element == null ? defaultValue : element.getTextContent().strip();
+    }
+
+    private record IndexedJar(long lastModified, long size, Set<String> packages) {
+    }
+
+    private record PomModel(Map<String, String> properties, Map<String, String> managedVersions,
+                            List<Element> dependencies) {
+    }
+
+    private record DeclaredDependency(MavenDependency dependency, Set<String> exclusions) {
+    }
 }
@@ -0,0 +1,15 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+/**
+ * Método do doador ordenado pelo {@link HotMethodRanker}.
+ *
+ * @param target      O alvo de extração.
+ * @param samples     Amostras de execução em que o método aparece na pilha (tempo inclusivo).
+ * @param selfSamples Amostras em que o método está no topo da pilha (tempo próprio).
+ * @param closureSize Quantidade de métodos (incluindo o próprio) e de classes do doador no fechamento
+ *                    de dependências que a extração copiaria.
+ * @param score       Pontuação usada na ordenação: amostras por elemento do fechamento.
+ */
+public record RankedMethod(ExtractionTarget target, long samples, long selfSamples, int closureSize, double score) {
+
+}
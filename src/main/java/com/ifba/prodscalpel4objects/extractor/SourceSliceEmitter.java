@@ -0,0 +1,283 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.BodyDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Monta o código dos órgãos copiando o texto original do doador, a partir das posições dos nós,
+ * em vez de reconstruir a AST e imprimi-la com {@code toString()}. Os membros mantidos ficam
+ * idênticos aos do doador (incluindo comentários e formatação), e os trechos são recortados
+ * do buffer do arquivo sem cópias intermediárias.
+ * Quando algum nó não possui posição (código sintético), os métodos retornam vazio e quem
+ * chamou deve usar a impressão da AST.
+ *
+ * @author lara
+ */
+public class SourceSliceEmitter {
+
+    private static final String DEFAULT_INDENT = "    ";
+
+    private final CharBuffer source;
+    private final int[] lineStarts;
+
+    /**
+     * Construtor da classe SourceSliceEmitter.
+     *
+     * @param source O texto do arquivo de onde os trechos serão recortados.
+     */
+    public SourceSliceEmitter(CharBuffer source) {
+        this.source = source;
+        this.lineStarts = computeLineStarts(source);
+    }
+
+    /**
+     * Emite a classe com o cabeçalho original e apenas os membros mantidos, na ordem do doador.
+     *
+     * @param cu          A unidade de compilação de origem (analisada a partir deste texto).
+     * @param cls         A classe de origem.
+     * @param imports     Os imports a serem copiados.
+     * @param keptMembers Os membros da classe que devem ser mantidos.
+     * @return O código da classe, ou vazio se algum trecho não puder ser recortado.
+     */
+    public Optional<String> emitClass(CompilationUnit cu, ClassOrInterfaceDeclaration cls,
+                                      List<ImportDeclaration> imports,
+                                      Collection<? extends BodyDeclaration<?>> keptMembers) {
+        // Os membros são comparados pela posição, pois podem vir de outra análise do mesmo arquivo
+        Set<Range> keptRanges = new HashSet<>();
+        for (BodyDeclaration<?> member : keptMembers) {
+            if (member.getRange().isEmpty()) {
+                return Optional.empty();
+            }
+            keptRanges.add(member.getRange().get());
+        }
+
+        StringBuilder out = new StringBuilder();
+        if (!appendHeader(out, cu.getPackageDeclaration().orElse(null), imports)) {
+            return Optional.empty();
+        }
+
+        Optional<Integer> bodyStart = classBodyStart(cls);
+        Optional<Integer> classBegin = beginOffset(cls);
+        if (bodyStart.isEmpty() || classBegin.isEmpty()) {
+            return Optional.empty();
+        }
+        out.append(source, classBegin.get(), bodyStart.get() + 1).append('\n');
+
+        for (BodyDeclaration<?> member : cls.getMembers()) {
+            if (member.getRange().isPresent() && keptRanges.contains(member.getRange().get())) {
+                out.append('\n');
+                if (!appendMember(out, member)) {
+                    return Optional.empty();
+                }
+            }
+        }
+        out.append("}\n");
+        return Optional.of(out.toString());
+    }
+
+    /**
+     * Emite uma classe nova (pública, sem cabeçalho do doador) contendo os membros informados.
+     * Os imports podem vir de outro arquivo, por isso são impressos em vez de recortados.
+     *
+     * @param packageName O pacote da classe, ou vazio para o pacote padrão.
+     * @param className   O nome da classe.
+     * @param imports     Os imports da classe.
+     * @param members     Os membros, recortados deste texto.
+     * @return O código da classe, ou vazio se algum trecho não puder ser recortado.
+     */
+    public Optional<String> emitNewClass(String packageName, String className, List<ImportDeclaration> imports,
+                                         List<? extends Node> members) {
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        for (ImportDeclaration importDecl : imports) {
+            out.append(importDecl.toString().strip()).append('\n');
+        }
+        if (!imports.isEmpty()) {
+            out.append('\n');
+        }
+        out.append("public class ").append(className).append(" {\n");
+        for (Node member : members) {
+            out.append('\n');
+            if (!appendMember(out, member)) {
+                return Optional.empty();
+            }
+        }
+        out.append("}\n");
+        return Optional.of(out.toString());
+    }
+
+    /**
+     * Insere um membro recortado deste texto em um arquivo já existente, antes da chave que fecha
+     * a sua primeira classe, e acrescenta os imports que ainda não estão presentes
+     * (impressos, pois podem vir de outro arquivo).
+     *
+     * @param existingCode O código do arquivo existente.
+     * @param existingCU   A unidade de compilação do arquivo existente.
+     * @param imports      Os imports exigidos pelo membro.
+     * @param member       O membro a ser inserido.
+     * @return O novo código do arquivo, ou vazio se algum trecho não puder ser recortado.
+     */
+    public Optional<String> mergeInto(String existingCode, CompilationUnit existingCU,
+                                      List<ImportDeclaration> imports, Node member) {
+        Optional<ClassOrInterfaceDeclaration> targetClass = existingCU.findFirst(ClassOrInterfaceDeclaration.class);
+        if (targetClass.isEmpty() || targetClass.get().getEnd().isEmpty()) {
+            return Optional.empty();
+        }
+        SourceSliceEmitter existing = new SourceSliceEmitter(CharBuffer.wrap(existingCode));
+
+        StringBuilder memberText = new StringBuilder("\n");
+        if (!appendMember(memberText, member)) {
+            return Optional.empty();
+        }
+        int classEnd = existing.offset(targetClass.get().getEnd().get());
+
+        // Imports ausentes entram depois do último import (ou da declaração de pacote)
+        Set<String> existingImports = new HashSet<>();
+        existingCU.getImports().forEach(importDecl -> existingImports.add(importDecl.toString().strip()));
+        StringBuilder importText = new StringBuilder();
+        for (ImportDeclaration importDecl : imports) {
+            String importLine = importDecl.toString().strip();
+            if (existingImports.add(importLine)) {
+                importText.append('\n').append(importLine);
+            }
+        }
+        Optional<? extends Node> anchor = existingCU.getImports().isNonEmpty()
+                ? Optional.of(existingCU.getImports().getLast().get())
+                : existingCU.getPackageDeclaration();
+        int importOffset = anchor.flatMap(Node::getEnd).map(end -> existing.offset(end) + 1).orElse(0);
+        if (anchor.isEmpty() && importText.length() > 0) {
+            importText.deleteCharAt(0).append("\n\n");
+        }
+
+        StringBuilder out = new StringBuilder(existingCode.length() + memberText.length() + importText.length());
+        out.append(existingCode, 0, importOffset)
+                .append(importText)
+                .append(existingCode, importOffset, classEnd)
+                .append(memberText)
+                .append(existingCode, classEnd, existingCode.length());
+        return Optional.of(out.toString());
+    }
+
+    /**
+     * Recorta o texto original de um nó, incluindo o seu comentário (javadoc), se houver.
+     *
+     * @param node O nó a ser recortado.
+     * @return O trecho do texto original, ou vazio se o nó não possui posição.
+     */
+    public Optional<CharSequence> slice(Node node) {
+        Optional<Integer> begin = beginOffset(node);
+        if (begin.isEmpty() || node.getEnd().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(source.subSequence(begin.get(), offset(node.getEnd().get()) + 1));
+    }
+
+    private boolean appendHeader(StringBuilder out, Node packageDeclaration, List<ImportDeclaration> imports) {
+        if (packageDeclaration != null) {
+            Optional<CharSequence> slice = slice(packageDeclaration);
+            if (slice.isEmpty()) {
+                return false;
+            }
+            out.append(slice.get()).append("\n\n");
+        }
+        for (ImportDeclaration importDecl : imports) {
+            Optional<CharSequence> slice = slice(importDecl);
+            if (slice.isEmpty()) {
+                return false;
+            }
+            out.append(slice.get()).append('\n');
+        }
+        if (!imports.isEmpty()) {
+            out.append('\n');
+        }
+        return true;
+    }
+
+    // Copia o membro com a indentação original da primeira linha
+    private boolean appendMember(StringBuilder out, Node member) {
+        Optional<Integer> begin = beginOffset(member);
+        Optional<CharSequence> slice = slice(member);
+        if (begin.isEmpty() || slice.isEmpty()) {
+            return false;
+        }
+        int lineStart = begin.get();
+        while (lineStart > 0 && source.charAt(lineStart - 1) != '\n' && source.charAt(lineStart - 1) != '\r') {
+            lineStart--;
+        }
+        CharSequence indentation = source.subSequence(lineStart, begin.get());
+        out.append(indentation.toString().isBlank() ? indentation : DEFAULT_INDENT).append(slice.get()).append('\n');
+        return true;
+    }
+
+    // Posição da chave que abre o corpo da classe: a primeira depois do nome, dos parâmetros
+    // de tipo e dos tipos estendidos/implementados
+    private Optional<Integer> classBodyStart(ClassOrInterfaceDeclaration cls) {
+        List<Node> headerNodes = new ArrayList<>();
+        headerNodes.add(cls.getName());
+        headerNodes.addAll(cls.getTypeParameters());
+        headerNodes.addAll(cls.getExtendedTypes());
+        headerNodes.addAll(cls.getImplementedTypes());
+        headerNodes.addAll(cls.getPermittedTypes());
+
+        int headerEnd = -1;
+        for (Node node : headerNodes) {
+            if (node.getEnd().isEmpty()) {
+                return Optional.empty();
+            }
+            headerEnd = Math.max(headerEnd, offset(node.getEnd().get()));
+        }
+        for (int position = headerEnd + 1; position < source.length(); position++) {
+            if (source.charAt(position) == '{') {
+                return Optional.of(position);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<Integer> beginOffset(Node node) {
+        Optional<Position> begin = node.getBegin();
+        if (begin.isEmpty()) {
+            return Optional.empty();
+        }
+        Position start = begin.get();
+        Optional<Position> commentBegin = node.getComment().flatMap(Node::getBegin);
+        if (commentBegin.isPresent() && commentBegin.get().isBefore(start)) {
+            start = commentBegin.get();
+        }
+        return Optional.of(offset(start));
+    }
+
+    private int offset(Position position) {
+        return lineStarts[position.line - 1] + position.column - 1;
+    }
+
+    private static int[] computeLineStarts(CharSequence text) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 0; i < text.length(); i++) {
+            char current = text.charAt(i);
+            if (current == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                i++;
+                starts.add(i + 1);
+            } else if (current == '\n' || current == '\r') {
+                starts.add(i + 1);
+            }
+        }
+        return starts.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
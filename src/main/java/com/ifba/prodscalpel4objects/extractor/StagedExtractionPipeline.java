@@ -0,0 +1,242 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa as etapas do {@link MethodExtractorV1} (análise, resolução, fechamento, emissão e gravação)
+ * como um pipeline: cada etapa tem os seus próprios trabalhadores e entrega as extrações à seguinte
+ * por uma fila limitada. Quando uma etapa fica para trás, a fila cheia bloqueia a anterior,
+ * de modo que o número de extrações em memória não passa da soma das capacidades das filas.
+ * A análise, a resolução, o fechamento e a emissão, dominados pela análise sintática e pelo percurso
+ * da AST, usam pools com o número de processadores; só a gravação, que apenas escreve arquivos,
+ * usa threads virtuais.
+ * Os erros de cada etapa são contados e guardados em um {@link StageReport}, sem interromper os demais alvos;
+ * o mesmo vale para as extrações interrompidas pelo {@link ExtractionBudget} do extrator.
+ *
+ * @author lara
+ */
+public class StagedExtractionPipeline {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int DEFAULT_IO_CONCURRENCY = 32;
+
+    // Marca o fim dos alvos; passa para a etapa seguinte quando o último trabalhador da etapa termina
+    private static final Item END = new Item(null, null);
+
+    /**
+     * Recebe o resultado de cada alvo, a partir das threads do pipeline.
+     */
+    @FunctionalInterface
+    public interface CompletionListener {
+
+        void completed(ExtractionTarget target, boolean success);
+    }
+
+    /**
+     * Resultado de uma etapa.
+     *
+     * @param stage     O nome da etapa.
+     * @param processed Quantidade de extrações processadas pela etapa.
+     * @param failed    Quantidade de extrações que falharam ou foram descartadas na etapa.
+     * @param cancelled Quantidade de extrações interrompidas por excederem o orçamento (incluídas em {@code failed}).
+     * @param errors    As mensagens de erro ({@code alvo: mensagem}) e de orçamento excedido.
+     */
+    public record StageReport(String stage, int processed, int failed, int cancelled, List<String> errors) {
+    }
+
+    @FunctionalInterface
+    private interface Step {
+
+        // false descarta a extração sem erro (por exemplo, método não encontrado)
+        boolean apply(Extraction extraction) throws Exception;
+    }
+
+    private record Item(ExtractionTarget target, Extraction extraction) {
+    }
+
+    private final MethodExtractorV1 extractor;
+    private final int queueCapacity;
+    private final int ioConcurrency;
+    private final int cpuParallelism;
+
+    /**
+     * Construtor da classe StagedExtractionPipeline, com filas de 64 extrações, 32 trabalhadores
+     * na gravação e um trabalhador por processador nas demais etapas.
+     *
+     * @param extractor O extrator cujas etapas são executadas.
+     */
+    public StagedExtractionPipeline(MethodExtractorV1 extractor) {
+        this(extractor, DEFAULT_QUEUE_CAPACITY, DEFAULT_IO_CONCURRENCY, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construtor da classe StagedExtractionPipeline.
+     *
+     * @param extractor      O extrator cujas etapas são executadas.
+     * @param queueCapacity  Capacidade das filas entre as etapas.
+     * @param ioConcurrency  Número de trabalhadores (threads virtuais) da gravação.
+     * @param cpuParallelism Número de threads de cada uma das demais etapas.
+     */
+    public StagedExtractionPipeline(MethodExtractorV1 extractor, int queueCapacity, int ioConcurrency,
+                                    int cpuParallelism) {
+        this.extractor = extractor;
+        this.queueCapacity = queueCapacity;
+        this.ioConcurrency = ioConcurrency;
+        this.cpuParallelism = cpuParallelism;
+    }
+
+    /**
+     * Extrai os alvos e aguarda o fim de todas as etapas.
+     * Os alvos são entregues na ordem dada; quem chama fica bloqueado enquanto a primeira fila estiver cheia.
+     *
+     * @param targets  Os alvos de extração.
+     * @param listener Recebe o resultado de cada alvo.
+     * @return O resultado de cada etapa, na ordem do pipeline.
+     * @throws InterruptedException Caso a espera seja interrompida; as etapas são então encerradas.
+     */
+    public List<StageReport> run(List<ExtractionTarget> targets, CompletionListener listener)
+            throws InterruptedException {
+        List<Stage> stages = List.of(
+                new Stage("análise", Executors.newFixedThreadPool(cpuParallelism), cpuParallelism, extractor::parse),
+                new Stage("resolução", Executors.newFixedThreadPool(cpuParallelism), cpuParallelism, extraction -> {
+                    extractor.resolve(extraction);
+                    return true;
+                }),
+                new Stage("fechamento", Executors.newFixedThreadPool(cpuParallelism), cpuParallelism, extraction -> {
+                    extractor.closure(extraction);
+                    return true;
+                }),
+                new Stage("emissão", Executors.newFixedThreadPool(cpuParallelism), cpuParallelism, extraction -> {
+                    extractor.emit(extraction);
+                    return true;
+                }),
+                new Stage("gravação", Executors.newVirtualThreadPerTaskExecutor(), ioConcurrency, extraction -> {
+                    extractor.write(extraction);
+                    return true;
+                }));
+
+        // A última etapa não tem fila de saída: o alvo está concluído quando a gravação termina
+        BlockingQueue<Item> input = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> next = input;
+        for (int i = 0; i < stages.size(); i++) {
+            BlockingQueue<Item> output = i < stages.size() - 1 ? new ArrayBlockingQueue<>(queueCapacity) : null;
+            stages.get(i).start(next, output, listener);
+            next = output;
+        }
+
+        boolean finished = false;
+        try {
+            for (ExtractionTarget target : targets) {
+                input.put(new Item(target, new Extraction(target.sourceFilePath(), target.methodName())));
+            }
+            input.put(END);
+            for (Stage stage : stages) {
+                stage.executor.shutdown();
+            }
+            for (Stage stage : stages) {
+                stage.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            finished = true;
+        } finally {
+            if (!finished) {
+                // Interrompido (ou com erro) antes da marca de fim: os trabalhadores, que a esperariam para sempre,
+                // são interrompidos
+                for (Stage stage : stages) {
+                    stage.executor.shutdownNow();
+                }
+            }
+        }
+        return stages.stream().map(Stage::report).toList();
+    }
+
+    /**
+     * Uma etapa do pipeline: os trabalhadores retiram as extrações da fila de entrada,
+     * aplicam o passo e as colocam na fila de saída (bloqueando enquanto ela estiver cheia).
+     */
+    private static class Stage {
+
+        private final String name;
+        private final ExecutorService executor;
+        private final int workers;
+        private final Step step;
+        private final AtomicInteger activeWorkers = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+        private final ConcurrentLinkedQueue<String> errors = new ConcurrentLinkedQueue<>();
+
+        Stage(String name, ExecutorService executor, int workers, Step step) {
+            this.name = name;
+            this.executor = executor;
+            this.workers = workers;
+            this.step = step;
+        }
+
+        void start(BlockingQueue<Item> input, BlockingQueue<Item> output, CompletionListener listener) {
+            activeWorkers.set(workers);
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> work(input, output, listener));
+            }
+        }
+
+        private void work(BlockingQueue<Item> input, BlockingQueue<Item> output, CompletionListener listener) {
+            try {
+                for (Item item = input.take(); item != END; item = input.take()) {
+                    if (!process(item)) {
+                        listener.completed(item.target(), false);
+                    } else if (output != null) {
+                        output.put(item);
+                    } else {
+                        listener.completed(item.target(), true);
+                    }
+                }
+                // Devolve a marca de fim para os demais trabalhadores da etapa
+                input.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (activeWorkers.decrementAndGet() == 0 && output != null) {
+                    try {
+                        output.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        // Retorna false se a extração falhou ou foi descartada nesta etapa
+        private boolean process(Item item) {
+            processed.incrementAndGet();
+            item.extraction().enterStage();
+            try {
+                if (step.apply(item.extraction())) {
+                    return true;
+                }
+            } catch (BudgetExceededException e) {
+                cancelled.incrementAndGet();
+                errors.add(e.getMessage());
+                System.out.println("Extração interrompida na etapa de " + name + ": " + e.getMessage());
+            } catch (Exception e) {
+                String error = item.extraction().id() + ": " + e;
+                errors.add(error);
+                System.err.println("Erro na etapa de " + name + " de " + error);
+            } finally {
+                item.extraction().leaveStage();
+            }
+            failed.incrementAndGet();
+            return false;
+        }
+
+        StageReport report() {
+            return new StageReport(name, processed.get(), failed.get(), cancelled.get(), List.copyOf(errors));
+        }
+    }
+}
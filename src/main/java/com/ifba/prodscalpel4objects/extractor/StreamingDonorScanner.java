@@ -0,0 +1,191 @@
+package com.ifba.prodscalpel4objects.extractor;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Percorre o doador em modo de fluxo: os arquivos são listados sob demanda, cada
+ * {@link CompilationUnit} é resumida em um {@link CompilationUnitSummary} e descartada em seguida.
+ * A quantidade de ASTs em memória ao mesmo tempo é limitada por um {@link MemoryBudget},
+ * de modo que o pico de heap não cresce com o tamanho do doador.
+ *
+ * @author lara
+ */
+public class StreamingDonorScanner {
+
+    /**
+     * Orçamento padrão para ASTs em memória ao mesmo tempo (256 MB).
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 256L * 1024 * 1024;
+
+    private final Path sourceRoot;
+    private final MemoryBudget memoryBudget;
+    private final int parallelism;
+
+    /**
+     * Construtor da classe StreamingDonorScanner com orçamento e paralelismo padrão.
+     *
+     * @param sourceRoot O diretório raiz do código-fonte do doador.
+     */
+    public StreamingDonorScanner(Path sourceRoot) {
+        this(sourceRoot, DEFAULT_MEMORY_BUDGET, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construtor da classe StreamingDonorScanner.
+     *
+     * @param sourceRoot        O diretório raiz do código-fonte do doador.
+     * @param memoryBudgetBytes Heap estimado máximo para ASTs em memória ao mesmo tempo.
+     * @param parallelism       Número de arquivos analisados em paralelo.
+     */
+    public StreamingDonorScanner(Path sourceRoot, long memoryBudgetBytes, int parallelism) {
+        this.sourceRoot = sourceRoot;
+        this.memoryBudget = new MemoryBudget(memoryBudgetBytes);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Percorre o doador e retorna apenas os resumos dos arquivos.
+     *
+     * @return Os resumos, ordenados pelo caminho do arquivo.
+     * @throws IOException Caso ocorra um erro ao percorrer o diretório.
+     */
+    public List<CompilationUnitSummary> scan() throws IOException {
+        return scan((path, cu) -> {
+        });
+    }
+
+    /**
+     * Percorre o doador, entregando cada AST ao visitante antes de descartá-la.
+     * Com paralelismo maior que 1 o visitante é chamado por várias threads e deve ser seguro para isso.
+     *
+     * @param visitor Chamado com o caminho e a AST de cada arquivo analisado com sucesso.
+     * @return Os resumos, ordenados pelo caminho do arquivo.
+     * @throws IOException Caso ocorra um erro ao percorrer o diretório.
+     */
+    public List<CompilationUnitSummary> scan(BiConsumer<Path, CompilationUnit> visitor) throws IOException {
+        List<CompilationUnitSummary> summaries = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (Stream<Path> javaFiles = javaFiles(sourceRoot)) {
+            Iterator<Path> iterator = javaFiles.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                // Reserva o orçamento antes de enviar o arquivo: sem espaço, a listagem espera
+                long granted = memoryBudget.acquire(MemoryBudget.estimateAstBytes(Files.size(path)));
+                executor.execute(() -> {
+                    try {
+                        summarize(path, visitor).ifPresent(summary -> {
+                            synchronized (summaries) {
+                                summaries.add(summary);
+                            }
+                        });
+                    } finally {
+                        memoryBudget.release(granted);
+                    }
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Varredura do doador interrompida", e);
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        summaries.sort(Comparator.comparing(CompilationUnitSummary::path));
+        return summaries;
+    }
+
+    /**
+     * Lista sob demanda os arquivos .java do diretório e subdiretórios.
+     * O fluxo retornado deve ser fechado por quem o chamou.
+     *
+     * @param directory O diretório a ser percorrido.
+     * @return Um fluxo preguiçoso com os caminhos dos arquivos .java.
+     * @throws IOException Caso ocorra um erro ao abrir o diretório.
+     */
+    public static Stream<Path> javaFiles(Path directory) throws IOException {
+        return Files.walk(directory)
+                .filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path));
+    }
+
+    private Optional<CompilationUnitSummary> summarize(Path path, BiConsumer<Path, CompilationUnit> visitor) {
+        try {
+            ParseResult<CompilationUnit> parseResult = new JavaParser().parse(path);
+            if (parseResult.getResult().isEmpty()) {
+                System.out.println("Falha ao analisar o arquivo: " + path);
+                return Optional.empty();
+            }
+            CompilationUnit cu = parseResult.getResult().get();
+            visitor.accept(path, cu);
+            return Optional.of(summarize(path, cu));
+        } catch (IOException e) {
+            System.err.println("Erro ao ler o arquivo: " + path);
+        } catch (RuntimeException e) {
+            System.err.println("Erro ao processar o arquivo: " + path + " (" + e.getMessage() + ")");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cria o resumo compacto de uma unidade de compilação.
+     *
+     * @param path O caminho do arquivo.
+     * @param cu   A unidade de compilação.
+     * @return O resumo do arquivo.
+     */
+    static CompilationUnitSummary summarize(Path path, CompilationUnit cu) {
+        String packageName = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+        List<String> imports = cu.getImports().stream()
+                .map(importDecl -> importDecl.getNameAsString() + (importDecl.isAsterisk() ? ".*" : ""))
+                .toList();
+
+        Optional<ClassOrInterfaceDeclaration> classOpt = cu.findFirst(ClassOrInterfaceDeclaration.class);
+        if (classOpt.isEmpty()) {
+            return new CompilationUnitSummary(path.toAbsolutePath().toString(), packageName, "", false,
+                    imports, Map.of(), List.of());
+        }
+        ClassOrInterfaceDeclaration cls = classOpt.get();
+
+        Map<String, String> fieldTypes = new LinkedHashMap<>();
+        cls.getFields().forEach(field -> field.getVariables()
+                .forEach(variable -> fieldTypes.put(variable.getNameAsString(), variable.getTypeAsString())));
+
+        List<MethodSummary> methods = new ArrayList<>();
+        for (MethodDeclaration method : cls.getMethods()) {
+            List<String> calls = method.findAll(MethodCallExpr.class).stream()
+                    .map(call -> call.getScope().map(scope -> scope + "." + call.getNameAsString())
+                            .orElse(call.getNameAsString()))
+                    .distinct()
+                    .toList();
+            methods.add(new MethodSummary(cls.getNameAsString(), method.getNameAsString(),
+                    method.getDeclarationAsString(false, false, false), method.isPublic(),
+                    method.getBody().isPresent(), calls));
+        }
+        return new CompilationUnitSummary(path.toAbsolutePath().toString(), packageName, cls.getNameAsString(),
+                cls.isInterface(), imports, Map.copyOf(fieldTypes), List.copyOf(methods));
+    }
+}
@@ -0,0 +1,13 @@
+package com.ifba.prodscalpel4objects.finder;
+
+/**
+ * Representa uma chamada ao método procurado, com sua posição no arquivo.
+ *
+ * @param filePath        Caminho absoluto do arquivo onde a chamada ocorre.
+ * @param line            Linha da chamada.
+ * @param column          Coluna da chamada.
+ * @param enclosingMethod Método (ou construtor) que contém a chamada, ou vazio se estiver fora de um método.
+ */
+public record CallSite(String filePath, int line, int column, String enclosingMethod) {
+
+}
@@ -2,6 +2,7 @@ package com.ifba.prodscalpel4objects.finder;
 
 import java.util.List;
 
-public record FindReturn(String classOriginPath, String className, List<String> classCallPaths) {
+public record FindReturn(String classOriginPath, String className, List<String> classCallPaths,
+                         List<CallSite> callSites, InsertionPointIndex insertionPoints) {
 
 }
@@ -2,18 +2,44 @@ package com.ifba.prodscalpel4objects.finder;
 
 import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public class Finder {
 
+    private final boolean indexInsertionPoints;
+
+    /**
+     * Construtor da classe Finder, com indexação dos pontos de inserção do hospedeiro.
+     */
+    public Finder() {
+        this(true);
+    }
+
+    /**
+     * Construtor da classe Finder.
+     *
+     * @param indexInsertionPoints Se os pontos de inserção devem ser indexados. Sem indexação, os arquivos
+     *                             que não mencionam o método não são analisados na busca por chamadas.
+     */
+    public Finder(boolean indexInsertionPoints) {
+        this.indexInsertionPoints = indexInsertionPoints;
+    }
+
     public FindReturn execute(String sourceDirectoryPath, String methodName) {
 
         // Diretório contendo os arquivos .java a serem analisados
@@ -22,26 +48,44 @@ public class Finder {
         //String methodName = "soma";
 
         try {
-            // Encontra todos os arquivos .java no diretório
-            List<File> javaFiles = findJavaFiles(new File(sourceDirectoryPath));
+            File sourceDirectory = new File(sourceDirectoryPath);
+            SourcePreFilter preFilter = new SourcePreFilter(methodName);
 
-            // Identifica a classe que contém o método
-            File classWithMethod = findClassWithMethod(javaFiles, methodName);
+            // Identifica a classe que contém o método (os arquivos são listados sob demanda)
+            File classWithMethod;
+            try (Stream<File> javaFiles = findJavaFiles(sourceDirectory)) {
+                classWithMethod = findClassWithMethod(javaFiles.iterator(), methodName, preFilter);
+            }
 
             if (classWithMethod != null) {
                 //System.out.println("Classe origem encontrada: " + classWithMethod.getName());
                 //System.out.println("Caminho da classe origem: " + classWithMethod.getAbsolutePath());
                 String classOriginPath = classWithMethod.getAbsolutePath();
                 List<String> classCallPaths = new ArrayList<>();
+                List<CallSite> callSites = new ArrayList<>();
+                InsertionPointIndex insertionPoints = new InsertionPointIndex();
                 String className = classWithMethod.getName();
 
-                // Procura chamadas ao método em outras classes
-                for (File file : javaFiles) {
-                    if (!file.equals(classWithMethod)) {
-                        classCallPaths.add(findMethodCalls(file, methodName));
+                // Procura chamadas ao método em outras classes e indexa os pontos de inserção,
+                // analisando cada arquivo uma única vez
+                try (Stream<File> javaFiles = findJavaFiles(sourceDirectory)) {
+                    Iterator<File> iterator = javaFiles.iterator();
+                    while (iterator.hasNext()) {
+                        File file = iterator.next();
+                        // A indexação dos pontos de inserção precisa de todos os arquivos; sem ela,
+                        // só são analisados os que mencionam o método
+                        if (!file.equals(classWithMethod)
+                                && (indexInsertionPoints || preFilter.accepts(file.toPath()))) {
+                            List<CallSite> fileCallSites = findMethodCalls(file, methodName,
+                                    indexInsertionPoints ? insertionPoints : null);
+                            if (!fileCallSites.isEmpty()) {
+                                classCallPaths.add(file.getAbsolutePath());
+                                callSites.addAll(fileCallSites);
+                            }
+                        }
                     }
                 }
-                return new FindReturn(classOriginPath, className, classCallPaths);
+                return new FindReturn(classOriginPath, className, classCallPaths, callSites, insertionPoints);
             } else {
                 System.out.println("Nenhuma classe contendo o método '" + methodName + "' foi encontrada.");
             }
@@ -53,24 +97,22 @@ public class Finder {
         return null;
     }
 
-    // Procura por todos os arquivos .java no diretório e subdiretórios
-    private static List<File> findJavaFiles(File directory) {
-        List<File> javaFiles = new ArrayList<>();
-        if (directory.isDirectory()) {
-            for (File file : directory.listFiles()) {
-                if (file.isDirectory()) {
-                    javaFiles.addAll(findJavaFiles(file));
-                } else if (file.getName().endsWith(".java")) {
-                    javaFiles.add(file);
-                }
-            }
-        }
-        return javaFiles;
+    // Procura por todos os arquivos .java no diretório e subdiretórios, sob demanda
+    // (o fluxo retornado precisa ser fechado)
+    private static Stream<File> findJavaFiles(File directory) throws IOException {
+        return Files.walk(directory.toPath())
+                .filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path))
+                .map(Path::toFile);
     }
 
-    // Encontra a classe que contém o método especificado
-    private static File findClassWithMethod(List<File> files, String methodName) {
-        for (File file : files) {
+    // Encontra a classe que contém o método especificado, analisando apenas
+    // os arquivos aprovados pelo pré-filtro
+    private static File findClassWithMethod(Iterator<File> files, String methodName, SourcePreFilter preFilter) {
+        while (files.hasNext()) {
+            File file = files.next();
+            if (!preFilter.accepts(file.toPath())) {
+                continue;
+            }
             try {
                 CompilationUnit compilationUnit = StaticJavaParser.parse(file);
                 Optional<ClassOrInterfaceDeclaration> classDeclaration = compilationUnit
@@ -91,22 +133,39 @@ public class Finder {
         return null;
     }
 
-    // Encontra as chamadas ao método em um arquivo fornecido
-    private static String findMethodCalls(File file, String methodName) {
+    // Encontra todas as chamadas ao método em um arquivo fornecido e, na mesma análise,
+    // registra os pontos de inserção do arquivo no índice (quando informado)
+    private static List<CallSite> findMethodCalls(File file, String methodName, InsertionPointIndex insertionPoints) {
+        List<CallSite> callSites = new ArrayList<>();
         try {
             CompilationUnit compilationUnit = StaticJavaParser.parse(file);
-
-            Optional<MethodCallExpr> methodCall = compilationUnit.findFirst(MethodCallExpr.class,
-                    call -> call.getNameAsString().equals(methodName));
-
-            if (methodCall.isPresent()) {
-                //System.out.println("Método '" + methodName + "' chamado em: " + file.getAbsolutePath());
-                //System.out.println("Linha da chamada: " + methodCall.get().getBegin().get().line);
-                return file.getAbsolutePath();
+            String filePath = file.getAbsolutePath();
+
+            compilationUnit.findAll(MethodCallExpr.class, call -> call.getNameAsString().equals(methodName))
+                    .forEach(call -> call.getBegin().ifPresent(begin -> {
+                        String enclosingMethod = enclosingCallable(call)
+                                .map(callable -> callable.getDeclarationAsString(false, false, false))
+                                .orElse("");
+                        callSites.add(new CallSite(filePath, begin.line, begin.column, enclosingMethod));
+                    }));
+
+            if (insertionPoints != null) {
+                new InsertionPointCollector(filePath, insertionPoints).collect(compilationUnit);
             }
         } catch (FileNotFoundException e) {
             System.out.println("Erro ao ler o arquivo: " + file.getAbsolutePath());
         }
-        return null;
+        return callSites;
+    }
+
+    // Método ou construtor que contém o nó (equivale a findAncestor(CallableDeclaration.class),
+    // sem o array genérico criado pela chamada com varargs)
+    private static Optional<CallableDeclaration<?>> enclosingCallable(Node node) {
+        for (Optional<Node> parent = node.getParentNode(); parent.isPresent(); parent = parent.get().getParentNode()) {
+            if (parent.get() instanceof CallableDeclaration<?> callable) {
+                return Optional.of(callable);
+            }
+        }
+        return Optional.empty();
     }
 }
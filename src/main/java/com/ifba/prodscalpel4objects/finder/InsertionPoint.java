@@ -0,0 +1,20 @@
+package com.ifba.prodscalpel4objects.finder;
+
+import java.util.Map;
+
+/**
+ * Representa um ponto do hospedeiro onde um órgão pode ser enxertado:
+ * imediatamente antes da instrução na posição indicada (ou antes da chave
+ * de fechamento do bloco, quando o ponto é o fim do bloco).
+ *
+ * @param filePath         Caminho absoluto do arquivo hospedeiro.
+ * @param line             Linha do ponto de inserção.
+ * @param column           Coluna do ponto de inserção.
+ * @param enclosingClass   Nome da classe que contém o ponto.
+ * @param enclosingMethod  Assinatura do método (ou construtor) que contém o ponto.
+ * @param variablesInScope Variáveis visíveis no ponto (nome -> tipo), incluindo campos, parâmetros e variáveis locais.
+ */
+public record InsertionPoint(String filePath, int line, int column, String enclosingClass,
+                             String enclosingMethod, Map<String, String> variablesInScope) {
+
+}
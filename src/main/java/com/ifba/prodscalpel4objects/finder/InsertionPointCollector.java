@@ -0,0 +1,205 @@
+package com.ifba.prodscalpel4objects.finder;
+
+import com.github.javaparser.Position;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.VariableDeclarationExpr;
+import com.github.javaparser.ast.stmt.BlockStmt;
+import com.github.javaparser.ast.stmt.BreakStmt;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.ContinueStmt;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ExplicitConstructorInvocationStmt;
+import com.github.javaparser.ast.stmt.ExpressionStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.LabeledStmt;
+import com.github.javaparser.ast.stmt.ReturnStmt;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.SwitchStmt;
+import com.github.javaparser.ast.stmt.SynchronizedStmt;
+import com.github.javaparser.ast.stmt.ThrowStmt;
+import com.github.javaparser.ast.stmt.TryStmt;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.stmt.YieldStmt;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Percorre os corpos dos métodos de uma unidade de compilação já analisada e
+ * registra os pontos de inserção no índice, acompanhando as variáveis em escopo.
+ *
+ * @author lara
+ */
+class InsertionPointCollector {
+
+    private final String filePath;
+    private final InsertionPointIndex index;
+
+    private String currentClass;
+    private String currentMethod;
+
+    InsertionPointCollector(String filePath, InsertionPointIndex index) {
+        this.filePath = filePath;
+        this.index = index;
+    }
+
+    /**
+     * Registra os pontos de inserção de todas as classes da unidade de compilação.
+     *
+     * @param compilationUnit A unidade de compilação do arquivo hospedeiro.
+     */
+    void collect(CompilationUnit compilationUnit) {
+        for (ClassOrInterfaceDeclaration cls : compilationUnit.findAll(ClassOrInterfaceDeclaration.class)) {
+            currentClass = cls.getNameAsString();
+
+            // Campos da classe estão visíveis em todos os métodos, exceto os de instância nos métodos estáticos
+            // (os campos de uma interface são sempre estáticos)
+            Map<String, String> fields = new LinkedHashMap<>();
+            Map<String, String> staticFields = new LinkedHashMap<>();
+            cls.getFields().forEach(field -> field.getVariables().forEach(variable -> {
+                fields.put(variable.getNameAsString(), variable.getTypeAsString());
+                if (field.isStatic() || cls.isInterface()) {
+                    staticFields.put(variable.getNameAsString(), variable.getTypeAsString());
+                }
+            }));
+
+            for (MethodDeclaration method : cls.getMethods()) {
+                method.getBody().ifPresent(body -> collectCallable(method, body, method.isStatic() ? staticFields : fields));
+            }
+            for (ConstructorDeclaration constructor : cls.getConstructors()) {
+                collectCallable(constructor, constructor.getBody(), fields);
+            }
+        }
+    }
+
+    private void collectCallable(CallableDeclaration<?> callable, BlockStmt body, Map<String, String> fields) {
+        currentMethod = callable.getDeclarationAsString(false, false, false);
+        Map<String, String> scope = new LinkedHashMap<>(fields);
+        callable.getParameters().forEach(parameter -> scope.put(parameter.getNameAsString(), parameter.getTypeAsString()));
+        visitBlock(body, scope);
+    }
+
+    // Cada instrução de um bloco é um ponto candidato, assim como o fim do bloco,
+    // se a última instrução não impede que ele seja alcançado (código inalcançável não compila)
+    private void visitBlock(BlockStmt block, Map<String, String> outerScope) {
+        visitStatements(block.getStatements(), outerScope);
+        if (block.getStatements().isEmpty() || canCompleteNormally(block.getStatements().getLast().get())) {
+            block.getEnd().ifPresent(end -> addPoint(end, outerScope, block.getStatements()));
+        }
+    }
+
+    private void visitStatements(NodeList<Statement> statements, Map<String, String> outerScope) {
+        Map<String, String> scope = new LinkedHashMap<>(outerScope);
+        for (Statement statement : statements) {
+            // Nada pode vir antes de uma chamada explícita a this(...) ou super(...)
+            if (!(statement instanceof ExplicitConstructorInvocationStmt)) {
+                statement.getBegin().ifPresent(begin -> addPoint(begin, scope, null));
+            }
+            visitStatement(statement, scope);
+            declaredVariables(statement).ifPresent(declaration -> declaration.getVariables()
+                    .forEach(variable -> scope.put(variable.getNameAsString(), variable.getTypeAsString())));
+        }
+    }
+
+    private void visitStatement(Statement statement, Map<String, String> scope) {
+        if (statement instanceof BlockStmt block) {
+            visitBlock(block, scope);
+        } else if (statement instanceof IfStmt ifStmt) {
+            visitStatement(ifStmt.getThenStmt(), scope);
+            ifStmt.getElseStmt().ifPresent(elseStmt -> visitStatement(elseStmt, scope));
+        } else if (statement instanceof ForStmt forStmt) {
+            Map<String, String> forScope = new LinkedHashMap<>(scope);
+            for (Expression init : forStmt.getInitialization()) {
+                if (init instanceof VariableDeclarationExpr declaration) {
+                    declaration.getVariables().forEach(variable -> forScope.put(variable.getNameAsString(), variable.getTypeAsString()));
+                }
+            }
+            visitStatement(forStmt.getBody(), forScope);
+        } else if (statement instanceof ForEachStmt forEachStmt) {
+            Map<String, String> forScope = new LinkedHashMap<>(scope);
+            forEachStmt.getVariable().getVariables()
+                    .forEach(variable -> forScope.put(variable.getNameAsString(), variable.getTypeAsString()));
+            visitStatement(forEachStmt.getBody(), forScope);
+        } else if (statement instanceof WhileStmt whileStmt) {
+            visitStatement(whileStmt.getBody(), scope);
+        } else if (statement instanceof DoStmt doStmt) {
+            visitStatement(doStmt.getBody(), scope);
+        } else if (statement instanceof TryStmt tryStmt) {
+            Map<String, String> tryScope = new LinkedHashMap<>(scope);
+            for (Expression resource : tryStmt.getResources()) {
+                if (resource instanceof VariableDeclarationExpr declaration) {
+                    declaration.getVariables().forEach(variable -> tryScope.put(variable.getNameAsString(), variable.getTypeAsString()));
+                }
+            }
+            visitBlock(tryStmt.getTryBlock(), tryScope);
+            for (CatchClause catchClause : tryStmt.getCatchClauses()) {
+                Map<String, String> catchScope = new LinkedHashMap<>(scope);
+                catchScope.put(catchClause.getParameter().getNameAsString(), catchClause.getParameter().getTypeAsString());
+                visitBlock(catchClause.getBody(), catchScope);
+            }
+            tryStmt.getFinallyBlock().ifPresent(finallyBlock -> visitBlock(finallyBlock, scope));
+        } else if (statement instanceof SwitchStmt switchStmt) {
+            // Variáveis declaradas em um case continuam visíveis nos cases seguintes
+            Map<String, String> switchScope = new LinkedHashMap<>(scope);
+            for (SwitchEntry entry : switchStmt.getEntries()) {
+                visitStatements(entry.getStatements(), switchScope);
+                entry.getStatements().forEach(entryStatement -> declaredVariables(entryStatement)
+                        .ifPresent(declaration -> declaration.getVariables()
+                                .forEach(variable -> switchScope.put(variable.getNameAsString(), variable.getTypeAsString()))));
+            }
+        } else if (statement instanceof SynchronizedStmt synchronizedStmt) {
+            visitBlock(synchronizedStmt.getBody(), scope);
+        } else if (statement instanceof LabeledStmt labeledStmt) {
+            visitStatement(labeledStmt.getStatement(), scope);
+        }
+    }
+
+    // Aproximação conservadora das regras de alcançabilidade da linguagem para os desvios incondicionais
+    private static boolean canCompleteNormally(Statement statement) {
+        if (statement instanceof ReturnStmt || statement instanceof ThrowStmt || statement instanceof BreakStmt
+                || statement instanceof ContinueStmt || statement instanceof YieldStmt) {
+            return false;
+        }
+        if (statement instanceof BlockStmt block) {
+            return block.getStatements().isEmpty() || canCompleteNormally(block.getStatements().getLast().get());
+        }
+        if (statement instanceof IfStmt ifStmt && ifStmt.getElseStmt().isPresent()) {
+            return canCompleteNormally(ifStmt.getThenStmt()) || canCompleteNormally(ifStmt.getElseStmt().get());
+        }
+        return true;
+    }
+
+    private Optional<VariableDeclarationExpr> declaredVariables(Statement statement) {
+        if (statement instanceof ExpressionStmt expressionStmt
+                && expressionStmt.getExpression() instanceof VariableDeclarationExpr declaration) {
+            return Optional.of(declaration);
+        }
+        return Optional.empty();
+    }
+
+    private void addPoint(Position position, Map<String, String> scope, NodeList<Statement> blockStatements) {
+        Map<String, String> variables = scope;
+        if (blockStatements != null) {
+            // No fim do bloco, as variáveis locais declaradas nele também estão visíveis
+            variables = new LinkedHashMap<>(scope);
+            Map<String, String> blockScope = variables;
+            for (Statement statement : blockStatements) {
+                declaredVariables(statement).ifPresent(declaration -> declaration.getVariables()
+                        .forEach(variable -> blockScope.put(variable.getNameAsString(), variable.getTypeAsString())));
+            }
+        }
+        index.add(new InsertionPoint(filePath, position.line, position.column, currentClass, currentMethod,
+                Collections.unmodifiableMap(new LinkedHashMap<>(variables))));
+    }
+}
@@ -0,0 +1,155 @@
+package com.ifba.prodscalpel4objects.finder;
+
+import com.github.javaparser.StaticJavaParser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice dos pontos de inserção de um hospedeiro, organizado por arquivo e
+ * pelos tipos das variáveis visíveis em cada ponto.
+ *
+ * @author lara
+ */
+public class InsertionPointIndex {
+
+    private final Map<String, List<InsertionPoint>> pointsByFile = new LinkedHashMap<>();
+    private final Map<String, List<InsertionPoint>> pointsByType = new HashMap<>();
+    private int size;
+
+    /**
+     * Adiciona um ponto de inserção ao índice.
+     *
+     * @param point O ponto de inserção.
+     */
+    public void add(InsertionPoint point) {
+        pointsByFile.computeIfAbsent(point.filePath(), k -> new ArrayList<>()).add(point);
+        Set<String> types = new HashSet<>();
+        for (String type : point.variablesInScope().values()) {
+            types.add(normalizeType(type));
+        }
+        for (String type : types) {
+            pointsByType.computeIfAbsent(type, k -> new ArrayList<>()).add(point);
+        }
+        size++;
+    }
+
+    /**
+     * Retorna os pontos de inserção de um arquivo hospedeiro.
+     *
+     * @param filePath Caminho absoluto do arquivo.
+     * @return Os pontos de inserção do arquivo, na ordem em que aparecem.
+     */
+    public List<InsertionPoint> findByFile(String filePath) {
+        return pointsByFile.getOrDefault(filePath, List.of());
+    }
+
+    /**
+     * Retorna os pontos onde há ao menos uma variável do tipo informado.
+     *
+     * @param type O tipo procurado (argumentos genéricos são ignorados).
+     * @return Os pontos de inserção compatíveis.
+     */
+    public List<InsertionPoint> findByType(String type) {
+        return pointsByType.getOrDefault(normalizeType(type), List.of());
+    }
+
+    /**
+     * Retorna os pontos onde existem variáveis distintas suficientes para
+     * satisfazer a assinatura informada, por exemplo os tipos dos parâmetros de um órgão.
+     *
+     * @param parameterTypes Os tipos da assinatura (repetições exigem variáveis distintas).
+     * @return Os pontos de inserção compatíveis com a assinatura.
+     */
+    public List<InsertionPoint> findBySignature(List<String> parameterTypes) {
+        if (parameterTypes.isEmpty()) {
+            return allPoints();
+        }
+
+        Map<String, Integer> required = new HashMap<>();
+        for (String type : parameterTypes) {
+            required.merge(normalizeType(type), 1, Integer::sum);
+        }
+
+        // Parte do tipo com menos candidatos para reduzir a verificação
+        String rarestType = null;
+        for (String type : required.keySet()) {
+            if (rarestType == null || findByType(type).size() < findByType(rarestType).size()) {
+                rarestType = type;
+            }
+        }
+
+        List<InsertionPoint> result = new ArrayList<>();
+        for (InsertionPoint point : findByType(rarestType)) {
+            Map<String, Integer> available = new HashMap<>();
+            for (String type : point.variablesInScope().values()) {
+                available.merge(normalizeType(type), 1, Integer::sum);
+            }
+            boolean matches = required.entrySet().stream()
+                    .allMatch(entry -> available.getOrDefault(entry.getKey(), 0) >= entry.getValue());
+            if (matches) {
+                result.add(point);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Analisa um arquivo hospedeiro e adiciona todos os seus pontos de inserção ao índice.
+     *
+     * @param file O arquivo hospedeiro.
+     * @throws IOException Caso o arquivo não possa ser lido.
+     */
+    public void addFile(Path file) throws IOException {
+        String filePath = file.toAbsolutePath().toString();
+        new InsertionPointCollector(filePath, this).collect(StaticJavaParser.parse(file));
+    }
+
+    /**
+     * Retorna todos os pontos de inserção indexados.
+     *
+     * @return Uma lista com todos os pontos.
+     */
+    public List<InsertionPoint> allPoints() {
+        List<InsertionPoint> all = new ArrayList<>(size);
+        pointsByFile.values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Retorna os arquivos hospedeiros presentes no índice.
+     *
+     * @return Os caminhos dos arquivos indexados.
+     */
+    public Collection<String> files() {
+        return pointsByFile.keySet();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove argumentos genéricos e espaços do tipo, para que {@code List<String>} e {@code List} coincidam.
+     *
+     * @param type O tipo a ser normalizado.
+     * @return O tipo normalizado.
+     */
+    public static String normalizeType(String type) {
+        String normalized = type.replaceAll("\\s", "");
+        int genericStart = normalized.indexOf('<');
+        if (genericStart != -1) {
+            int genericEnd = normalized.lastIndexOf('>');
+            normalized = normalized.substring(0, genericStart) + normalized.substring(genericEnd + 1);
+        }
+        return normalized;
+    }
+}
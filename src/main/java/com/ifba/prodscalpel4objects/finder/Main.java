@@ -10,9 +10,11 @@ public class Main {
         System.out.println("Nome da Classe onde o método está localizado: " + result.className());
 
         System.out.print("Local onde o método foi chamado: ");
-        for (String s : result.classCallPaths()) {
-            System.out.println(s);
+        for (CallSite callSite : result.callSites()) {
+            System.out.println(callSite.filePath() + " (linha " + callSite.line() + ", coluna " + callSite.column() + ")");
         }
 
+        System.out.println("Pontos de inserção indexados: " + result.insertionPoints().size());
+
     }
 }
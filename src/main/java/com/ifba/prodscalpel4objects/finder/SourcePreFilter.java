@@ -0,0 +1,156 @@
+package com.ifba.prodscalpel4objects.finder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Filtro aplicado aos bytes do arquivo antes da análise completa: procura o identificador
+ * no arquivo mapeado em memória (Boyer-Moore-Horspool) e só então confirma, com uma varredura
+ * léxica simples, que a ocorrência está no código e não em um comentário ou literal.
+ * Arquivos rejeitados não precisam ser analisados pelo JavaParser.
+ *
+ * @author lara
+ */
+class SourcePreFilter {
+
+    private final byte[] pattern;
+    private final int[] shift = new int[256];
+
+    /**
+     * Construtor da classe SourcePreFilter.
+     *
+     * @param identifier O identificador procurado (ex.: o nome do método).
+     */
+    SourcePreFilter(String identifier) {
+        this.pattern = identifier.getBytes(StandardCharsets.UTF_8);
+        Arrays.fill(shift, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shift[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+    }
+
+    /**
+     * Verifica se o arquivo menciona o identificador fora de comentários e literais.
+     * Em caso de erro de leitura o arquivo é aceito, para que o analisador reporte o problema.
+     *
+     * @param file O arquivo-fonte.
+     * @return {@code true} se o arquivo deve ser analisado.
+     */
+    boolean accepts(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // A varredura léxica só é feita nos (raros) arquivos onde o identificador aparece
+            return indexOfToken(buffer) != -1 && appearsInCode(buffer);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    // Boyer-Moore-Horspool: próxima ocorrência do identificador como palavra inteira
+    private int indexOfToken(ByteBuffer buffer) {
+        int last = pattern.length - 1;
+        int limit = buffer.limit() - pattern.length;
+        int position = 0;
+        while (position <= limit) {
+            int i = last;
+            while (i >= 0 && buffer.get(position + i) == pattern[i]) {
+                i--;
+            }
+            if (i < 0 && isBoundary(buffer, position - 1) && isBoundary(buffer, position + pattern.length)) {
+                return position;
+            }
+            position += shift[buffer.get(position + last) & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean appearsInCode(ByteBuffer buffer) {
+        int length = buffer.limit();
+        int position = 0;
+        while (position < length) {
+            byte current = buffer.get(position);
+            byte next = position + 1 < length ? buffer.get(position + 1) : 0;
+            if (current == '/' && next == '/') {
+                position = skipUntil(buffer, position + 2, "\n");
+            } else if (current == '/' && next == '*') {
+                position = skipUntil(buffer, position + 2, "*/");
+            } else if (current == '"' && next == '"' && position + 2 < length && buffer.get(position + 2) == '"') {
+                position = skipUntil(buffer, position + 3, "\"\"\"");
+            } else if (current == '"' || current == '\'') {
+                position = skipLiteral(buffer, position + 1, current);
+            } else if (isIdentifierPart(current)) {
+                int end = position;
+                while (end < length && isIdentifierPart(buffer.get(end))) {
+                    end++;
+                }
+                if (end - position == pattern.length && matchesAt(buffer, position)) {
+                    return true;
+                }
+                position = end;
+            } else {
+                position++;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAt(ByteBuffer buffer, int position) {
+        for (int i = 0; i < pattern.length; i++) {
+            if (buffer.get(position + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipUntil(ByteBuffer buffer, int from, String terminator) {
+        byte[] end = terminator.getBytes(StandardCharsets.US_ASCII);
+        int length = buffer.limit();
+        for (int position = from; position <= length - end.length; position++) {
+            if (buffer.get(position) == '\\' && end[0] == '"') {
+                // Escapes dentro de text blocks
+                position++;
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < end.length && matches; i++) {
+                matches = buffer.get(position + i) == end[i];
+            }
+            if (matches) {
+                return position + end.length;
+            }
+        }
+        return length;
+    }
+
+    private static int skipLiteral(ByteBuffer buffer, int from, byte quote) {
+        int length = buffer.limit();
+        int position = from;
+        while (position < length) {
+            byte current = buffer.get(position);
+            if (current == '\\') {
+                position += 2;
+            } else if (current == quote || current == '\n') {
+                return position + 1;
+            } else {
+                position++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isBoundary(ByteBuffer buffer, int position) {
+        return position < 0 || position >= buffer.limit() || !isIdentifierPart(buffer.get(position));
+    }
+
+    // Bytes >= 0x80 fazem parte de caracteres UTF-8, que podem compor identificadores
+    private static boolean isIdentifierPart(byte value) {
+        return (value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z') || (value >= '0' && value <= '9')
+                || value == '_' || value == '$' || value < 0;
+    }
+}
@@ -0,0 +1,166 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Diretório do IceBox, seguro para várias extrações simultâneas.
+ * Cada arquivo é protegido por uma faixa de locks (escolhida pelo caminho relativo), dentro da JVM
+ * por um {@link ReentrantLock} e entre processos por um {@link FileLock} no arquivo de lock da faixa.
+ * As escritas são atômicas: o conteúdo é gravado em um arquivo temporário e movido para o destino.
+ *
+ * @author lara
+ */
+public class IceBox {
+
+    /**
+     * Diretório padrão do IceBox, relativo ao diretório de trabalho.
+     */
+    public static final String DEFAULT_ROOT = "IceBox";
+
+    private static final int STRIPES = 64;
+    private static final String LOCK_DIRECTORY = ".locks";
+
+    // Uma única tabela de locks por raiz, para que instâncias na mesma JVM não disputem o FileLock
+    private static final Map<Path, ReentrantLock[]> LOCKS_BY_ROOT = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final ReentrantLock[] locks;
+
+    /**
+     * Construtor da classe IceBox.
+     *
+     * @param root Diretório raiz do IceBox.
+     */
+    public IceBox(final Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        this.locks = LOCKS_BY_ROOT.computeIfAbsent(this.root, key -> {
+            ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+            return stripes;
+        });
+    }
+
+    /**
+     * Resolve um caminho relativo dentro do IceBox.
+     *
+     * @param relativePath Caminho relativo à raiz (ex.: {@code com/exemplo/Classe.java}).
+     * @return O caminho absoluto dentro do IceBox.
+     */
+    public Path resolve(String relativePath) {
+        return root.resolve(relativePath).normalize();
+    }
+
+    /**
+     * Grava o conteúdo no arquivo de forma atômica, sob o lock da faixa do arquivo.
+     *
+     * @param file    Arquivo dentro do IceBox.
+     * @param content Conteúdo a ser gravado.
+     * @throws IOException Caso ocorra um erro ao escrever o arquivo.
+     */
+    public void write(Path file, byte[] content) throws IOException {
+        withLock(file, () -> {
+            writeAtomically(file, content);
+            return null;
+        });
+    }
+
+    /**
+     * Grava o texto no arquivo de forma atômica, sob o lock da faixa do arquivo.
+     *
+     * @param file    Arquivo dentro do IceBox.
+     * @param content Texto a ser gravado.
+     * @throws IOException Caso ocorra um erro ao escrever o arquivo.
+     */
+    public void writeString(Path file, String content) throws IOException {
+        write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lê, transforma e regrava o arquivo como uma única operação protegida pelo lock.
+     *
+     * @param file    Arquivo dentro do IceBox.
+     * @param updater Recebe o conteúdo atual (vazio se o arquivo não existe) e retorna o novo conteúdo,
+     *                ou vazio para deixar o arquivo como está.
+     * @return {@code true} se o arquivo foi regravado.
+     * @throws IOException Caso ocorra um erro ao ler ou escrever o arquivo.
+     */
+    public boolean update(Path file, Function<Optional<String>, Optional<String>> updater) throws IOException {
+        return withLock(file, () -> {
+            Optional<String> current = Files.exists(file) ? Optional.of(Files.readString(file)) : Optional.empty();
+            Optional<String> updated = updater.apply(current);
+            if (updated.isEmpty()) {
+                return false;
+            }
+            writeAtomically(file, updated.get().getBytes(StandardCharsets.UTF_8));
+            return true;
+        });
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private <T> T withLock(Path file, IOAction<T> action) throws IOException {
+        Path normalized = file.toAbsolutePath().normalize();
+        if (!normalized.startsWith(root)) {
+            throw new IOException("Arquivo fora do IceBox: " + file);
+        }
+        // O hash do caminho relativo é o mesmo em todos os processos, então todos usam a mesma faixa
+        String relativePath = root.relativize(normalized).toString().replace('\\', '/');
+        int stripe = Math.floorMod(relativePath.hashCode(), STRIPES);
+
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        try {
+            Path lockDirectory = root.resolve(LOCK_DIRECTORY);
+            Files.createDirectories(lockDirectory);
+            try (FileChannel channel = FileChannel.open(lockDirectory.resolve("stripe-" + stripe + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock fileLock = channel.lock();
+                try {
+                    return action.run();
+                } finally {
+                    fileLock.release();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "." + file.getFileName(), ".tmp");
+        try {
+            Files.write(temporary, content);
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IOAction<T> {
+        T run() throws IOException;
+    }
+}
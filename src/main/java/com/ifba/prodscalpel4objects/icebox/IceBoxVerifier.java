@@ -0,0 +1,430 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Verifica se o conteúdo do IceBox compila.
+ * Os arquivos são compilados em processo, com o {@link JavaCompiler} do JDK, em poucas tarefas grandes
+ * (uma por lote, com os lotes em paralelo) em vez de uma chamada ao javac por arquivo: cada tarefa
+ * monta uma única tabela de símbolos para todo o lote, e as classes referenciadas fora do lote são
+ * encontradas pelo {@code -sourcepath} apontado para a raiz do IceBox. Nenhum {@code .class} é gravado.
+ * Só são considerados compilados os arquivos de uma tarefa que terminou sem erros (os arquivos sem erro
+ * de um lote que falhou são compilados de novo, sem os demais). Os arquivos que compilam têm registrado
+ * em {@value #CACHE_FILE} um hash SHA-256 do próprio conteúdo e do conteúdo de todos os arquivos do IceBox
+ * de que dependem (direta ou transitivamente), e só voltam a ser compilados quando um deles muda: remover um método de {@code B.java} recompila {@code A.java}, que o chama.
+ * As dependências são estimadas pelos nomes: um arquivo depende de todo arquivo do IceBox cujo nome de classe
+ * aparece no seu texto, o que pode recompilar arquivos a mais, mas nunca deixa de recompilar um dependente.
+ * Cada erro é associado aos órgãos ({@code .organ}) que dependem do arquivo onde ele ocorreu.
+ *
+ * @author lara
+ */
+public class IceBoxVerifier {
+
+    /**
+     * Arquivo, na raiz do IceBox, com os hashes dos arquivos já verificados.
+     */
+    public static final String CACHE_FILE = ".verified";
+
+    // Separa o texto de um arquivo nos identificadores Java que ele contém
+    private static final Pattern IDENTIFIER_SEPARATOR = Pattern.compile("[^\\p{javaJavaIdentifierPart}]+");
+
+    private final IceBox iceBox;
+    private final List<Path> classpath;
+    private final int parallelism;
+
+    /**
+     * Construtor da classe IceBoxVerifier, com um único lote e sem dependências externas.
+     *
+     * @param iceBox O IceBox a ser verificado.
+     */
+    public IceBoxVerifier(IceBox iceBox) {
+        this(iceBox, List.of(), 1);
+    }
+
+    /**
+     * Construtor da classe IceBoxVerifier.
+     *
+     * @param iceBox      O IceBox a ser verificado.
+     * @param classpath   Os jars das dependências do doador (ex.: de {@code PomAnalyzer.minimalClasspath}).
+     * @param parallelism Número de lotes compilados em paralelo.
+     */
+    public IceBoxVerifier(IceBox iceBox, List<Path> classpath, int parallelism) {
+        this.iceBox = iceBox;
+        this.classpath = List.copyOf(classpath);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Compila os arquivos do IceBox cujo conteúdo ainda não foi verificado.
+     *
+     * @return O resultado da verificação.
+     * @throws IOException Caso o compilador não esteja disponível ou ocorra um erro de leitura.
+     */
+    public VerificationReport verify() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Compilador Java indisponível: a verificação exige um JDK.");
+        }
+
+        Path root = iceBox.getRoot();
+        Map<String, String> verified = loadCache();
+        Map<String, String> hashes = dependencyHashes(root);
+        List<Path> pending = new ArrayList<>();
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            if (!entry.getValue().equals(verified.get(entry.getKey()))) {
+                pending.add(root.resolve(entry.getKey()));
+            }
+        }
+
+        List<BatchResult> results = compile(compiler, batches(pending));
+
+        Map<String, Set<String>> origins = organOrigins(root);
+        List<VerificationFailure> failures = new ArrayList<>();
+        Set<String> failedFiles = new HashSet<>();
+        Set<String> compiledFiles = new HashSet<>();
+        for (BatchResult result : results) {
+            for (Diagnostic<? extends JavaFileObject> error : result.errors()) {
+                String relativePath = sourcePath(root, error);
+                failedFiles.add(relativePath);
+                failures.add(new VerificationFailure(relativePath, error.getLineNumber(),
+                        error.getMessage(Locale.getDefault()), origins.getOrDefault(relativePath, Set.of())));
+            }
+            result.compiled().forEach(file -> compiledFiles.add(relativePath(root, file)));
+        }
+
+        // Entram no cache os arquivos que já estavam verificados e os que compilaram em uma tarefa sem erros;
+        // arquivos com erro (inclusive os compilados implicitamente) saem do cache
+        Map<String, String> updated = new TreeMap<>(hashes);
+        updated.keySet().removeIf(relativePath -> !compiledFiles.contains(relativePath)
+                && pending.contains(root.resolve(relativePath)));
+        updated.keySet().removeAll(failedFiles);
+        saveCache(updated);
+        return new VerificationReport(hashes.size(), hashes.size() - pending.size(), failures);
+    }
+
+    // Para cada arquivo, o hash do seu conteúdo junto com o de todas as suas dependências transitivas no IceBox
+    private static Map<String, String> dependencyHashes(Path root) throws IOException {
+        Map<String, String> contentHashes = new TreeMap<>();
+        Map<String, Set<String>> identifiers = new HashMap<>();
+        Map<String, List<String>> filesByClassName = new HashMap<>();
+        for (Path file : javaFiles(root)) {
+            String relativePath = relativePath(root, file);
+            byte[] content = Files.readAllBytes(file);
+            contentHashes.put(relativePath, sha256(content));
+            identifiers.put(relativePath, IDENTIFIER_SEPARATOR.splitAsStream(new String(content, StandardCharsets.UTF_8))
+                    .collect(Collectors.toSet()));
+            String fileName = file.getFileName().toString();
+            filesByClassName.computeIfAbsent(fileName.substring(0, fileName.length() - ".java".length()),
+                    key -> new ArrayList<>()).add(relativePath);
+        }
+
+        Map<String, List<String>> dependencies = new HashMap<>();
+        identifiers.forEach((relativePath, names) -> {
+            List<String> direct = new ArrayList<>();
+            filesByClassName.forEach((className, files) -> {
+                if (names.contains(className)) {
+                    direct.addAll(files);
+                }
+            });
+            dependencies.put(relativePath, direct);
+        });
+
+        Map<String, String> hashes = new TreeMap<>();
+        for (String relativePath : contentHashes.keySet()) {
+            // O fechamento é percorrido em ordem de caminho para que o hash não dependa da ordem da busca
+            Set<String> closure = new TreeSet<>();
+            List<String> stack = new ArrayList<>(List.of(relativePath));
+            while (!stack.isEmpty()) {
+                String current = stack.remove(stack.size() - 1);
+                if (closure.add(current)) {
+                    stack.addAll(dependencies.getOrDefault(current, List.of()));
+                }
+            }
+            StringBuilder combined = new StringBuilder();
+            for (String dependency : closure) {
+                combined.append(dependency).append('\t').append(contentHashes.get(dependency)).append('\n');
+            }
+            hashes.put(relativePath, sha256(combined.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return hashes;
+    }
+
+    // Distribui os arquivos em lotes, mantendo os arquivos do mesmo pacote juntos
+    private List<List<Path>> batches(List<Path> files) {
+        Map<Path, List<Path>> byPackage = files.stream().collect(Collectors.groupingBy(Path::getParent));
+        List<List<Path>> packages = new ArrayList<>(byPackage.values());
+        packages.sort(Comparator.comparingInt((List<Path> group) -> group.size()).reversed());
+
+        List<List<Path>> batches = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, packages.size()); i++) {
+            batches.add(new ArrayList<>());
+        }
+        for (List<Path> group : packages) {
+            batches.stream().min(Comparator.comparingInt(List::size)).ifPresent(batch -> batch.addAll(group));
+        }
+        return batches;
+    }
+
+    private List<BatchResult> compile(JavaCompiler compiler, List<List<Path>> batches) throws IOException {
+        if (batches.isEmpty()) {
+            return List.of();
+        }
+        List<String> options = new ArrayList<>(List.of("-proc:none", "-nowarn", "-encoding", "UTF-8",
+                "-sourcepath", iceBox.getRoot().toString()));
+        if (!classpath.isEmpty()) {
+            options.add("-classpath");
+            options.add(classpath.stream().map(Path::toString).collect(Collectors.joining(File.pathSeparator)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(batches.size());
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            for (List<Path> batch : batches) {
+                futures.add(executor.submit(() -> verifyBatch(compiler, options, batch)));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (Future<BatchResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Verificação interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Erro ao compilar o IceBox: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Compila o lote e retorna os erros e os arquivos que compilaram. Depois de um erro de sintaxe o javac
+    // deixa de analisar os demais arquivos da tarefa, então a ausência de erros em um arquivo de um lote que
+    // falhou não prova que ele compila: os arquivos sem erro são compilados de novo, sem os demais, até que
+    // uma tarefa termine sem erros ou não reste nenhum arquivo
+    private static BatchResult verifyBatch(JavaCompiler compiler, List<String> options, List<Path> batch)
+            throws IOException {
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>(compileBatch(compiler, options, batch));
+        List<Path> candidates = batch;
+        List<Diagnostic<? extends JavaFileObject>> candidateErrors = errors;
+        Set<Path> failed = new HashSet<>();
+        while (!candidateErrors.isEmpty() && !candidates.isEmpty()) {
+            candidateErrors.forEach(error -> failed.add(sourceFile(error)));
+            List<Path> remaining = candidates.stream()
+                    .filter(file -> !failed.contains(file.toAbsolutePath().normalize()))
+                    .toList();
+            if (remaining.size() == candidates.size()) {
+                // Os erros estão apenas em arquivos compilados implicitamente, dos quais o lote depende
+                return new BatchResult(errors, List.of());
+            }
+            candidates = remaining;
+            candidateErrors = candidates.isEmpty() ? List.of() : compileBatch(compiler, options, candidates);
+            // Os erros que só aparecem sem os demais arquivos também são reportados
+            candidateErrors.stream().filter(error -> !failed.contains(sourceFile(error))).forEach(errors::add);
+        }
+        return new BatchResult(errors, candidates);
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> compileBatch(JavaCompiler compiler, List<String> options,
+                                                                         List<Path> batch) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager standardManager = compiler.getStandardFileManager(diagnostics, null,
+                StandardCharsets.UTF_8);
+             DiscardingFileManager fileManager = new DiscardingFileManager(standardManager)) {
+            Iterable<? extends JavaFileObject> units = standardManager.getJavaFileObjectsFromPaths(batch);
+            compiler.getTask(null, fileManager, diagnostics, options, null, units).call();
+        }
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .toList();
+    }
+
+    // Para cada arquivo, os órgãos que dependem dele: o da própria classe e os que têm a classe no fechamento
+    private static Map<String, Set<String>> organOrigins(Path root) throws IOException {
+        Map<String, Set<String>> byFile = new HashMap<>();
+        Map<String, Set<String>> byClassName = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(path -> path.toString().endsWith(OrganFile.EXTENSION)).toList()) {
+                try {
+                    OrganFile organ = OrganFile.open(path);
+                    String packageName = organ.getPackageName();
+                    String target = (packageName.isEmpty() ? "" : packageName + ".") + organ.getClassName()
+                            + "#" + organ.getMethodName();
+                    String ownFile = (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/")
+                            + organ.getClassName() + ".java";
+                    byFile.computeIfAbsent(ownFile, key -> new TreeSet<>()).add(target);
+                    for (String entry : organ.getDependencyClosure()) {
+                        int dot = entry.indexOf('.');
+                        String className = dot == -1 ? entry : entry.substring(0, dot);
+                        byClassName.computeIfAbsent(className, key -> new TreeSet<>()).add(target);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Órgão ignorado na verificação: " + path + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+
+        Map<String, Set<String>> origins = new HashMap<>();
+        for (Path file : javaFiles(root)) {
+            String relativePath = relativePath(root, file);
+            String fileName = file.getFileName().toString();
+            String className = fileName.substring(0, fileName.length() - ".java".length());
+            Set<String> targets = new TreeSet<>(byFile.getOrDefault(relativePath, Set.of()));
+            targets.addAll(byClassName.getOrDefault(className, Set.of()));
+            origins.put(relativePath, targets);
+        }
+        return origins;
+    }
+
+    private static List<Path> javaFiles(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            // Diretórios e arquivos ocultos (locks, temporários) não fazem parte do IceBox
+            return paths.filter(path -> path.toString().endsWith(".java"))
+                    .filter(path -> !relativePath(root, path).startsWith(".") && !relativePath(root, path).contains("/."))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Map<String, String> loadCache() throws IOException {
+        Map<String, String> verified = new HashMap<>();
+        Path cacheFile = iceBox.resolve(CACHE_FILE);
+        if (Files.exists(cacheFile)) {
+            for (String line : Files.readAllLines(cacheFile)) {
+                int tab = line.indexOf('\t');
+                if (tab != -1) {
+                    verified.put(line.substring(tab + 1), line.substring(0, tab));
+                }
+            }
+        }
+        return verified;
+    }
+
+    private void saveCache(Map<String, String> verified) throws IOException {
+        StringBuilder content = new StringBuilder();
+        verified.forEach((relativePath, hash) -> content.append(hash).append('\t').append(relativePath).append('\n'));
+        iceBox.writeString(iceBox.resolve(CACHE_FILE), content.toString());
+    }
+
+    private static Path sourceFile(Diagnostic<? extends JavaFileObject> diagnostic) {
+        return diagnostic.getSource() == null ? null : Paths.get(diagnostic.getSource().toUri()).toAbsolutePath().normalize();
+    }
+
+    private static String sourcePath(Path root, Diagnostic<? extends JavaFileObject> diagnostic) {
+        return diagnostic.getSource() == null ? "" : relativePath(root, sourceFile(diagnostic));
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    /**
+     * Resultado da compilação de um lote.
+     *
+     * @param errors   Os erros das compilações do lote.
+     * @param compiled Os arquivos do lote que compilaram em uma tarefa sem erros.
+     */
+    private record BatchResult(List<Diagnostic<? extends JavaFileObject>> errors, List<Path> compiled) {
+    }
+
+    /**
+     * Descarta as classes geradas: a verificação só precisa dos diagnósticos.
+     */
+    private static class DiscardingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        DiscardingFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            URI uri = URI.create("mem:///" + className.replace('.', '/') + kind.extension);
+            return new SimpleJavaFileObject(uri, kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return OutputStream.nullOutputStream();
+                }
+            };
+        }
+    }
+
+    /**
+     * Verifica o IceBox a partir da linha de comando, terminando com código 1 se houver erros.
+     *
+     * @param args [raiz do IceBox] [classpath] [número de lotes]
+     */
+    public static void main(String[] args) {
+        Path root = Paths.get(args.length > 0 ? args[0] : IceBox.DEFAULT_ROOT);
+        List<Path> classpath = new ArrayList<>();
+        if (args.length > 1 && !args[1].isBlank()) {
+            for (String entry : args[1].split(File.pathSeparator)) {
+                classpath.add(Paths.get(entry));
+            }
+        }
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        try {
+            VerificationReport report = new IceBoxVerifier(new IceBox(root), classpath, parallelism).verify();
+            for (VerificationFailure failure : report.failures()) {
+                System.out.println(failure.file() + ":" + failure.line() + ": " + failure.message()
+                        + (failure.targets().isEmpty() ? "" : " [órgãos: " + String.join(", ", failure.targets()) + "]"));
+            }
+            System.out.println("Arquivos verificados: " + report.files() + " (já verificados: " + report.cached()
+                    + ", erros: " + report.failures().size() + ")");
+            if (!report.success()) {
+                System.exit(1);
+            }
+        } catch (IOException e) {
+            System.err.println("Erro na verificação do IceBox: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
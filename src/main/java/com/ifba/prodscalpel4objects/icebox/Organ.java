@@ -0,0 +1,51 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import java.util.List;
+
+/**
+ * Órgão extraído do doador, com os metadados necessários para adaptá-lo sem reanalisar o código.
+ *
+ * @param packageName       Pacote da classe do órgão, ou vazio para o pacote padrão.
+ * @param className         Nome da classe do órgão.
+ * @param methodName        Nome do método extraído.
+ * @param source            Código-fonte completo do órgão.
+ * @param dependencyClosure Métodos ({@code Classe.metodo}) e classes dos quais o órgão depende.
+ * @param requiredFields    Declarações dos campos exigidos pelo órgão.
+ * @param imports           Importações do órgão ({@code static} e {@code .*} quando for o caso).
+ * @param tokens            Tokens do código-fonte em trios (tipo, deslocamento, comprimento),
+ *                          com deslocamentos em caracteres de {@code source}.
+ */
+public record Organ(String packageName, String className, String methodName, String source,
+                    List<String> dependencyClosure, List<String> requiredFields, List<String> imports,
+                    int[] tokens) {
+
+    /**
+     * Quantidade de tokens do órgão.
+     *
+     * @return O número de tokens.
+     */
+    public int tokenCount() {
+        return tokens.length / 3;
+    }
+
+    /**
+     * Tipo do token, conforme as constantes de token do JavaParser.
+     *
+     * @param index Índice do token.
+     * @return O tipo do token.
+     */
+    public int tokenKind(int index) {
+        return tokens[index * 3];
+    }
+
+    /**
+     * Texto do token, recortado do código-fonte.
+     *
+     * @param index Índice do token.
+     * @return O texto do token.
+     */
+    public String tokenText(int index) {
+        int offset = tokens[index * 3 + 1];
+        return source.substring(offset, offset + tokens[index * 3 + 2]);
+    }
+}
@@ -0,0 +1,329 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Formato binário dos órgãos do IceBox ({@code .organ}).
+ * O arquivo é lido por mapeamento em memória e as seções são decodificadas apenas quando acessadas,
+ * de modo que abrir um órgão não exige nenhuma análise do JavaParser.
+ *
+ * <pre>
+ * int   magic ("ORGN")
+ * short versão
+ * short reservado
+ * int   quantidade de seções
+ * (int deslocamento, int comprimento) por seção: META, SOURCE, CLOSURE, FIELDS, IMPORTS, TOKENS
+ * META:    string pacote, string classe, string método
+ * SOURCE:  código-fonte em UTF-8
+ * CLOSURE, FIELDS, IMPORTS: int quantidade, string por item
+ * TOKENS:  int quantidade de inteiros, inteiros em trios (tipo, deslocamento, comprimento)
+ * </pre>
+ * Strings são gravadas como {@code int} comprimento seguido dos bytes UTF-8; inteiros em big-endian.
+ *
+ * @author lara
+ */
+public class OrganFile {
+
+    /**
+     * Extensão dos arquivos de órgão.
+     */
+    public static final String EXTENSION = ".organ";
+
+    private static final int MAGIC = 0x4F52474E;
+    private static final short VERSION = 1;
+
+    private static final int META = 0;
+    private static final int SOURCE = 1;
+    private static final int CLOSURE = 2;
+    private static final int FIELDS = 3;
+    private static final int IMPORTS = 4;
+    private static final int TOKENS = 5;
+    private static final int SECTION_COUNT = 6;
+
+    private static final int HEADER_SIZE = 12 + SECTION_COUNT * 8;
+
+    private final Path path;
+    private final ByteBuffer buffer;
+
+    private OrganFile(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Mapeia um arquivo de órgão em memória. O cabeçalho e a estrutura das seções (deslocamentos,
+     * comprimentos e quantidades) são validados aqui, assim como os trechos dos tokens, que precisam
+     * estar dentro do código-fonte, de modo que um arquivo truncado ou corrompido é rejeitado antes
+     * de qualquer acesso às seções.
+     *
+     * @param path Caminho do arquivo {@code .organ}.
+     * @return O órgão mapeado.
+     * @throws IOException Caso o arquivo não possa ser lido ou não seja um órgão válido.
+     */
+    public static OrganFile open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Arquivo de órgão inválido: " + path);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Versão de órgão não suportada em " + path + ": " + buffer.getShort(4));
+        }
+        if (buffer.getInt(8) != SECTION_COUNT) {
+            throw new IOException("Quantidade de seções inválida em " + path + ": " + buffer.getInt(8));
+        }
+        OrganFile organFile = new OrganFile(path, buffer);
+        for (int index = 0; index < SECTION_COUNT; index++) {
+            int entry = 12 + index * 8;
+            long offset = buffer.getInt(entry);
+            long length = buffer.getInt(entry + 4);
+            if (offset < HEADER_SIZE || length < 0 || offset + length > buffer.capacity()) {
+                throw new IOException("Seção " + index + " fora dos limites do arquivo de órgão: " + path);
+            }
+        }
+        organFile.validateStrings(META, false, 3);
+        organFile.validateStrings(CLOSURE, true, -1);
+        organFile.validateStrings(FIELDS, true, -1);
+        organFile.validateStrings(IMPORTS, true, -1);
+        ByteBuffer tokens = organFile.section(TOKENS);
+        if (tokens.remaining() < 4 || tokens.getInt() < 0 || tokens.getInt(0) % 3 != 0
+                || tokens.getInt(0) * 4L != tokens.remaining()) {
+            throw new IOException("Seção de tokens inválida no arquivo de órgão: " + path);
+        }
+        // Os trechos dos tokens precisam estar dentro do código-fonte (os deslocamentos são em caracteres)
+        int sourceLength = StandardCharsets.UTF_8.decode(organFile.section(SOURCE)).length();
+        for (int position = tokens.position(); position < tokens.limit(); position += 12) {
+            long offset = tokens.getInt(position + 4);
+            long length = tokens.getInt(position + 8);
+            if (offset < 0 || length < 0 || offset + length > sourceLength) {
+                throw new IOException("Token fora dos limites do código-fonte no arquivo de órgão: " + path);
+            }
+        }
+        return organFile;
+    }
+
+    /**
+     * Grava um órgão no formato binário.
+     *
+     * @param path  Caminho do arquivo de destino.
+     * @param organ O órgão a ser gravado.
+     * @throws IOException Caso ocorra um erro ao escrever o arquivo.
+     */
+    public static void write(Path path, Organ organ) throws IOException {
+        Files.write(path, encode(organ));
+    }
+
+    /**
+     * Codifica um órgão no formato binário.
+     *
+     * @param organ O órgão a ser codificado.
+     * @return O conteúdo do arquivo {@code .organ}.
+     * @throws IOException Caso ocorra um erro na codificação.
+     */
+    public static byte[] encode(Organ organ) throws IOException {
+        byte[][] sections = new byte[SECTION_COUNT][];
+        sections[META] = encodeStrings(false, organ.packageName(), organ.className(), organ.methodName());
+        sections[SOURCE] = organ.source().getBytes(StandardCharsets.UTF_8);
+        sections[CLOSURE] = encodeStrings(true, organ.dependencyClosure().toArray(String[]::new));
+        sections[FIELDS] = encodeStrings(true, organ.requiredFields().toArray(String[]::new));
+        sections[IMPORTS] = encodeStrings(true, organ.imports().toArray(String[]::new));
+
+        ByteArrayOutputStream tokenBytes = new ByteArrayOutputStream(4 + organ.tokens().length * 4);
+        DataOutputStream tokenOut = new DataOutputStream(tokenBytes);
+        tokenOut.writeInt(organ.tokens().length);
+        for (int value : organ.tokens()) {
+            tokenOut.writeInt(value);
+        }
+        sections[TOKENS] = tokenBytes.toByteArray();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(0);
+        out.writeInt(SECTION_COUNT);
+        int offset = HEADER_SIZE;
+        for (byte[] section : sections) {
+            out.writeInt(offset);
+            out.writeInt(section.length);
+            offset += section.length;
+        }
+        for (byte[] section : sections) {
+            out.write(section);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Divide o código-fonte em tokens, descartando espaços em branco.
+     * É a única etapa que usa o JavaParser e acontece na gravação, não na leitura.
+     *
+     * @param source O código-fonte do órgão.
+     * @return Os tokens em trios (tipo, deslocamento, comprimento), ou vazio se o código não puder ser analisado.
+     */
+    public static int[] tokenize(String source) {
+        ParseResult<CompilationUnit> parseResult = new JavaParser().parse(source);
+        if (parseResult.getResult().isEmpty() || parseResult.getResult().get().getTokenRange().isEmpty()) {
+            return new int[0];
+        }
+
+        int[] tokens = new int[64];
+        int size = 0;
+        int cursor = 0;
+        for (JavaToken token : parseResult.getResult().get().getTokenRange().get()) {
+            String text = token.getText();
+            if (text.isEmpty()) {
+                continue;
+            }
+            int offset = source.indexOf(text, cursor);
+            if (offset == -1) {
+                // Texto do token diferente do original (ex.: escapes unicode): sem forma pré-tokenizada
+                return new int[0];
+            }
+            cursor = offset + text.length();
+            if (token.getCategory().isWhitespace()) {
+                continue;
+            }
+            if (size + 3 > tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            }
+            tokens[size++] = token.getKind();
+            tokens[size++] = offset;
+            tokens[size++] = text.length();
+        }
+        return Arrays.copyOf(tokens, size);
+    }
+
+    public String getPackageName() {
+        return decodeStrings(META, false).get(0);
+    }
+
+    public String getClassName() {
+        return decodeStrings(META, false).get(1);
+    }
+
+    public String getMethodName() {
+        return decodeStrings(META, false).get(2);
+    }
+
+    public String getSource() {
+        ByteBuffer section = section(SOURCE);
+        byte[] bytes = new byte[section.remaining()];
+        section.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public List<String> getDependencyClosure() {
+        return decodeStrings(CLOSURE, true);
+    }
+
+    public List<String> getRequiredFields() {
+        return decodeStrings(FIELDS, true);
+    }
+
+    public List<String> getImports() {
+        return decodeStrings(IMPORTS, true);
+    }
+
+    /**
+     * Retorna os tokens do órgão, lidos diretamente do arquivo mapeado.
+     *
+     * @return Os tokens em trios (tipo, deslocamento, comprimento).
+     */
+    public int[] getTokens() {
+        ByteBuffer section = section(TOKENS);
+        int[] tokens = new int[section.getInt()];
+        section.asIntBuffer().get(tokens);
+        return tokens;
+    }
+
+    /**
+     * Decodifica o órgão inteiro.
+     *
+     * @return O órgão com todas as seções.
+     */
+    public Organ toOrgan() {
+        List<String> meta = decodeStrings(META, false);
+        return new Organ(meta.get(0), meta.get(1), meta.get(2), getSource(), getDependencyClosure(),
+                getRequiredFields(), getImports(), getTokens());
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private ByteBuffer section(int index) {
+        int entry = 12 + index * 8;
+        int offset = buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        return buffer.slice(offset, length);
+    }
+
+    private List<String> decodeStrings(int index, boolean counted) {
+        ByteBuffer section = section(index);
+        int count = counted ? section.getInt() : Integer.MAX_VALUE;
+        List<String> values = new ArrayList<>();
+        while (values.size() < count && section.hasRemaining()) {
+            byte[] bytes = new byte[section.getInt()];
+            section.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    // Percorre as strings da seção conferindo os comprimentos (expected: quantidade exigida, ou -1 para a gravada)
+    private void validateStrings(int index, boolean counted, int expected) throws IOException {
+        ByteBuffer section = section(index);
+        if (counted) {
+            if (section.remaining() < 4 || (expected = section.getInt()) < 0) {
+                throw new IOException("Quantidade inválida na seção " + index + " do arquivo de órgão: " + path);
+            }
+        }
+        for (int i = 0; i < expected; i++) {
+            if (section.remaining() < 4) {
+                throw new IOException("Seção " + index + " truncada no arquivo de órgão: " + path);
+            }
+            int length = section.getInt();
+            if (length < 0 || length > section.remaining()) {
+                throw new IOException("String fora dos limites na seção " + index + " do arquivo de órgão: " + path);
+            }
+            section.position(section.position() + length);
+        }
+        if (section.hasRemaining()) {
+            throw new IOException("Dados excedentes na seção " + index + " do arquivo de órgão: " + path);
+        }
+    }
+
+    private static byte[] encodeStrings(boolean counted, String... values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (counted) {
+            out.writeInt(values.length);
+        }
+        for (String value : values) {
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+        return bytes.toByteArray();
+    }
+}
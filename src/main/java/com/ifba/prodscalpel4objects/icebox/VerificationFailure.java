@@ -0,0 +1,14 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import java.util.Set;
+
+/**
+ * Erro de compilação encontrado na verificação do IceBox.
+ *
+ * @param file    Arquivo com o erro, relativo à raiz do IceBox (vazio se o erro não tem origem em um arquivo).
+ * @param line    Linha do erro, ou {@code -1} se desconhecida.
+ * @param message Mensagem do compilador.
+ * @param targets Órgãos afetados, no formato {@code pacote.Classe#metodo}.
+ */
+public record VerificationFailure(String file, long line, String message, Set<String> targets) {
+}
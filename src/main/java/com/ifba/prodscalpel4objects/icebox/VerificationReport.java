@@ -0,0 +1,22 @@
+package com.ifba.prodscalpel4objects.icebox;
+
+import java.util.List;
+
+/**
+ * Resultado da verificação de compilação do IceBox.
+ *
+ * @param files    Quantidade de arquivos-fonte no IceBox.
+ * @param cached   Quantidade de arquivos que não precisaram ser compilados (conteúdo já verificado).
+ * @param failures Os erros de compilação encontrados.
+ */
+public record VerificationReport(int files, int cached, List<VerificationFailure> failures) {
+
+    /**
+     * Indica se todos os arquivos compilaram.
+     *
+     * @return {@code true} se não houve erros.
+     */
+    public boolean success() {
+        return failures.isEmpty();
+    }
+}